@@ -64,9 +64,29 @@ public class Experiment implements IExperiment {
      */
     public Experiment(final int bugId, final ISpectra<String> spectra, final IFaultLocalizer<String> localizer,
             final IBugsFaultLocations realFaults) {
+        this(bugId, spectra, localizer, null, realFaults);
+    }
+
+    /**
+     * Creates a new experiment reusing a ranking that was already computed by the given fault localizer.
+     *
+     * @param bugId
+     *            iBugs bug id that was used to create the spectra
+     * @param spectra
+     *            the spectra to base the experiment on
+     * @param localizer
+     *            the fault localizer to use
+     * @param ranking
+     *            the ranking the localizer created for the spectra, or null to localize during the experiment
+     * @param realFaults
+     *            to determine the real fault locations
+     */
+    public Experiment(final int bugId, final ISpectra<String> spectra, final IFaultLocalizer<String> localizer,
+            final Ranking<String> ranking, final IBugsFaultLocations realFaults) {
         this.bugId = bugId;
         this.spectra = spectra;
         this.localizer = localizer;
+        this.ranking = ranking;
         this.realFaults = realFaults;
     }
 
@@ -81,12 +101,14 @@ public class Experiment implements IExperiment {
         }
         this.hasRun = true;
 
-        // localize
-        this.log.log(Level.INFO, "Begin: fault localization");
-        final long begin = System.currentTimeMillis();
-        this.ranking = this.localizer.localize(this.spectra);
-        this.log.log(Level.INFO,
-                String.format("End: fault localization. Duration: %d ms", System.currentTimeMillis() - begin));
+        // localize, unless the ranking was computed upfront
+        if (this.ranking == null) {
+            this.log.log(Level.INFO, "Begin: fault localization");
+            final long begin = System.currentTimeMillis();
+            this.ranking = this.localizer.localize(this.spectra);
+            this.log.log(Level.INFO,
+                    String.format("End: fault localization. Duration: %d ms", System.currentTimeMillis() - begin));
+        }
         this.realFaultLocations = this.realFaults.getFaultyNodesFor(this.bugId, this.spectra);
     }
 
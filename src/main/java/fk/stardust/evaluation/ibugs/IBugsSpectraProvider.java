@@ -10,11 +10,16 @@
 package fk.stardust.evaluation.ibugs;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import fk.stardust.evaluation.ExperimentRuntimeException;
+import fk.stardust.provider.BinarySpectraFormat;
+import fk.stardust.provider.BinarySpectraProvider;
 import fk.stardust.provider.CoberturaProvider;
 import fk.stardust.provider.ISpectraProvider;
 import fk.stardust.traces.ISpectra;
@@ -35,6 +40,11 @@ public class IBugsSpectraProvider implements ISpectraProvider<String> {
     private final Integer failingTraces;
     /** Number of successful traces to load */
     private final Integer successfulTraces;
+    /** Folder to store binary spectra files in, null if no binary spectra files shall be used */
+    private final File cacheFolder;
+
+    /** Holds the logger of the provider */
+    private final Logger logger = Logger.getLogger(IBugsSpectraProvider.class.getName());
 
     /** Once loaded, we cache the spectra */
     private ISpectra<String> __cacheSpectra; // NOCS
@@ -65,7 +75,32 @@ public class IBugsSpectraProvider implements ISpectraProvider<String> {
      */
     public IBugsSpectraProvider(final String root, final int bugId, final Integer failingTraces,
             final Integer successfulTraces) {
+        this(root, bugId, failingTraces, successfulTraces, null);
+    }
+
+    /**
+     * Creates a new spectra provider. Takes the specified number of traces for the given bug id to create the trace.
+     * 
+     * Once the trace files are parsed, the spectra is stored in a binary spectra file in the given cache folder. If the
+     * file cannot be written, a warning is logged and the parsed spectra is used nonetheless. Subsequent providers for
+     * the same bug id load the binary spectra file instead of parsing the trace files again, as long as the trace files
+     * did not change.
+     * 
+     * @param root
+     *            path to the trace files
+     * @param bugId
+     *            bug id to run the experiment with
+     * @param failingTraces
+     *            the number of required failing traces
+     * @param successfulTraces
+     *            the number of required successful traces
+     * @param cacheFolder
+     *            path to the folder to store binary spectra files in, null to always parse the trace files
+     */
+    public IBugsSpectraProvider(final String root, final int bugId, final Integer failingTraces,
+            final Integer successfulTraces, final String cacheFolder) {
         this.root = new File(root);
+        this.cacheFolder = cacheFolder == null ? null : new File(cacheFolder);
         this.bugId = bugId;
         this.bugFolder = new File(this.root.getAbsolutePath() + "/" + bugId + "/pre-fix");
         this.failingTraces = failingTraces;
@@ -89,11 +124,12 @@ public class IBugsSpectraProvider implements ISpectraProvider<String> {
     public ISpectra<String> loadSpectra() throws Exception {
         if (this.__cacheSpectra == null) {
             final CoberturaProvider c = new CoberturaProvider();
+            final Map<String, Boolean> traces = this.traces();
             int loadedSuccess = 0;
             int loadedFailure = 0;
 
             // inject files into cobertura provider
-            for (final Map.Entry<String, Boolean> trace : this.traces().entrySet()) {
+            for (final Map.Entry<String, Boolean> trace : traces.entrySet()) {
                 if (trace.getValue()) {
                     loadedSuccess++;
                 } else {
@@ -114,8 +150,24 @@ public class IBugsSpectraProvider implements ISpectraProvider<String> {
                         loadedSuccess, this.successfulTraces));
             }
 
-            // load spectra
-            this.__cacheSpectra = c.loadSpectra();
+            // load spectra from binary spectra file if it is up to date, parse trace files otherwise
+            final long sourceStamp = BinarySpectraFormat.sourceStamp(new ArrayList<>(traces.keySet()));
+            final File cacheFile = this.cacheFolder == null ? null : new File(this.cacheFolder, this.bugId
+                    + ".spectra");
+            if (cacheFile != null && Long.valueOf(sourceStamp).equals(BinarySpectraFormat.readSourceStamp(cacheFile))) {
+                this.__cacheSpectra = new BinarySpectraProvider(cacheFile.getPath()).loadSpectra();
+            } else {
+                this.__cacheSpectra = c.loadSpectra();
+                if (cacheFile != null) {
+                    try {
+                        BinarySpectraFormat.write(this.__cacheSpectra, cacheFile, sourceStamp);
+                    } catch (final IOException e) {
+                        // the spectra was parsed anyway, only subsequent runs have to parse it again
+                        this.logger.log(Level.WARNING, String.format("Could not cache spectra of bug ID '%d' in %s.",
+                                this.bugId, cacheFile), e);
+                    }
+                }
+            }
         }
         return this.__cacheSpectra;
     }
@@ -124,11 +176,14 @@ public class IBugsSpectraProvider implements ISpectraProvider<String> {
      * Lists all traces of the given version and their corresponding success
      * state.
      * 
+     * The traces are sorted by file name, such that the trace order of the
+     * loaded spectra does not depend on the file system.
+     * 
      * @return Map of absolute trace file names to their corresponding success
      *         (true) or failure (false) state.
      */
     private Map<String, Boolean> traces() {
-        final Map<String, Boolean> traces = new HashMap<>();
+        final Map<String, Boolean> traces = new TreeMap<>();
         for (final File trace : this.bugFolder.listFiles(pathname -> {
             if (!pathname.isFile()) {
                 return false;
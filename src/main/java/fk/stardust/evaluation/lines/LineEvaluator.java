@@ -19,8 +19,8 @@ import java.util.List;
 import java.util.Map;
 
 import fk.stardust.evaluation.IBugsHierarchical;
-import fk.stardust.localizer.IFaultLocalizer;
 import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.machinelearn.ClassifierCache;
 import fk.stardust.localizer.machinelearn.WekaFaultLocalizer;
 import fk.stardust.provider.CoberturaProvider;
 import fk.stardust.traces.IMutableTrace;
@@ -35,6 +35,9 @@ import fk.stardust.util.CsvUtils;
  */
 public final class LineEvaluator {
 
+    /** System property naming a directory to cache trained models in across runs, models are not cached if unset */
+    public static final String MODEL_CACHE_PROPERTY = "stardust.modelCache";
+
     /** Result writer */
     private static FileWriter writer;
     /** Performance benchmarking */
@@ -85,7 +88,12 @@ public final class LineEvaluator {
         final int[] lineISs = { 1, 3, 5, 10, 25 };
         final int maxSuccessfulTraces = 25;
         final int maxFailingTraces = 25;
-        final IFaultLocalizer<String> localizer = new WekaFaultLocalizer<String>(IBugsHierarchical.NaiveBayes);
+        final WekaFaultLocalizer<String> localizer = new WekaFaultLocalizer<String>(IBugsHierarchical.NaiveBayes);
+        final String modelDirectory = System.getProperty(MODEL_CACHE_PROPERTY);
+        if (modelDirectory != null) {
+            // each model of a run is trained on distinct data, thus only repeated runs benefit from the disk cache
+            localizer.setClassifierCache(new ClassifierCache(1, new File(modelDirectory)));
+        }
 
         // initialization
         writer = new FileWriter(pathToResultFolder + "/result-" + bugId + ".csv");
@@ -123,7 +131,7 @@ public final class LineEvaluator {
 
             // set node involvement to none
             for (final ITrace<String> trace : spectra.getTraces()) {
-                ((IMutableTrace<String>) trace).setInvolvement(node, false);
+                ((IMutableTrace<String>) trace).setInvolvement(identifier, false);
             }
 
             for (final int lineIF : lineIFs) {
@@ -31,39 +31,8 @@ import fk.stardust.evaluation.ibugs.IBugsSpectraProvider;
 import fk.stardust.localizer.IFaultLocalizer;
 import fk.stardust.localizer.Ranking;
 import fk.stardust.localizer.Ranking.RankingMetric;
-import fk.stardust.localizer.sbfl.Ample;
-import fk.stardust.localizer.sbfl.Anderberg;
-import fk.stardust.localizer.sbfl.ArithmeticMean;
-import fk.stardust.localizer.sbfl.Cohen;
-import fk.stardust.localizer.sbfl.Dice;
-import fk.stardust.localizer.sbfl.Euclid;
-import fk.stardust.localizer.sbfl.Fleiss;
-import fk.stardust.localizer.sbfl.GeometricMean;
-import fk.stardust.localizer.sbfl.Goodman;
-import fk.stardust.localizer.sbfl.Hamann;
-import fk.stardust.localizer.sbfl.Hamming;
-import fk.stardust.localizer.sbfl.HarmonicMean;
-import fk.stardust.localizer.sbfl.Jaccard;
-import fk.stardust.localizer.sbfl.Kulczynski1;
-import fk.stardust.localizer.sbfl.Kulczynski2;
-import fk.stardust.localizer.sbfl.M1;
-import fk.stardust.localizer.sbfl.M2;
-import fk.stardust.localizer.sbfl.Ochiai;
-import fk.stardust.localizer.sbfl.Ochiai2;
-import fk.stardust.localizer.sbfl.Overlap;
-import fk.stardust.localizer.sbfl.RogersTanimoto;
-import fk.stardust.localizer.sbfl.Rogot1;
-import fk.stardust.localizer.sbfl.Rogot2;
-import fk.stardust.localizer.sbfl.RussellRao;
-import fk.stardust.localizer.sbfl.Scott;
-import fk.stardust.localizer.sbfl.SimpleMatching;
-import fk.stardust.localizer.sbfl.Sokal;
-import fk.stardust.localizer.sbfl.SorensenDice;
-import fk.stardust.localizer.sbfl.Tarantula;
-import fk.stardust.localizer.sbfl.Wong1;
-import fk.stardust.localizer.sbfl.Wong2;
-import fk.stardust.localizer.sbfl.Wong3;
-import fk.stardust.localizer.sbfl.Zoltar;
+import fk.stardust.localizer.sbfl.AbstractSpectrumBasedFaultLocalizer;
+import fk.stardust.localizer.sbfl.FormulaBank;
 import fk.stardust.provider.ISpectraProvider;
 import fk.stardust.traces.INode;
 import fk.stardust.traces.ISpectra;
@@ -92,12 +61,24 @@ public class CreateRankings {
     private final ISpectraProviderFactory<String> spectraProviderFactory;
 
     /**
-     * Setup experiment
+     * Setup experiment without caching the spectra
      *
      * @throws IOException
      * @throws JDOMException
      */
     public CreateRankings() throws JDOMException, IOException {
+        this((String) null);
+    }
+
+    /**
+     * Setup experiment
+     *
+     * @param spectraCacheFolder
+     *            folder to store binary spectra files in, null to always parse the trace files
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public CreateRankings(final String spectraCacheFolder) throws JDOMException, IOException {
         // settings
         final String tracePath = "traces";
         this.resultPath = "experiments/issta-2015";
@@ -129,7 +110,8 @@ public class CreateRankings {
 
         this.realFaults = new IBugsFaultLocations(tracePath + "/realfaultlocations.xml");
 
-        this.spectraProviderFactory = bugId -> new IBugsSpectraProvider(tracePath, bugId);
+        this.spectraProviderFactory = bugId -> new IBugsSpectraProvider(tracePath, bugId, null, null,
+                spectraCacheFolder);
     }
 
     /**
@@ -160,46 +142,14 @@ public class CreateRankings {
      * Adds a bunch of default fault localizers.
      */
     public void addDefaultFaultLocalizers() {
-        this.faultLocalizers.add(new Ample<String>());
-        this.faultLocalizers.add(new Anderberg<String>());
-        this.faultLocalizers.add(new ArithmeticMean<String>());
-        this.faultLocalizers.add(new Cohen<String>());
-        this.faultLocalizers.add(new Dice<String>());
-        this.faultLocalizers.add(new Euclid<String>());
-        this.faultLocalizers.add(new Fleiss<String>());
-        this.faultLocalizers.add(new GeometricMean<String>());
-        this.faultLocalizers.add(new Goodman<String>());
-        this.faultLocalizers.add(new Hamann<String>());
-        this.faultLocalizers.add(new Hamming<String>());
-        this.faultLocalizers.add(new HarmonicMean<String>());
-        this.faultLocalizers.add(new Jaccard<String>());
-        this.faultLocalizers.add(new Kulczynski1<String>());
-        this.faultLocalizers.add(new Kulczynski2<String>());
-        this.faultLocalizers.add(new M1<String>());
-        this.faultLocalizers.add(new M2<String>());
-        this.faultLocalizers.add(new Ochiai<String>());
-        this.faultLocalizers.add(new Ochiai2<String>());
-        this.faultLocalizers.add(new Overlap<String>());
-        this.faultLocalizers.add(new RogersTanimoto<String>());
-        this.faultLocalizers.add(new Rogot1<String>());
-        this.faultLocalizers.add(new Rogot2<String>());
-        this.faultLocalizers.add(new RussellRao<String>());
-        this.faultLocalizers.add(new Scott<String>());
-        this.faultLocalizers.add(new SimpleMatching<String>());
-        this.faultLocalizers.add(new Sokal<String>());
-        this.faultLocalizers.add(new SorensenDice<String>());
-        this.faultLocalizers.add(new Tarantula<String>());
-        this.faultLocalizers.add(new Wong1<String>());
-        this.faultLocalizers.add(new Wong2<String>());
-        this.faultLocalizers.add(new Wong3<String>());
-        this.faultLocalizers.add(new Zoltar<String>());
+        this.faultLocalizers.addAll(FormulaBank.<String> defaultFormulas());
     }
 
     /**
      * Initialize and run experiment
      *
      * @param args
-     *            CLI arguments
+     *            CLI arguments, optionally the folder to cache binary spectra files in
      * @throws InterruptedException
      *             in case the experiment was interrupted
      * @throws IOException
@@ -208,7 +158,7 @@ public class CreateRankings {
      *             in case the experiment failed
      */
     public static void main(final String[] args) throws InterruptedException, JDOMException, IOException {
-        new CreateRankings().run();
+        new CreateRankings(args.length > 0 ? args[0] : null).run();
     }
 
     /**
@@ -360,6 +310,21 @@ public class CreateRankings {
                 CreateRankings.this.logger.log(Level.INFO,
                         String.format("Loaded spectra for %d in %s", this.bugId, this.bench("load_spectra")));
 
+                // rank with all missing SBFL formulas in a single sweep
+                final List<AbstractSpectrumBasedFaultLocalizer<String>> formulas = new ArrayList<>();
+                for (final IFaultLocalizer<String> fl : CreateRankings.this.faultLocalizers) {
+                    if (fl instanceof AbstractSpectrumBasedFaultLocalizer
+                            && !CreateRankings.this.resultExists(this.bugId, fl.getName())) {
+                        formulas.add((AbstractSpectrumBasedFaultLocalizer<String>) fl);
+                    }
+                }
+                this.bench("formula_bank");
+                final FormulaBank<String> bank = new FormulaBank<>(formulas);
+                final Map<AbstractSpectrumBasedFaultLocalizer<String>, Ranking<String>> formulaRankings = bank
+                        .localize(spectra);
+                CreateRankings.this.logger.log(Level.INFO, String.format("Ranked %d SBFL formulas for %d in %s",
+                        formulas.size(), this.bugId, this.bench("formula_bank")));
+
                 // run all SBFL
                 for (final IFaultLocalizer<String> fl : CreateRankings.this.faultLocalizers) {
                     // skip if result exists
@@ -369,7 +334,7 @@ public class CreateRankings {
 
                     try {
                         final Experiment experiment = new Experiment(this.bugId, spectra, fl,
-                                CreateRankings.this.realFaults);
+                                formulaRankings.get(fl), CreateRankings.this.realFaults);
                         this.bench("single_experiment");
                         this.runSingleExperiment(experiment);
                         CreateRankings.this.logger.log(Level.INFO, String.format(
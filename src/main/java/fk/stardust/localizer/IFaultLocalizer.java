@@ -34,4 +34,17 @@ public interface IFaultLocalizer<T> {
      * @return nodes ranked by suspiciousness of actually causing the failure
      */
     Ranking<T> localize(ISpectra<T> spectra);
+
+    /**
+     * Creates a fault location ranking that only orders the K most suspicious nodes of the given spectra.
+     * 
+     * @param spectra
+     *            the spectra to perform the fault localization on
+     * @param k
+     *            the number of most suspicious nodes to order
+     * @return the K most suspicious nodes ranked by suspiciousness of actually causing the failure
+     */
+    default TopKRanking<T> localize(final ISpectra<T> spectra, final int k) {
+        return new TopKRanking<>(this.localize(spectra), k);
+    }
 }
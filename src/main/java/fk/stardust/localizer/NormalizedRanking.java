@@ -9,8 +9,20 @@
 
 package fk.stardust.localizer;
 
+import java.util.Arrays;
+
 import fk.stardust.traces.INode;
 
+/**
+ * Ranking reporting the suspiciousness of the nodes of another ranking normalized by a {@link NormalizationStrategy}.
+ *
+ * The normalized ranking shares the nodes, suspiciousness values and ranking order of the ranking it normalizes until
+ * either of them is modified. As normalization preserves the ranking order, the normalized suspiciousness of all nodes
+ * is computed once into a primitive array on the first query, such that each lookup is a single array access.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
 public class NormalizedRanking<T> extends Ranking<T> {
 
     public enum NormalizationStrategy {
@@ -21,14 +33,13 @@ public class NormalizedRanking<T> extends Ranking<T> {
 
     /** Holds the strategy to use */
     private final NormalizationStrategy strategy;
-    private Double __suspMax;
-    private Double __suspMin;
+
+    /** caches the normalized suspiciousness of each node index */
+    private volatile double[] __cacheNormalized; // NOCS
 
     public NormalizedRanking(final Ranking<T> toNormalize, final NormalizationStrategy strategy) {
-        super();
+        super(toNormalize, true);
         this.strategy = strategy;
-        this.nodes.putAll(toNormalize.nodes);
-        this.rankedNodes.addAll(toNormalize.rankedNodes);
     }
 
     /**
@@ -36,7 +47,7 @@ public class NormalizedRanking<T> extends Ranking<T> {
      */
     @Override
     public double getSuspiciousness(final INode<T> node) {
-        return this.getRankingMetrics(node).getSuspiciousness();
+        return this.normalized()[this.indexOf(node)];
     }
 
     /**
@@ -45,105 +56,151 @@ public class NormalizedRanking<T> extends Ranking<T> {
     @Override
     public RankingMetric getRankingMetrics(final INode<T> node) {
         final RankingMetric metric = super.getRankingMetrics(node);
-        final double susNorm = this.normalizeSuspiciousness(metric);
-        return new RankingMetric(metric.getNode(), metric.getBestRanking(), metric.getWorstRanking(), susNorm);
+        return new RankingMetric(metric.getNode(), metric.getBestRanking(), metric.getWorstRanking(),
+                this.normalized()[this.indexOf(node)]);
     }
 
-
-
     /**
      * {@inheritDoc}
      */
     @Override
     protected void outdateRankingCache() {
         super.outdateRankingCache();
-        this.__suspMax = null;
-        this.__suspMin = null;
+        this.__cacheNormalized = null;
     }
 
     /**
      * {@inheritDoc}
+     *
+     * The suspiciousness values of both rankings are merged before the result is normalized again using the strategy
+     * of this ranking.
      */
     @Override
-    protected boolean isRankingCacheOutdated() {
-        return super.isRankingCacheOutdated() || this.__suspMax == null || this.__suspMin == null;
+    public NormalizedRanking<T> merge(final Ranking<T> other) {
+        return new NormalizedRanking<>(super.merge(other), this.strategy);
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the normalized suspiciousness of each node index, computing it if necessary.
+     *
+     * @return normalized suspiciousness indexed like {@link #nodes}
      */
-    @Override
-    protected void updateRankingCache() {
-        if (!this.isRankingCacheOutdated()) {
-            return;
+    private double[] normalized() {
+        final double[] normalized = this.__cacheNormalized;
+        if (normalized != null) {
+            return normalized;
         }
-        super.updateRankingCache();
-        this.updateSuspMinMax();
+        return this.updateNormalized();
     }
 
     /**
-     * {@inheritDoc}
+     * Computes the normalized suspiciousness of all nodes at once.
+     *
+     * @return normalized suspiciousness indexed like {@link #nodes}
      */
-    @Override
-    public Ranking<T> merge(final Ranking<T> other) {
-        // FIXME: incorrect, need to return instance of NormalizedRanking
-        return super.merge(other);
-    }
-
-    private double normalizeSuspiciousness(final RankingMetric metric) {
-        final double curSusp = metric.getSuspiciousness();
+    private synchronized double[] updateNormalized() {
+        if (this.__cacheNormalized != null) {
+            return this.__cacheNormalized;
+        }
+        final int size = this.nodes.size();
+        final double[] normalized;
         switch (this.strategy) {
         case ReciprocalRank:
-            return 1.0d / metric.getWorstRanking();
+            // reuse the ranking order shared with the source ranking
+            normalized = reciprocalRank(this.suspiciousness, this.rankingOrder());
+            break;
         case ZeroOne:
-            this.updateRankingCache();
+            normalized = normalize(Arrays.copyOf(this.suspiciousness, size), this.strategy);
+            break;
+        default:
+            throw new RuntimeException("Not yet implemented");
+        }
+        this.__cacheNormalized = normalized;
+        return normalized;
+    }
 
-            if (Double.isInfinite(curSusp)) {
-                if (curSusp < 0) {
-                    return 0.0d;
-                } else {
-                    return 1.0d;
+    /**
+     * Normalizes the suspiciousness of all nodes of a ranking at once.
+     *
+     * The result equals the suspiciousness a normalized ranking reports for each node, i.e. NaN is treated as the
+     * lowest possible suspiciousness.
+     *
+     * @param suspiciousness
+     *            suspiciousness of each node
+     * @param strategy
+     *            the normalization strategy to use
+     * @return normalized suspiciousness of each node
+     */
+    public static double[] normalize(final double[] suspiciousness, final NormalizationStrategy strategy) {
+        switch (strategy) {
+        case ReciprocalRank:
+            // sort the nodes exactly like a ranking holding them
+            final double[] ranked = new double[suspiciousness.length];
+            final int[] order = new int[ranked.length];
+            for (int i = 0; i < ranked.length; i++) {
+                ranked[i] = Double.isNaN(suspiciousness[i]) ? Double.NEGATIVE_INFINITY : suspiciousness[i];
+                order[i] = i;
+            }
+            Ranking.sort(order, new int[order.length], 0, order.length, ranked);
+            return reciprocalRank(ranked, order);
+        case ZeroOne:
+            final double[] normalized = new double[suspiciousness.length];
+            double max = Double.NEGATIVE_INFINITY;
+            double min = Double.POSITIVE_INFINITY;
+            for (final double susp : suspiciousness) {
+                if (!Double.isNaN(susp) && !Double.isInfinite(susp)) {
+                    max = Math.max(max, susp);
+                    min = Math.min(min, susp);
                 }
             }
-            if (Double.isNaN(curSusp)) {
-                return 0.0d;
+            if (Double.isInfinite(max)) {
+                max = 1.0d;
+            }
+            if (Double.isInfinite(min)) {
+                min = 1.0d;
             }
-            if (this.__suspMax.compareTo(this.__suspMin) == 0) {
-                return 0.5d;
+            for (int i = 0; i < normalized.length; i++) {
+                final double susp = suspiciousness[i];
+                if (Double.isNaN(susp) || susp == Double.NEGATIVE_INFINITY) {
+                    normalized[i] = 0.0d;
+                } else if (susp == Double.POSITIVE_INFINITY) {
+                    normalized[i] = 1.0d;
+                } else if (Double.compare(max, min) == 0) {
+                    normalized[i] = 0.5d;
+                } else {
+                    normalized[i] = (susp - min) / (max - min);
+                }
             }
-            return (curSusp - this.__suspMin) / (this.__suspMax - this.__suspMin);
+            return normalized;
         default:
             throw new RuntimeException("Not yet implemented");
         }
     }
 
-    private void updateSuspMinMax() {
-        // max susp
-        double suspMax;
-        RankedElement max = this.rankedNodes.first();
-        while (max != null && (Double.isNaN(max.suspicousness) || Double.isInfinite(max.suspicousness))) {
-            max = this.rankedNodes.higher(max);
-        }
-        if (max == null) {
-            suspMax = 1.0d;
-        } else {
-            suspMax = max.suspicousness;
-        }
-        assert !Double.isInfinite(suspMax) && !Double.isNaN(suspMax);
-
-        // min susp
-        double suspMin;
-        RankedElement min = this.rankedNodes.last();
-        while (min != null && (Double.isNaN(min.suspicousness) || Double.isInfinite(min.suspicousness))) {
-            min = this.rankedNodes.lower(min);
-        }
-        if (min == null) {
-            suspMin = 1.0d;
-        } else {
-            suspMin = min.suspicousness;
+    /**
+     * Computes the reciprocal of the worst ranking of each node, i.e. of the number of nodes at least as suspicious.
+     *
+     * @param suspiciousness
+     *            suspiciousness of each node index, NaN must already be replaced by negative infinity
+     * @param order
+     *            all node indices in ranking order
+     * @return normalized suspiciousness of each node index
+     */
+    private static double[] reciprocalRank(final double[] suspiciousness, final int[] order) {
+        final double[] normalized = new double[order.length];
+        int start = 0;
+        while (start < order.length) {
+            // all nodes of a tie bucket share the position after the last node of the bucket as worst ranking
+            final double susp = suspiciousness[order[start]];
+            int end = start + 1;
+            while (end < order.length && Double.compare(suspiciousness[order[end]], susp) == 0) {
+                end++;
+            }
+            for (int pos = start; pos < end; pos++) {
+                normalized[order[pos]] = 1.0d / end;
+            }
+            start = end;
         }
-        assert !Double.isInfinite(suspMin) && !Double.isNaN(suspMin);
-        this.__suspMax = suspMax;
-        this.__suspMin = suspMin;
+        return normalized;
     }
 }
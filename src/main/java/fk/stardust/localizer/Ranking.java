@@ -11,32 +11,60 @@ package fk.stardust.localizer;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 
 import fk.stardust.traces.INode;
 
 /**
  * Class used to create a ranking of nodes with corresponding suspiciousness set.
  *
+ * Ranked nodes are appended to a primitive suspiciousness array indexed by the position the node was first ranked at.
+ * The ranking order is computed lazily by a single primitive index sort on the first query after a modification.
+ * Nodes with equal suspiciousness keep the order they were first ranked in, thus the ranking order is reproducible for
+ * a deterministic input. Along with the order, the nodes are grouped into tie buckets holding all nodes of the same
+ * suspiciousness. The best and worst ranking of a node are the bounds of its bucket, such that all subsequent queries
+ * are answered in constant time.
+ *
  * @param <T>
  *            type used to identify nodes in the system
  */
 public class Ranking<T> implements Iterable<INode<T>> {
 
-    /** Holds the actual ranking */
-    protected final TreeSet<RankedElement> rankedNodes = new TreeSet<>(); // NOCS
+    /** Initial capacity of the suspiciousness array */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Ranges up to this size are sorted using insertion sort */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /** Holds the ranked nodes in the order they were first ranked */
+    protected List<INode<T>> nodes = new ArrayList<>(); // NOCS
 
-    /** Holds the nodes with their corresponding suspiciousness */
-    protected final Map<INode<T>, Double> nodes = new HashMap<>();
+    /** Holds the suspiciousness of each node, indexed like {@link #nodes} */
+    protected double[] suspiciousness = new double[INITIAL_CAPACITY]; // NOCS
 
-    /** caches the best ranking for each node */
-    private Map<INode<T>, Integer> __cacheBestRanking;
-    /** caches the worst ranking for each node */
-    private Map<INode<T>, Integer> __cacheWorstRanking;
+    /** Maps each ranked node to its index in {@link #nodes} */
+    private Map<INode<T>, Integer> indices = new HashMap<>();
+
+    /** True if {@link #nodes}, {@link #suspiciousness} and {@link #indices} are shared with another ranking */
+    private boolean shared;
+
+    /** caches the node indices in ranking order */
+    protected int[] __cacheOrder; // NOCS
+    /** caches the ranking position of each node index */
+    protected int[] __cachePosition; // NOCS
+    /** caches the tie bucket of each node index */
+    protected int[] __cacheBucket; // NOCS
+    /**
+     * caches the first ranking position of each tie bucket, with an additional trailing entry holding the number of
+     * ranked nodes
+     */
+    protected int[] __cacheBucketStart; // NOCS
 
     /**
      * Create a new ranking.
@@ -46,7 +74,55 @@ public class Ranking<T> implements Iterable<INode<T>> {
     }
 
     /**
-     * Adds a node with its suspiciousness to the ranking.
+     * Create a new ranking holding the same nodes and suspiciousness values as the given ranking.
+     *
+     * @param toCopy
+     *            the ranking to copy
+     */
+    protected Ranking(final Ranking<T> toCopy) {
+        this(toCopy, false);
+    }
+
+    /**
+     * Create a new ranking holding the same nodes and suspiciousness values as the given ranking.
+     *
+     * If the data is shared, both rankings use the same node list, suspiciousness array and ranking order until one of
+     * them is modified. The modified ranking then copies the data before applying the modification, thus neither
+     * ranking ever observes changes of the other.
+     *
+     * @param source
+     *            the ranking to copy or share the data of
+     * @param share
+     *            true to share the data with the source ranking, false to copy it right away
+     */
+    protected Ranking(final Ranking<T> source, final boolean share) {
+        super();
+        synchronized (source) {
+            if (share) {
+                this.nodes = source.nodes;
+                this.suspiciousness = source.suspiciousness;
+                this.indices = source.indices;
+                this.shared = true;
+                source.shared = true;
+                // the cached arrays are replaced, never modified, on an update
+                if (source.isRankingCacheComplete()) {
+                    this.__cacheOrder = source.__cacheOrder;
+                    this.__cachePosition = source.__cachePosition;
+                    this.__cacheBucket = source.__cacheBucket;
+                    this.__cacheBucketStart = source.__cacheBucketStart;
+                }
+            } else {
+                this.nodes.addAll(source.nodes);
+                this.suspiciousness = Arrays.copyOf(source.suspiciousness,
+                        Math.max(INITIAL_CAPACITY, source.suspiciousness.length));
+                this.indices.putAll(source.indices);
+            }
+        }
+    }
+
+    /**
+     * Adds a node with its suspiciousness to the ranking. If the node is already ranked, its suspiciousness is
+     * replaced.
      *
      * @param node
      *            the node to add to the ranking
@@ -54,12 +130,44 @@ public class Ranking<T> implements Iterable<INode<T>> {
      *            the determined suspiciousness of the node
      */
     public void rank(final INode<T> node, final double suspiciousness) {
+        if (this.shared) {
+            this.unshare();
+        }
         final double s = Double.isNaN(suspiciousness) ? Double.NEGATIVE_INFINITY : suspiciousness;
-        this.rankedNodes.add(new RankedElement(node, s));
-        this.nodes.put(node, s);
+        final Integer index = this.indices.get(node);
+        if (index != null) {
+            this.suspiciousness[index] = s;
+        } else {
+            final int newIndex = this.nodes.size();
+            if (newIndex == this.suspiciousness.length) {
+                this.suspiciousness = Arrays.copyOf(this.suspiciousness, newIndex * 2);
+            }
+            this.suspiciousness[newIndex] = s;
+            this.nodes.add(node);
+            this.indices.put(node, newIndex);
+        }
         this.outdateRankingCache();
     }
 
+    /**
+     * Replaces the data shared with another ranking by a private copy.
+     */
+    private void unshare() {
+        this.nodes = new ArrayList<>(this.nodes);
+        this.suspiciousness = Arrays.copyOf(this.suspiciousness, this.suspiciousness.length);
+        this.indices = new HashMap<>(this.indices);
+        this.shared = false;
+    }
+
+    /**
+     * Returns the number of ranked nodes.
+     *
+     * @return node count
+     */
+    public int size() {
+        return this.nodes.size();
+    }
+
     /**
      * Returns the suspiciousness of the given node.
      *
@@ -68,7 +176,7 @@ public class Ranking<T> implements Iterable<INode<T>> {
      * @return suspiciousness
      */
     public double getSuspiciousness(final INode<T> node) {
-        return this.nodes.get(node);
+        return this.suspiciousness[this.indexOf(node)];
     }
 
     /**
@@ -81,14 +189,9 @@ public class Ranking<T> implements Iterable<INode<T>> {
      * @return number of nodes ranked higher as the given node.
      */
     public int wastedEffort(final INode<T> node) {
-        int position = 0;
-        for (final RankedElement element : this.rankedNodes) {
-            if (node.equals(element.node)) {
-                return position;
-            }
-            position++;
-        }
-        throw new IllegalArgumentException(String.format("The ranking does not contain node '%s'.", node.toString()));
+        final int index = this.indexOf(node);
+        this.updateRankingCache();
+        return this.__cachePosition[index];
     }
 
     /**
@@ -99,21 +202,39 @@ public class Ranking<T> implements Iterable<INode<T>> {
      * @return metrics
      */
     public RankingMetric getRankingMetrics(final INode<T> node) {
+        final int index = this.indexOf(node);
         this.updateRankingCache();
-        final Integer bestRanking = this.__cacheBestRanking.get(node);
-        final Integer worstRanking = this.__cacheWorstRanking.get(node);
-        assert bestRanking != null;
-        assert worstRanking != null;
-        final double nodeSuspiciousness = this.nodes.get(node);
-        return new RankingMetric(node, bestRanking, worstRanking, nodeSuspiciousness);
+        final int bucket = this.__cacheBucket[index];
+        return new RankingMetric(node, this.__cacheBucketStart[bucket] + 1, this.__cacheBucketStart[bucket + 1],
+                this.suspiciousness[index]);
+    }
+
+    /**
+     * Returns the index of the given node in {@link #nodes}.
+     *
+     * @param node
+     *            the node to get the index of
+     * @return node index
+     * @throws IllegalArgumentException
+     *             if the node is not part of the ranking
+     */
+    protected int indexOf(final INode<T> node) {
+        final Integer index = this.indices.get(node);
+        if (index == null) {
+            throw new IllegalArgumentException(String.format("The ranking does not contain node '%s'.",
+                    node.toString()));
+        }
+        return index;
     }
 
     /**
      * Outdates the ranking cache
      */
     protected void outdateRankingCache() {
-        this.__cacheBestRanking = null;
-        this.__cacheWorstRanking = null;
+        this.__cacheOrder = null;
+        this.__cachePosition = null;
+        this.__cacheBucket = null;
+        this.__cacheBucketStart = null;
     }
 
     /**
@@ -122,60 +243,144 @@ public class Ranking<T> implements Iterable<INode<T>> {
      * @return true if the cache is outdated, false otherwise
      */
     protected boolean isRankingCacheOutdated() {
-        return this.__cacheBestRanking == null || this.__cacheWorstRanking == null;
+        return this.__cacheOrder == null || this.__cachePosition == null || this.__cacheBucket == null
+                || this.__cacheBucketStart == null;
     }
 
     /**
-     * Updates the cached worst case and best case ranking if necessary
+     * Checks whether the ranking cache holds all ranked nodes, i.e. whether it can be shared with a full ranking.
+     *
+     * @return true if the cache covers all nodes, false otherwise
      */
-    protected void updateRankingCache() {
+    protected boolean isRankingCacheComplete() {
+        return true;
+    }
+
+    /**
+     * Updates the cached ranking order and tie buckets if necessary
+     */
+    protected synchronized void updateRankingCache() {
         if (!this.isRankingCacheOutdated()) {
             return;
         }
 
-        // update best case
-        this.__cacheBestRanking = new HashMap<>();
-        Integer bestRanking = null;
-        int position = 0;
-        Double preSuspiciousness = null;
-        for (final RankedElement element : this.rankedNodes) {
-            position++;
-            if (preSuspiciousness == null || preSuspiciousness.compareTo(element.suspicousness) != 0) {
-                bestRanking = position;
-                preSuspiciousness = element.suspicousness;
+        final int size = this.nodes.size();
+        final int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        sort(order, new int[size], 0, size, this.suspiciousness);
+
+        // walk the ranking once, opening a new bucket for each distinct suspiciousness
+        final int[] position = new int[size];
+        final int[] bucket = new int[size];
+        final int[] bucketStart = new int[size + 1];
+        int buckets = 0;
+        for (int pos = 0; pos < size; pos++) {
+            if (pos == 0 || Double.compare(this.suspiciousness[order[pos - 1]], this.suspiciousness[order[pos]]) != 0) {
+                bucketStart[buckets++] = pos;
             }
-            this.__cacheBestRanking.put(element.node, bestRanking);
+            position[order[pos]] = pos;
+            bucket[order[pos]] = buckets - 1;
         }
+        bucketStart[buckets] = size;
+
+        this.__cachePosition = position;
+        this.__cacheBucket = bucket;
+        this.__cacheBucketStart = Arrays.copyOf(bucketStart, buckets + 1);
+        this.__cacheOrder = order;
+    }
+
+    /**
+     * Returns the indices of the ranked nodes in ranking order. The returned array is shared and must not be modified.
+     *
+     * @return node indices in ranking order
+     */
+    protected int[] rankingOrder() {
+        this.updateRankingCache();
+        return this.__cacheOrder;
+    }
 
-        // update worst case
-        this.__cacheWorstRanking = new HashMap<>();
-        Integer worstRanking = null;
-        position = this.rankedNodes.size() + 1;
-        preSuspiciousness = null;
-        for (final RankedElement element : this.rankedNodes.descendingSet()) {
-            position--;
-            if (preSuspiciousness == null || preSuspiciousness.compareTo(element.suspicousness) != 0) {
-                worstRanking = position;
-                preSuspiciousness = element.suspicousness;
+    /**
+     * Compares two node indices by ranking order: higher suspiciousness first.
+     *
+     * @param a
+     *            first node index
+     * @param b
+     *            second node index
+     * @param suspiciousness
+     *            suspiciousness of each node index
+     * @return negative if a is ranked before b, positive if b is ranked before a, 0 if both are tied
+     */
+    static int compare(final int a, final int b, final double[] suspiciousness) {
+        return Double.compare(suspiciousness[b], suspiciousness[a]);
+    }
+
+    /**
+     * Sorts the given range of node indices into ranking order using a stable merge sort on primitive arrays. Tied
+     * node indices keep their relative order.
+     *
+     * @param order
+     *            the node indices to sort
+     * @param buffer
+     *            temporary buffer of at least the size of order
+     * @param from
+     *            first position to sort, inclusive
+     * @param to
+     *            last position to sort, exclusive
+     * @param suspiciousness
+     *            suspiciousness of each node index
+     */
+    static void sort(final int[] order, final int[] buffer, final int from, final int to,
+            final double[] suspiciousness) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                final int current = order[i];
+                int j = i - 1;
+                while (j >= from && compare(order[j], current, suspiciousness) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = current;
+            }
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        sort(order, buffer, from, mid, suspiciousness);
+        sort(order, buffer, mid, to, suspiciousness);
+        if (compare(order[mid - 1], order[mid], suspiciousness) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        int pos = from;
+        while (left < mid && right < to) {
+            if (compare(buffer[right], buffer[left], suspiciousness) < 0) {
+                order[pos++] = buffer[right++];
+            } else {
+                order[pos++] = buffer[left++];
             }
-            this.__cacheWorstRanking.put(element.node, worstRanking);
         }
+        System.arraycopy(buffer, left, order, pos, mid - left);
+        pos += mid - left;
+        System.arraycopy(buffer, right, order, pos, to - right);
     }
 
     /**
-     * Creates a new ranking with this ranking and the other ranking merged together.
+     * Creates a new ranking with this ranking and the other ranking merged together. Nodes contained in both rankings
+     * get the suspiciousness of the other ranking. Tied nodes of this ranking precede tied nodes only contained in the
+     * other ranking.
      *
      * @param other
      *            the other ranking to merge with this ranking
      * @return merged ranking
      */
     public Ranking<T> merge(final Ranking<T> other) {
-        final Ranking<T> merged = new Ranking<T>();
-        merged.nodes.putAll(this.nodes);
-        merged.rankedNodes.addAll(this.rankedNodes);
-        merged.nodes.putAll(other.nodes);
-        merged.rankedNodes.addAll(other.rankedNodes);
-        merged.outdateRankingCache();
+        final Ranking<T> merged = new Ranking<T>(this);
+        for (int i = 0; i < other.nodes.size(); i++) {
+            merged.rank(other.nodes.get(i), other.suspiciousness[i]);
+        }
         return merged;
     }
 
@@ -184,23 +389,23 @@ public class Ranking<T> implements Iterable<INode<T>> {
      */
     @Override
     public Iterator<INode<T>> iterator() {
-        // mimic RankedElement iterator but pass node objects to the outside
-        final Iterator<RankedElement> rankedIterator = this.rankedNodes.iterator();
+        final int[] order = this.rankingOrder();
         return new Iterator<INode<T>>() {
 
+            /** position of the next node to return */
+            private int position = 0;
+
             @Override
             public boolean hasNext() {
-                return rankedIterator.hasNext();
+                return this.position < order.length;
             }
 
             @Override
             public INode<T> next() {
-                return rankedIterator.next().node;
-            }
-
-            @Override
-            public void remove() {
-                rankedIterator.remove();
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return Ranking.this.nodes.get(order[this.position++]);
             }
         };
     }
@@ -213,11 +418,12 @@ public class Ranking<T> implements Iterable<INode<T>> {
      * @throws IOException
      */
     public void save(final String filename) throws IOException {
+        final int[] order = this.rankingOrder();
         FileWriter writer = null;
         try {
             writer = new FileWriter(filename);
-            for (final RankedElement el : this.rankedNodes) {
-                writer.write(String.format("%s: %f\n", el.node.toString(), el.suspicousness));
+            for (final int index : order) {
+                writer.write(String.format("%s: %f\n", this.nodes.get(index).toString(), this.suspiciousness[index]));
             }
         } catch (final Exception e) {
             throw new RuntimeException("Saving the ranking failed.", e);
@@ -229,51 +435,6 @@ public class Ranking<T> implements Iterable<INode<T>> {
         }
     }
 
-    /**
-     * Class used to store node and suspiciousness in order to use the {@link SortedSet} interface for actual node
-     * ordering.
-     */
-    protected final class RankedElement implements Comparable<RankedElement> {
-        /** Node of the ranked element */
-        protected final INode<T> node;
-        /** Suspiciousness of the ranked element */
-        protected final Double suspicousness;
-
-        private RankedElement(final INode<T> node, final double suspiciousness) {
-            super();
-            this.node = node;
-            this.suspicousness = suspiciousness;
-        }
-
-        @Override
-        public boolean equals(final Object other) {
-            if (!(other instanceof Ranking.RankedElement)) {
-                return false;
-            }
-            @SuppressWarnings("unchecked")
-            final RankedElement el = (RankedElement) other;
-            return this.node.equals(el.node) && this.suspicousness.equals(el.suspicousness);
-        }
-
-        @Override
-        public int hashCode() {
-            return this.node.getIdentifier().hashCode();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int compareTo(final RankedElement other) {
-            final int compareTo = other.suspicousness.compareTo(this.suspicousness);
-            if (compareTo != 0) {
-                return compareTo;
-            }
-            // TODO: as TreeSet consideres compareTo == 0 as equal, we need to ensure all elements have a total order.
-            return Integer.valueOf(other.hashCode()).compareTo(this.hashCode());
-        }
-    }
-
     /**
      * Holds all ranking information for a node.
      */
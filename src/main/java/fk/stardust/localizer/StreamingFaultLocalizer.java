@@ -0,0 +1,218 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import fk.stardust.localizer.sbfl.AbstractSpectrumBasedFaultLocalizer;
+import fk.stardust.traces.CounterSpectra;
+import fk.stardust.traces.TraceRecord;
+
+/**
+ * Performs fault localization over a possibly unbounded feed of traces.
+ *
+ * Traces are folded into a {@link CounterSpectra} as they arrive, thus only the counters of each node are kept and the
+ * memory required is linear in the number of nodes. The wrapped fault localizer must therefore only rely on the
+ * counters of each node, thus only spectrum based fault localizers are accepted.
+ *
+ * A refreshed ranking is passed to the listener every N traces and whenever a trace arrives after the snapshot
+ * interval elapsed since the last snapshot. Traces can be pushed using {@link #addTrace(TraceRecord)}, pulled from an
+ * iterator using {@link #consume(Iterator)} or delivered by a {@link Flow.Publisher} this localizer is subscribed to.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
+public class StreamingFaultLocalizer<T> implements Flow.Subscriber<TraceRecord<T>> {
+
+    /** The fault localizer used to create ranking snapshots */
+    private final AbstractSpectrumBasedFaultLocalizer<T> localizer;
+
+    /** Number of traces after which a snapshot is created, 0 if snapshots are not created by trace count */
+    private final int snapshotTraces;
+
+    /** Nanoseconds after which a snapshot is created, 0 if snapshots are not created by time */
+    private final long snapshotInterval;
+
+    /** Receives each ranking snapshot */
+    private final Consumer<Ranking<T>> listener;
+
+    /** Holds the counters of all nodes */
+    private final CounterSpectra<T> spectra = new CounterSpectra<>();
+
+    /** Completes with the final ranking once the subscribed publisher completes */
+    private final CompletableFuture<Ranking<T>> result = new CompletableFuture<>();
+
+    /** Number of traces added since the last snapshot */
+    private int tracesSinceSnapshot;
+
+    /** Time of the last snapshot as given by {@link System#nanoTime()} */
+    private long lastSnapshot = System.nanoTime();
+
+    /** The subscription of the publisher this localizer is subscribed to */
+    private Flow.Subscription subscription;
+
+    /**
+     * Create a streaming fault localizer.
+     *
+     * @param localizer
+     *            the fault localizer used to create ranking snapshots
+     * @param snapshotTraces
+     *            number of traces after which a snapshot is created, 0 to not create snapshots by trace count
+     * @param snapshotInterval
+     *            time after which a snapshot is created, 0 to not create snapshots by time
+     * @param unit
+     *            the unit of the snapshot interval
+     * @param listener
+     *            receives each ranking snapshot
+     */
+    public StreamingFaultLocalizer(final AbstractSpectrumBasedFaultLocalizer<T> localizer, final int snapshotTraces,
+            final long snapshotInterval, final TimeUnit unit, final Consumer<Ranking<T>> listener) {
+        super();
+        if (snapshotTraces < 0 || snapshotInterval < 0) {
+            throw new IllegalArgumentException("Snapshot trace count and interval must not be negative.");
+        }
+        this.localizer = localizer;
+        this.snapshotTraces = snapshotTraces;
+        this.snapshotInterval = unit.toNanos(snapshotInterval);
+        this.listener = listener;
+    }
+
+    /**
+     * Create a streaming fault localizer that creates a snapshot every N traces.
+     *
+     * @param localizer
+     *            the fault localizer used to create ranking snapshots
+     * @param snapshotTraces
+     *            number of traces after which a snapshot is created
+     * @param listener
+     *            receives each ranking snapshot
+     */
+    public StreamingFaultLocalizer(final AbstractSpectrumBasedFaultLocalizer<T> localizer, final int snapshotTraces,
+            final Consumer<Ranking<T>> listener) {
+        this(localizer, snapshotTraces, 0, TimeUnit.NANOSECONDS, listener);
+    }
+
+    /**
+     * Returns the spectra holding the counters of all traces added so far.
+     *
+     * @return counter spectra
+     */
+    public CounterSpectra<T> getSpectra() {
+        return this.spectra;
+    }
+
+    /**
+     * Adds a trace and passes a ranking snapshot to the listener if one is due.
+     *
+     * Traces that do not involve a single node are skipped.
+     *
+     * @param trace
+     *            the trace to add
+     */
+    public synchronized void addTrace(final TraceRecord<T> trace) {
+        if (!trace.isExecuted()) {
+            return;
+        }
+        this.spectra.addTrace(trace);
+        this.tracesSinceSnapshot++;
+        if (this.snapshotTraces > 0 && this.tracesSinceSnapshot >= this.snapshotTraces
+                || this.snapshotInterval > 0 && System.nanoTime() - this.lastSnapshot >= this.snapshotInterval) {
+            this.listener.accept(this.snapshot());
+        }
+    }
+
+    /**
+     * Adds all traces of the given iterator.
+     *
+     * @param traces
+     *            the traces to add
+     * @return ranking of all traces added so far
+     */
+    public Ranking<T> consume(final Iterator<TraceRecord<T>> traces) {
+        while (traces.hasNext()) {
+            this.addTrace(traces.next());
+        }
+        return this.snapshot();
+    }
+
+    /**
+     * Creates a ranking of all traces added so far. The snapshot is not passed to the listener.
+     *
+     * @return ranking
+     */
+    public synchronized Ranking<T> snapshot() {
+        this.tracesSinceSnapshot = 0;
+        this.lastSnapshot = System.nanoTime();
+        return this.localizer.localize(this.spectra);
+    }
+
+    /**
+     * Returns a future completing with the ranking of all traces once the subscribed publisher completes.
+     *
+     * @return final ranking
+     */
+    public CompletableFuture<Ranking<T>> getResult() {
+        return this.result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNext(final TraceRecord<T> trace) {
+        try {
+            this.addTrace(trace);
+        } catch (final RuntimeException e) {
+            this.subscription.cancel();
+            this.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError(final Throwable throwable) {
+        this.result.completeExceptionally(throwable);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The final ranking is passed to the listener and completes {@link #getResult()}.
+     */
+    @Override
+    public void onComplete() {
+        try {
+            final Ranking<T> ranking = this.snapshot();
+            this.listener.accept(ranking);
+            this.result.complete(ranking);
+        } catch (final RuntimeException e) {
+            this.result.completeExceptionally(e);
+        }
+    }
+}
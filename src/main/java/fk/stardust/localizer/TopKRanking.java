@@ -0,0 +1,300 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer;
+
+import java.util.Arrays;
+
+import fk.stardust.traces.INode;
+
+/**
+ * Ranking that only orders the K most suspicious nodes.
+ *
+ * All ranked nodes and their suspiciousness are kept, but instead of sorting all nodes, the K most suspicious nodes
+ * are selected using a bounded heap over the primitive suspiciousness array and only these tracked nodes are sorted.
+ * Iterating or saving the ranking yields the tracked nodes only. Best and worst ranking as well as the wasted effort
+ * are exact for all nodes: tracked nodes are answered in constant time, nodes outside the tracked set are answered by
+ * counting the nodes ranked higher.
+ *
+ * The order of the tracked nodes equals the order of the first K nodes of a {@link Ranking} holding the same nodes.
+ * The inherited ranking cache only holds the tracked nodes: the cached order contains the tracked nodes only, position
+ * and tie bucket of all other nodes are -1 and the last bucket ends after all nodes tied with the last tracked node.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
+public class TopKRanking<T> extends Ranking<T> {
+
+    /** The number of nodes to track */
+    private final int k;
+
+    /**
+     * Create a new top K ranking.
+     *
+     * @param k
+     *            the number of nodes to track
+     */
+    public TopKRanking(final int k) {
+        super();
+        this.k = checkK(k);
+    }
+
+    /**
+     * Create a new top K ranking holding the same nodes and suspiciousness values as the given ranking.
+     *
+     * @param toCopy
+     *            the ranking to copy
+     * @param k
+     *            the number of nodes to track
+     */
+    public TopKRanking(final Ranking<T> toCopy, final int k) {
+        super(toCopy);
+        this.k = checkK(k);
+    }
+
+    /**
+     * Ensures the given number of nodes to track is positive.
+     *
+     * @param k
+     *            the number of nodes to track
+     * @return k
+     */
+    private static int checkK(final int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException(String.format("Cannot track %d nodes, K must be positive.", k));
+        }
+        return k;
+    }
+
+    /**
+     * Returns the number of nodes to track.
+     *
+     * @return K
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Checks whether the given node is one of the tracked top K nodes.
+     *
+     * @param node
+     *            the node to check
+     * @return true if the node is tracked, false otherwise
+     */
+    public boolean isTracked(final INode<T> node) {
+        final int index = this.indexOf(node);
+        this.updateRankingCache();
+        return this.__cachePosition[index] >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int wastedEffort(final INode<T> node) {
+        final int index = this.indexOf(node);
+        this.updateRankingCache();
+        if (this.__cachePosition[index] >= 0) {
+            return this.__cachePosition[index];
+        }
+        final double susp = this.suspiciousness[index];
+        int higher = 0;
+        for (int i = 0; i < this.nodes.size(); i++) {
+            final int compare = Double.compare(this.suspiciousness[i], susp);
+            if (compare > 0 || compare == 0 && i < index) {
+                higher++;
+            }
+        }
+        return higher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RankingMetric getRankingMetrics(final INode<T> node) {
+        final int index = this.indexOf(node);
+        this.updateRankingCache();
+        final int position = this.__cachePosition[index];
+        if (position >= 0) {
+            final int bucket = this.__cacheBucket[index];
+            return new RankingMetric(node, this.__cacheBucketStart[bucket] + 1, this.__cacheBucketStart[bucket + 1],
+                    this.suspiciousness[index]);
+        }
+        final double susp = this.suspiciousness[index];
+        int higher = 0;
+        int tied = 0;
+        for (int i = 0; i < this.nodes.size(); i++) {
+            final int compare = Double.compare(this.suspiciousness[i], susp);
+            if (compare > 0) {
+                higher++;
+            } else if (compare == 0) {
+                tied++;
+            }
+        }
+        return new RankingMetric(node, higher + 1, higher + tied, susp);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The cache of a top K ranking only holds the tracked nodes.
+     */
+    @Override
+    protected boolean isRankingCacheComplete() {
+        return false;
+    }
+
+    /**
+     * Selects and sorts the top K nodes if necessary. The full ranking is never sorted.
+     */
+    @Override
+    protected synchronized void updateRankingCache() {
+        if (!this.isRankingCacheOutdated()) {
+            return;
+        }
+
+        final int size = this.nodes.size();
+        final double[] susp = this.suspiciousness;
+
+        // select the top K node indices using a heap that holds the lowest ranked tracked node at its root
+        final int tracked = Math.min(this.k, size);
+        final int[] heap = new int[tracked];
+        for (int i = 0; i < size; i++) {
+            if (i < tracked) {
+                heap[i] = i;
+                siftUp(heap, i, susp);
+            } else if (Double.compare(susp[i], susp[heap[0]]) > 0) {
+                heap[0] = i;
+                siftDown(heap, tracked, susp);
+            }
+        }
+
+        // sort the selected nodes, ties are ordered by node index as in the full ranking
+        Arrays.sort(heap);
+        Ranking.sort(heap, new int[tracked], 0, tracked, susp);
+
+        final int[] position = new int[size];
+        Arrays.fill(position, -1);
+        final int[] bucket = new int[size];
+        Arrays.fill(bucket, -1);
+        final int[] bucketStart = new int[tracked + 1];
+        int buckets = 0;
+        for (int pos = 0; pos < tracked; pos++) {
+            if (pos == 0 || Double.compare(susp[heap[pos - 1]], susp[heap[pos]]) != 0) {
+                bucketStart[buckets++] = pos;
+            }
+            position[heap[pos]] = pos;
+            bucket[heap[pos]] = buckets - 1;
+        }
+
+        // the last bucket may continue beyond the tracked nodes
+        if (tracked > 0) {
+            final double last = susp[heap[tracked - 1]];
+            int end = tracked;
+            for (int i = 0; i < size; i++) {
+                if (position[i] < 0 && Double.compare(susp[i], last) == 0) {
+                    end++;
+                }
+            }
+            bucketStart[buckets] = end;
+        }
+
+        this.__cachePosition = position;
+        this.__cacheBucket = bucket;
+        this.__cacheBucketStart = Arrays.copyOf(bucketStart, buckets + 1);
+        this.__cacheOrder = heap;
+    }
+
+    /**
+     * Checks whether node index a is ranked lower than node index b.
+     *
+     * @param a
+     *            first node index
+     * @param b
+     *            second node index
+     * @param suspiciousness
+     *            suspiciousness of each node index
+     * @return true if a is ranked lower than b
+     */
+    private static boolean lower(final int a, final int b, final double[] suspiciousness) {
+        final int compare = Ranking.compare(a, b, suspiciousness);
+        return compare > 0 || compare == 0 && a > b;
+    }
+
+    /**
+     * Restores the heap property after inserting an element at the given position.
+     *
+     * @param heap
+     *            the heap of node indices
+     * @param position
+     *            position of the inserted element
+     * @param suspiciousness
+     *            suspiciousness of each node index
+     */
+    private static void siftUp(final int[] heap, final int position, final double[] suspiciousness) {
+        int child = position;
+        while (child > 0) {
+            final int parent = (child - 1) >>> 1;
+            if (!lower(heap[child], heap[parent], suspiciousness)) {
+                return;
+            }
+            final int tmp = heap[parent];
+            heap[parent] = heap[child];
+            heap[child] = tmp;
+            child = parent;
+        }
+    }
+
+    /**
+     * Restores the heap property after replacing the root element.
+     *
+     * @param heap
+     *            the heap of node indices
+     * @param size
+     *            number of elements in the heap
+     * @param suspiciousness
+     *            suspiciousness of each node index
+     */
+    private static void siftDown(final int[] heap, final int size, final double[] suspiciousness) {
+        int parent = 0;
+        while (true) {
+            final int left = 2 * parent + 1;
+            if (left >= size) {
+                return;
+            }
+            int lowest = left;
+            if (left + 1 < size && lower(heap[left + 1], heap[left], suspiciousness)) {
+                lowest = left + 1;
+            }
+            if (!lower(heap[lowest], heap[parent], suspiciousness)) {
+                return;
+            }
+            final int tmp = heap[parent];
+            heap[parent] = heap[lowest];
+            heap[lowest] = tmp;
+            parent = lowest;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The merged ranking tracks the same number of nodes as this ranking.
+     */
+    @Override
+    public TopKRanking<T> merge(final Ranking<T> other) {
+        final TopKRanking<T> merged = new TopKRanking<>(this, this.k);
+        for (int i = 0; i < other.nodes.size(); i++) {
+            merged.rank(other.nodes.get(i), other.suspiciousness[i]);
+        }
+        return merged;
+    }
+}
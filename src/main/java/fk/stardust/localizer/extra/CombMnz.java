@@ -0,0 +1,46 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+/**
+ * CombMNZ fusion: the fused score of a node is the sum of its scores multiplied by the number of techniques assigning
+ * it a non-zero score.
+ */
+public class CombMnz implements FusionStrategy {
+
+    /**
+     * Create fusion strategy
+     */
+    public CombMnz() {
+        super();
+    }
+
+    @Override
+    public String getName() {
+        return "combmnz";
+    }
+
+    @Override
+    public double[] fuse(final double[][] scores, final int nodeCount) {
+        final double[] fused = new double[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            double sum = 0;
+            int nonZero = 0;
+            for (final double[] score : scores) {
+                sum += score[i];
+                if (score[i] != 0) {
+                    nonZero++;
+                }
+            }
+            fused[i] = nonZero * sum;
+        }
+        return fused;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+/**
+ * CombSUM fusion: the fused score of a node is the sum of its scores.
+ */
+public class CombSum implements FusionStrategy {
+
+    /**
+     * Create fusion strategy
+     */
+    public CombSum() {
+        super();
+    }
+
+    @Override
+    public String getName() {
+        return "combsum";
+    }
+
+    @Override
+    public double[] fuse(final double[][] scores, final int nodeCount) {
+        final double[] fused = new double[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            double sum = 0;
+            for (final double[] score : scores) {
+                sum += score[i];
+            }
+            fused[i] = sum;
+        }
+        return fused;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+import java.util.Arrays;
+
+/**
+ * Correlation based fusion: a weighted sum where techniques that are less correlated with the other techniques are
+ * weighted higher, as they contribute more independent information.
+ *
+ * The weight of a technique is one minus its mean Pearson correlation with all other techniques, thus weights range
+ * from 0 (perfectly correlated with all others) to 2 (perfectly anti-correlated). The correlation with a technique
+ * assigning the same score to all nodes is considered 0. A single technique is weighted 1.
+ */
+public class CorrelationFusion implements FusionStrategy {
+
+    /**
+     * Create fusion strategy
+     */
+    public CorrelationFusion() {
+        super();
+    }
+
+    @Override
+    public String getName() {
+        return "correlation";
+    }
+
+    @Override
+    public double[] fuse(final double[][] scores, final int nodeCount) {
+        return WeightedSum.fuse(scores, this.weights(scores, nodeCount), nodeCount);
+    }
+
+    /**
+     * Computes the weight of each technique from the pairwise correlations of the techniques.
+     *
+     * @param scores
+     *            normalized suspiciousness of each node, one vector per technique
+     * @param nodeCount
+     *            number of nodes
+     * @return weight of each technique
+     */
+    public double[] weights(final double[][] scores, final int nodeCount) {
+        final int techniques = scores.length;
+        final double[] weights = new double[techniques];
+        if (techniques < 2) {
+            Arrays.fill(weights, 1.0d);
+            return weights;
+        }
+
+        // center each vector once, the correlation is then the cosine of the centered vectors
+        final double[][] centered = new double[techniques][nodeCount];
+        final double[] norm = new double[techniques];
+        for (int t = 0; t < techniques; t++) {
+            double mean = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                mean += scores[t][i];
+            }
+            mean /= nodeCount;
+            double squares = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                centered[t][i] = scores[t][i] - mean;
+                squares += centered[t][i] * centered[t][i];
+            }
+            norm[t] = Math.sqrt(squares);
+        }
+
+        final double[] correlationSum = new double[techniques];
+        for (int a = 0; a < techniques; a++) {
+            for (int b = a + 1; b < techniques; b++) {
+                if (norm[a] == 0 || norm[b] == 0) {
+                    continue;
+                }
+                double product = 0;
+                for (int i = 0; i < nodeCount; i++) {
+                    product += centered[a][i] * centered[b][i];
+                }
+                final double correlation = product / (norm[a] * norm[b]);
+                correlationSum[a] += correlation;
+                correlationSum[b] += correlation;
+            }
+        }
+        for (int t = 0; t < techniques; t++) {
+            weights[t] = 1.0d - correlationSum[t] / (techniques - 1);
+        }
+        return weights;
+    }
+}
@@ -18,44 +18,17 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import fk.stardust.localizer.IFaultLocalizer;
 import fk.stardust.localizer.NormalizedRanking;
 import fk.stardust.localizer.NormalizedRanking.NormalizationStrategy;
 import fk.stardust.localizer.Ranking;
-import fk.stardust.localizer.sbfl.Ample;
-import fk.stardust.localizer.sbfl.Anderberg;
-import fk.stardust.localizer.sbfl.ArithmeticMean;
-import fk.stardust.localizer.sbfl.Cohen;
-import fk.stardust.localizer.sbfl.Dice;
-import fk.stardust.localizer.sbfl.Euclid;
-import fk.stardust.localizer.sbfl.Fleiss;
-import fk.stardust.localizer.sbfl.GeometricMean;
-import fk.stardust.localizer.sbfl.Goodman;
-import fk.stardust.localizer.sbfl.Hamann;
-import fk.stardust.localizer.sbfl.Hamming;
-import fk.stardust.localizer.sbfl.HarmonicMean;
-import fk.stardust.localizer.sbfl.Jaccard;
-import fk.stardust.localizer.sbfl.Kulczynski1;
-import fk.stardust.localizer.sbfl.Kulczynski2;
-import fk.stardust.localizer.sbfl.M1;
-import fk.stardust.localizer.sbfl.M2;
-import fk.stardust.localizer.sbfl.Ochiai;
-import fk.stardust.localizer.sbfl.Ochiai2;
-import fk.stardust.localizer.sbfl.Overlap;
-import fk.stardust.localizer.sbfl.RogersTanimoto;
-import fk.stardust.localizer.sbfl.Rogot1;
-import fk.stardust.localizer.sbfl.Rogot2;
-import fk.stardust.localizer.sbfl.RussellRao;
-import fk.stardust.localizer.sbfl.Scott;
-import fk.stardust.localizer.sbfl.SimpleMatching;
-import fk.stardust.localizer.sbfl.Sokal;
-import fk.stardust.localizer.sbfl.SorensenDice;
-import fk.stardust.localizer.sbfl.Tarantula;
-import fk.stardust.localizer.sbfl.Wong1;
-import fk.stardust.localizer.sbfl.Wong2;
-import fk.stardust.localizer.sbfl.Wong3;
-import fk.stardust.localizer.sbfl.Zoltar;
+import fk.stardust.localizer.TopKRanking;
+import fk.stardust.localizer.sbfl.AbstractSpectrumBasedFaultLocalizer;
+import fk.stardust.localizer.sbfl.FormulaBank;
+import fk.stardust.traces.ContingencyTable;
 import fk.stardust.traces.INode;
 import fk.stardust.traces.ISpectra;
 
@@ -67,14 +40,16 @@ import fk.stardust.traces.ISpectra;
 public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
 
     /** Holds all SBFL to fuse */
-    private final List<IFaultLocalizer<T>> sbfl = new ArrayList<>();
+    private final FormulaBank<T> sbfl = FormulaBank.all();
 
     /** Chosen normalization strategy */
     private final NormalizationStrategy normalizationStrategy;
     /** Chosen selection strategy */
     private final SelectionTechnique selectionStrategy;
+    /** Name of the chosen data fusion strategy */
+    private final String fusionName;
     /** Chosen data fusion strategy */
-    private final DataFusionTechnique fusionStrategy;
+    private final FusionStrategy fusionStrategy;
 
     /**
      * Enum representing all available selection techniques
@@ -87,7 +62,27 @@ public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
      * Enum representing all available data fusion techniques.
      */
     public enum DataFusionTechnique {
-        COMB_SUM, COMB_ANZ, COMB_MNZ
+        COMB_SUM, COMB_ANZ, COMB_MNZ, CORRELATION;
+
+        /**
+         * Creates the fusion strategy implementing this technique.
+         *
+         * @return fusion strategy
+         */
+        public FusionStrategy createStrategy() {
+            switch (this) {
+            case COMB_SUM:
+                return new CombSum();
+            case COMB_ANZ:
+                return new CombAnz();
+            case COMB_MNZ:
+                return new CombMnz();
+            case CORRELATION:
+                return new CorrelationFusion();
+            default:
+                throw new RuntimeException("Data fusion strategy " + this.toString() + " not implemented yet");
+            }
+        }
     }
 
     /**
@@ -102,63 +97,83 @@ public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
      */
     public FusingFaultLocalizer(final NormalizationStrategy normalization, final SelectionTechnique selection,
             final DataFusionTechnique dataFusion) {
+        this(normalization, selection, dataFusion.createStrategy(), dataFusion.toString());
+    }
+
+    /**
+     * Constructs a fusion fault localizer using a custom data fusion strategy
+     *
+     * @param normalization
+     *            strategy to use
+     * @param selection
+     *            strategy to use
+     * @param dataFusion
+     *            strategy to use
+     */
+    public FusingFaultLocalizer(final NormalizationStrategy normalization, final SelectionTechnique selection,
+            final FusionStrategy dataFusion) {
+        this(normalization, selection, dataFusion, dataFusion.getName());
+    }
+
+    /**
+     * Constructs a fusion fault localizer
+     *
+     * @param normalization
+     *            strategy to use
+     * @param selection
+     *            strategy to use
+     * @param dataFusion
+     *            strategy to use
+     * @param fusionName
+     *            name of the data fusion strategy
+     */
+    private FusingFaultLocalizer(final NormalizationStrategy normalization, final SelectionTechnique selection,
+            final FusionStrategy dataFusion, final String fusionName) {
         super();
         this.normalizationStrategy = normalization;
         this.selectionStrategy = selection;
         this.fusionStrategy = dataFusion;
-
-        this.sbfl.add(new Ample<T>());
-        this.sbfl.add(new Anderberg<T>());
-        this.sbfl.add(new ArithmeticMean<T>());
-        this.sbfl.add(new Cohen<T>());
-        this.sbfl.add(new Dice<T>());
-        this.sbfl.add(new Euclid<T>());
-        this.sbfl.add(new Fleiss<T>());
-        this.sbfl.add(new GeometricMean<T>());
-        this.sbfl.add(new Goodman<T>());
-        this.sbfl.add(new Hamann<T>());
-        this.sbfl.add(new Hamming<T>());
-        this.sbfl.add(new HarmonicMean<T>());
-        this.sbfl.add(new Jaccard<T>());
-        this.sbfl.add(new Kulczynski1<T>());
-        this.sbfl.add(new Kulczynski2<T>());
-        this.sbfl.add(new M1<T>());
-        this.sbfl.add(new M2<T>());
-        this.sbfl.add(new Ochiai<T>());
-        this.sbfl.add(new Ochiai2<T>());
-        this.sbfl.add(new Overlap<T>());
-        this.sbfl.add(new RogersTanimoto<T>());
-        this.sbfl.add(new Rogot1<T>());
-        this.sbfl.add(new Rogot2<T>());
-        this.sbfl.add(new RussellRao<T>());
-        this.sbfl.add(new Scott<T>());
-        this.sbfl.add(new SimpleMatching<T>());
-        this.sbfl.add(new Sokal<T>());
-        this.sbfl.add(new SorensenDice<T>());
-        this.sbfl.add(new Tarantula<T>());
-        this.sbfl.add(new Wong1<T>());
-        this.sbfl.add(new Wong2<T>());
-        this.sbfl.add(new Wong3<T>());
-        this.sbfl.add(new Zoltar<T>());
+        this.fusionName = fusionName;
     }
 
     @Override
     public String getName() {
         return String.format("F-%s-%s-%s", this.normalizationStrategy.toString(), this.selectionStrategy.toString(),
-                this.fusionStrategy.toString());
+                this.fusionName);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * All formulas are evaluated and normalized in parallel. The normalized suspiciousness of each formula is kept as
+     * primitive array in node order, thus the fusion is a sum over these arrays.
+     */
     @Override
     public Ranking<T> localize(final ISpectra<T> spectra) {
-        final Map<IFaultLocalizer<T>, Ranking<T>> sbflRankings = new HashMap<>();
-        // create ordinary rankings
-        for (final IFaultLocalizer<T> fl : this.sbfl) {
-            final Ranking<T> ranking = fl.localize(spectra);
-            sbflRankings.put(fl, new NormalizedRanking<T>(ranking, this.normalizationStrategy));
+        final ContingencyTable<T> table = spectra.getContingencyTable();
+        final List<INode<T>> nodes = table.getNodes();
+        final List<AbstractSpectrumBasedFaultLocalizer<T>> formulas = this.sbfl.getFormulas();
+        final double[][] suspiciousness = this.sbfl.suspiciousness(table);
+
+        // normalize all formulas and rank their top-K nodes
+        final int k = (int) (nodes.size() * 0.1 < 10 ? 10 : nodes.size() * 0.1);
+        final double[][] normalized = new double[formulas.size()][];
+        final List<TopKRanking<T>> topRankings = IntStream.range(0, formulas.size()).parallel().mapToObj(f -> {
+            normalized[f] = NormalizedRanking.normalize(suspiciousness[f], this.normalizationStrategy);
+            final TopKRanking<T> topRanking = new TopKRanking<>(k);
+            for (int i = 0; i < nodes.size(); i++) {
+                topRanking.rank(nodes.get(i), suspiciousness[f][i]);
+            }
+            return topRanking;
+        }).collect(Collectors.toList());
+        final Map<IFaultLocalizer<T>, Ranking<T>> sbflRankings = new LinkedHashMap<>();
+        final Map<IFaultLocalizer<T>, Integer> formulaIndices = new HashMap<>();
+        for (int f = 0; f < formulas.size(); f++) {
+            sbflRankings.put(formulas.get(f), topRankings.get(f));
+            formulaIndices.put(formulas.get(f), f);
         }
 
         // compute top-K nodes per ranking metric
-        final int k = (int) (spectra.getNodes().size() * 0.1 < 10 ? 10 : spectra.getNodes().size() * 0.1);
         final Map<IFaultLocalizer<T>, Set<INode<T>>> topK = this.topK(sbflRankings, k);
 
 
@@ -177,19 +192,19 @@ public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
         }
         assert selected != null && selected.size() > 1;
         System.out.println("Selected " + selected.size());
+        final double[][] selectedScores = new double[selected.size()][];
+        for (int s = 0; s < selected.size(); s++) {
+            selectedScores[s] = normalized[formulaIndices.get(selected.get(s))];
+        }
 
         // combine
-        switch (this.fusionStrategy) {
-        case COMB_ANZ:
-            return this.fuseCombAnz(spectra, selected, sbflRankings);
-
-        case COMB_SUM:
-            return this.fuseCombSum(spectra, selected, sbflRankings);
+        final double[] fused = this.fusionStrategy.fuse(selectedScores, nodes.size());
 
-        default:
-            throw new RuntimeException("Data fusion strategy " + this.fusionStrategy.toString()
-                    + " not implemented yet");
+        final Ranking<T> finalRanking = new Ranking<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            finalRanking.rank(nodes.get(i), fused[i]);
         }
+        return finalRanking;
     }
 
     /**
@@ -207,11 +222,9 @@ public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
         for (final IFaultLocalizer<T> fl : rankings.keySet()) {
             final Set<INode<T>> top = new HashSet<>();
             final Ranking<T> ranking = rankings.get(fl);
-            for (final INode<T> node : ranking) {
+            final boolean ranked = ranking instanceof TopKRanking && ((TopKRanking<T>) ranking).getK() == k;
+            for (final INode<T> node : ranked ? ranking : new TopKRanking<>(ranking, k)) {
                 top.add(node);
-                if (top.size() >= k) {
-                    break;
-                }
             }
             topK.put(fl, top);
         }
@@ -238,7 +251,7 @@ public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
         }
 
         // add to sorted map
-        final Map<IFaultLocalizer<T>, Double> sortby = new HashMap<>();
+        final Map<IFaultLocalizer<T>, Double> sortby = new LinkedHashMap<>();
         for (final IFaultLocalizer<T> fl : rankings.keySet()) {
             // score
             final double oRate = (double) (all.size() - topK.get(fl).size()) / (double) all.size();
@@ -275,7 +288,7 @@ public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
         }
 
         // calculate similarity
-        final Map<IFaultLocalizer<T>, Double> bias = new HashMap<>();
+        final Map<IFaultLocalizer<T>, Double> bias = new LinkedHashMap<>();
         int lAllSum = 0;
         for (final Integer rankedIn : lAll.values()) {
             lAllSum += rankedIn * rankedIn;
@@ -332,96 +345,4 @@ public class FusingFaultLocalizer<T> implements IFaultLocalizer<T> {
         return selected;
     }
 
-    /**
-     * Combine scores to final ranking using CombANZ technique
-     *
-     * @param spectra
-     *            spectra ranking is backed on
-     * @param selected
-     *            selected techniques
-     * @param rankings
-     *            rankings of all techniques
-     * @return new ranking
-     */
-    protected Ranking<T> fuseCombAnz(final ISpectra<T> spectra, final List<IFaultLocalizer<T>> selected,
-            final Map<IFaultLocalizer<T>, Ranking<T>> rankings) {
-        final Ranking<T> finalRanking = new Ranking<>();
-        for (final INode<T> node : spectra.getNodes()) {
-            double sum = 0;
-            int nonZero = 0;
-            for (final IFaultLocalizer<T> fl : selected) {
-                final double score = rankings.get(fl).getSuspiciousness(node);
-                sum += score;
-                if (score != 0) {
-                    nonZero++;
-                }
-            }
-            double finalScore;
-            if (nonZero == 0) {
-                finalScore = 0.0d;
-            } else {
-                finalScore = 1.0d / nonZero * sum;
-            }
-
-            finalRanking.rank(node, finalScore);
-        }
-        return finalRanking;
-    }
-
-    /**
-     * Combine scores to final ranking using CombSUM technique
-     *
-     * @param spectra
-     *            spectra ranking is backed on
-     * @param selected
-     *            selected techniques
-     * @param rankings
-     *            rankings of all techniques
-     * @return new ranking
-     */
-    protected Ranking<T> fuseCombSum(final ISpectra<T> spectra, final List<IFaultLocalizer<T>> selected,
-            final Map<IFaultLocalizer<T>, Ranking<T>> rankings) {
-        final Ranking<T> finalRanking = new Ranking<>();
-        for (final INode<T> node : spectra.getNodes()) {
-            double finalScore = 0;
-            for (final IFaultLocalizer<T> fl : selected) {
-                finalScore += rankings.get(fl).getSuspiciousness(node);
-            }
-            finalRanking.rank(node, finalScore);
-        }
-        return finalRanking;
-    }
-
-
-    protected Ranking<T> fuseCorrB(final ISpectra<T> spectra, final List<IFaultLocalizer<T>> selected,
-            final Map<IFaultLocalizer<T>, Ranking<T>> rankings) {
-        return null;
-    }
-
-    /**
-     * Used to calculate the weighted sum of a set of fault localization techniques to create a new ranking.
-     *
-     * To be used by correlation based methods.
-     *
-     * @param spectra
-     *            pectra ranking is backed on
-     * @param weights
-     *            selected techniques and their ranking
-     * @param rankings
-     *            rankings of all techniques
-     * @return new ranking
-     */
-    private Ranking<T> fuseWeightedSum(final ISpectra<T> spectra, final Map<IFaultLocalizer<T>, Double> weights,
-            final Map<IFaultLocalizer<T>, Ranking<T>> rankings) {
-        final Ranking<T> ranking = new Ranking<>();
-        for (final INode<T> node : spectra.getNodes()) {
-            double score = 0;
-            for (final IFaultLocalizer<T> fl : weights.keySet()) {
-                score += weights.get(fl) + rankings.get(fl).getSuspiciousness(node);
-            }
-            ranking.rank(node, score);
-        }
-        return ranking;
-    }
-
 }
@@ -0,0 +1,38 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+/**
+ * Combines the normalized suspiciousness of multiple fault localization techniques into a single suspiciousness per
+ * node.
+ *
+ * The scores are passed as dense vectors, one per technique, where position i of each vector belongs to the same
+ * node. Implementations compute all fused scores in a single pass over the nodes.
+ */
+public interface FusionStrategy {
+
+    /**
+     * Returns a human-understandable name of this fusion strategy.
+     *
+     * @return name
+     */
+    String getName();
+
+    /**
+     * Fuses the given scores.
+     *
+     * @param scores
+     *            normalized suspiciousness of each node, one vector per technique
+     * @param nodeCount
+     *            number of nodes, i.e. the length of each vector
+     * @return fused suspiciousness of each node
+     */
+    double[] fuse(double[][] scores, int nodeCount);
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+import java.util.List;
+
+import fk.stardust.localizer.IFaultLocalizer;
+import fk.stardust.localizer.Ranking;
+import fk.stardust.traces.BitsetSpectra;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+import fk.stardust.traces.NodeEquivalenceClasses;
+
+/**
+ * Fault localizer collapsing nodes with identical involvement columns before localizing.
+ *
+ * The wrapped localizer only ranks one representative of each {@link NodeEquivalenceClasses equivalence class}, the
+ * suspiciousness of the representative is then assigned to all members of its class. For spectrum based localizers
+ * the ranking is unchanged, as equivalent nodes have equal counters anyway. Machine learning localizers additionally
+ * train on a single feature per class instead of many identical features.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
+public class ReducingFaultLocalizer<T> implements IFaultLocalizer<T> {
+
+    /** The localizer ranking the representatives */
+    private final IFaultLocalizer<T> localizer;
+
+    /**
+     * Create a reducing fault localizer.
+     *
+     * @param localizer
+     *            the localizer to rank the representative of each equivalence class with
+     */
+    public ReducingFaultLocalizer(final IFaultLocalizer<T> localizer) {
+        super();
+        this.localizer = localizer;
+    }
+
+    @Override
+    public String getName() {
+        return this.localizer.getName();
+    }
+
+    @Override
+    public Ranking<T> localize(final ISpectra<T> spectra) {
+        final NodeEquivalenceClasses<T> classes = new NodeEquivalenceClasses<>(spectra);
+        final BitsetSpectra<T> reduced = classes.getReducedSpectra();
+        final Ranking<T> reducedRanking = this.localizer.localize(reduced);
+
+        final double[] suspiciousness = new double[classes.getClassCount()];
+        for (int c = 0; c < suspiciousness.length; c++) {
+            suspiciousness[c] = reducedRanking.getSuspiciousness(reduced.getNode(c));
+        }
+
+        // fan the scores out to all members, nodes keep their original order
+        final List<INode<T>> nodes = classes.getNodes();
+        final Ranking<T> ranking = new Ranking<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ranking.rank(nodes.get(i), suspiciousness[classes.getClassOf(i)]);
+        }
+        return ranking;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+/**
+ * Weighted sum fusion: the fused score of a node is the sum of its scores, each multiplied by the weight of the
+ * technique.
+ */
+public class WeightedSum implements FusionStrategy {
+
+    /** Weight of each technique */
+    private final double[] weights;
+
+    /**
+     * Create fusion strategy
+     *
+     * @param weights
+     *            weight of each technique, in the order the score vectors are passed
+     */
+    public WeightedSum(final double... weights) {
+        super();
+        this.weights = weights.clone();
+    }
+
+    @Override
+    public String getName() {
+        return "weightedsum";
+    }
+
+    @Override
+    public double[] fuse(final double[][] scores, final int nodeCount) {
+        if (scores.length != this.weights.length) {
+            throw new IllegalArgumentException(String.format("Cannot fuse %d techniques using %d weights.",
+                    scores.length, this.weights.length));
+        }
+        return fuse(scores, this.weights, nodeCount);
+    }
+
+    /**
+     * Computes the weighted sum of the given scores.
+     *
+     * @param scores
+     *            normalized suspiciousness of each node, one vector per technique
+     * @param weights
+     *            weight of each technique
+     * @param nodeCount
+     *            number of nodes
+     * @return fused suspiciousness of each node
+     */
+    static double[] fuse(final double[][] scores, final double[] weights, final int nodeCount) {
+        final double[] fused = new double[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            double sum = 0;
+            for (int t = 0; t < scores.length; t++) {
+                sum += weights[t] * scores[t][i];
+            }
+            fused[i] = sum;
+        }
+        return fused;
+    }
+}
@@ -10,23 +10,70 @@
 package fk.stardust.localizer.hierarchical;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import fk.stardust.localizer.IFaultLocalizer;
 import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.sbfl.AbstractSpectrumBasedFaultLocalizer;
 import fk.stardust.traces.HierarchicalSpectra;
 import fk.stardust.traces.INode;
 import fk.stardust.traces.ISpectra;
+import fk.stardust.traces.ITrace;
 
+/**
+ * Ranks the nodes of the bottom level of a hierarchical spectra by adding up the suspiciousness of each node and all
+ * of its ancestors, each level ranked by its own fault localizer.
+ *
+ * The levels are ranked concurrently. The accumulated scores are then propagated level by level using fork/join tasks
+ * over primitive index arrays that hold the parents of each node. A node reachable through multiple parents keeps the
+ * highest accumulated score. Nodes that cannot be reached from the top level are not ranked.
+ *
+ * In drill-down mode only the most suspicious subtrees of each level are expanded, see
+ * {@link #localize(HierarchicalSpectra, int, double)}.
+ *
+ * @param <P>
+ *            parent node identifier type
+ * @param <C>
+ *            child node identifier type
+ */
 public class LevelLocalizer<P, C> implements IHierarchicalFaultLocalizer<P, C> {
 
+    /** Number of nodes below which score propagation is not split any further */
+    private static final int PROPAGATION_THRESHOLD = 4096;
+
     /** Holds the fault localizers to use for each level. */
     private final List<IFaultLocalizer<?>> levelLocalizers = new ArrayList<>();
 
+    /** Number of threads used to rank levels and propagate scores */
+    private final int threads;
+
+    /**
+     * Create a level localizer using one thread per available processor.
+     */
     public LevelLocalizer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a level localizer.
+     *
+     * @param threads
+     *            number of threads used to rank levels and propagate scores
+     */
+    public LevelLocalizer(final int threads) {
         super();
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Cannot localize using %d threads.", threads));
+        }
+        this.threads = threads;
     }
 
     /**
@@ -45,35 +92,370 @@ public class LevelLocalizer<P, C> implements IHierarchicalFaultLocalizer<P, C> {
 
     @Override
     public Ranking<?> localize(final HierarchicalSpectra<P, C> spectra) {
-        int level = 0;
+        final List<ISpectra<?>> levels = this.levels(spectra);
+
+        final ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            // rank all levels concurrently
+            final List<ForkJoinTask<Ranking<?>>> tasks = new ArrayList<>();
+            for (int level = 0; level < levels.size(); level++) {
+                final IFaultLocalizer<?> localizer = this.levelLocalizers.get(level);
+                final ISpectra<?> levelSpectra = levels.get(level);
+                tasks.add(pool.submit(() -> this.localize(localizer, levelSpectra)));
+            }
+
+            // start with the suspiciousness of the top level nodes
+            List<INode<?>> nodes = new ArrayList<>(levels.get(0).getNodes());
+            double[] scores = this.suspiciousness(tasks.get(0).join(), nodes);
+            boolean[] reached = new boolean[nodes.size()];
+            Arrays.fill(reached, true);
+
+            // add the accumulated score of the parents to each node of the next level
+            for (int level = 1; level < levels.size(); level++) {
+                final List<INode<?>> childNodes = new ArrayList<>(levels.get(level).getNodes());
+                final int[][] parents = this.parentIndices((HierarchicalSpectra<?, ?>) levels.get(level - 1), nodes,
+                        childNodes);
+                final double[] childScores = this.suspiciousness(tasks.get(level).join(), childNodes);
+                final boolean[] childReached = new boolean[childNodes.size()];
+                pool.invoke(new Propagation(scores, reached, parents[0], parents[1], childScores, childReached, 0,
+                        childNodes.size()));
+                nodes = childNodes;
+                scores = childScores;
+                reached = childReached;
+            }
+
+            // create ranking
+            final Ranking<?> ranking = new Ranking<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                if (reached[i]) {
+                    this.rank(ranking, nodes.get(i), scores[i]);
+                }
+            }
+            return ranking;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Ranks the given hierarchical spectra in drill-down mode.
+     *
+     * Starting at the top level, only the N nodes with the highest accumulated score and all nodes whose own
+     * suspiciousness reaches the threshold are expanded, the children of all other nodes are neither ranked nor are
+     * their counters computed. Each node that is not expanded is reported as unexpanded bucket of the partial ranking.
+     *
+     * Levels ranked by a spectrum based fault localizer only compute the counters of the candidate nodes, using the
+     * involvement of the expanded subtrees only. Levels ranked by other fault localizers are ranked completely.
+     *
+     * @param spectra
+     *            the spectra to perform the fault localization on
+     * @param expand
+     *            number of nodes with the highest accumulated score to expand on each level
+     * @param threshold
+     *            nodes whose own suspiciousness is at least this threshold are expanded as well, use
+     *            {@link Double#POSITIVE_INFINITY} to only expand the top N nodes
+     * @return ranking of the bottom level nodes of all expanded subtrees
+     */
+    public PartialRanking<?> localize(final HierarchicalSpectra<P, C> spectra, final int expand,
+            final double threshold) {
+        if (expand < 0) {
+            throw new IllegalArgumentException(String.format("Cannot expand %d nodes per level.", expand));
+        }
+        final List<ISpectra<?>> levels = this.levels(spectra);
+
+        // all levels share the trace order of the top level
+        final List<ITrace<P>> traces = spectra.getTraces();
+        final BitSet successful = new BitSet(traces.size());
+        for (int t = 0; t < traces.size(); t++) {
+            successful.set(t, traces.get(t).isSuccessful());
+        }
+
+        final PartialRanking<?> ranking = new PartialRanking<>();
+        List<INode<?>> candidates = new ArrayList<>(spectra.getNodes());
+        double[] pathScores = new double[candidates.size()];
+        for (int level = 0; level < levels.size(); level++) {
+            final double[] own = this.suspiciousness(level, levels.get(level), candidates, successful);
+            final double[] scores = new double[own.length];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = pathScores[i] + own[i];
+            }
+            if (level == levels.size() - 1) {
+                for (int i = 0; i < scores.length; i++) {
+                    this.rank(ranking, candidates.get(i), scores[i]);
+                }
+                break;
+            }
+
+            // expand the top N candidates and all candidates reaching the threshold
+            final Integer[] order = new Integer[scores.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+            final boolean[] expanded = new boolean[scores.length];
+            for (int position = 0; position < order.length; position++) {
+                expanded[order[position]] = position < expand || own[order[position]] >= threshold;
+            }
+
+            // collect the children of all expanded candidates in child index order
+            final HierarchicalSpectra<?, ?> parents = (HierarchicalSpectra<?, ?>) levels.get(level);
+            final Map<INode<?>, Double> children = new HashMap<>();
+            for (int i = 0; i < scores.length; i++) {
+                if (!expanded[i]) {
+                    ranking.addUnexpanded(candidates.get(i), level, scores[i]);
+                    continue;
+                }
+                for (final INode<?> child : this.getChildrenof(parents, candidates.get(i))) {
+                    children.merge(child, scores[i], Math::max);
+                }
+            }
+            final Map<INode<?>, Integer> childIndices = new HashMap<>();
+            for (final INode<?> child : levels.get(level + 1).getNodes()) {
+                childIndices.put(child, childIndices.size());
+            }
+            candidates = new ArrayList<>(children.keySet());
+            candidates.sort((a, b) -> Integer.compare(childIndices.get(a), childIndices.get(b)));
+            pathScores = new double[candidates.size()];
+            for (int i = 0; i < pathScores.length; i++) {
+                pathScores[i] = children.get(candidates.get(i));
+            }
+        }
+        return ranking;
+    }
+
+    /**
+     * Returns all levels of the given hierarchical spectra from top to bottom.
+     *
+     * @param spectra
+     *            the top level spectra
+     * @return all levels
+     */
+    private List<ISpectra<?>> levels(final HierarchicalSpectra<P, C> spectra) {
+        final List<ISpectra<?>> levels = new ArrayList<>();
         ISpectra<?> cur = spectra;
-        final List<Ranking<?>> levelRankings = new ArrayList<>();
         while (cur != null) {
-            System.out.println(String.format("Lvl: %d, Hash: %d", level, cur.hashCode()));
-
-            // try to create ranking of parent and child levels
-            Ranking<?> curRanking;
-            try {
-                curRanking = this.localize(this.levelLocalizers.get(level), cur);
-                levelRankings.add(curRanking);
-            } catch (final IndexOutOfBoundsException e) {
+            if (levels.size() >= this.levelLocalizers.size()) {
                 throw new RuntimeException(String.format(
-                        "No fault localizer set for level %d of hierarchical spectra.", level), e);
+                        "No fault localizer set for level %d of hierarchical spectra.", levels.size()));
             }
+            levels.add(cur);
+            cur = cur instanceof HierarchicalSpectra ? ((HierarchicalSpectra<?, ?>) cur).getChildSpectra() : null;
+        }
+        return levels;
+    }
 
-            // go hierarchical
-            if (cur instanceof HierarchicalSpectra) {
-                cur = ((HierarchicalSpectra<?, ?>) cur).getChildSpectra();
-            } else {
-                cur = null;
+    /**
+     * Computes the suspiciousness of the given nodes of a single level.
+     *
+     * Spectrum based fault localizers only compute the counters of the given nodes, other fault localizers rank the
+     * whole level.
+     *
+     * @param level
+     *            the level the nodes belong to
+     * @param spectra
+     *            the spectra of the level
+     * @param nodes
+     *            the nodes to compute the suspiciousness of
+     * @param successful
+     *            bit t is set if trace t is successful
+     * @return suspiciousness of each node
+     */
+    private double[] suspiciousness(final int level, final ISpectra<?> spectra, final List<INode<?>> nodes,
+            final BitSet successful) {
+        final IFaultLocalizer<?> localizer = this.levelLocalizers.get(level);
+        if (!(localizer instanceof AbstractSpectrumBasedFaultLocalizer)) {
+            return this.suspiciousness(this.localize(localizer, spectra), nodes);
+        }
+
+        final int[] ef = new int[nodes.size()];
+        final int[] ep = new int[nodes.size()];
+        final int[] nf = new int[nodes.size()];
+        final int[] np = new int[nodes.size()];
+        if (spectra instanceof HierarchicalSpectra) {
+            final int successfulTraces = successful.cardinality();
+            final int failingTraces = spectra.getTraces().size() - successfulTraces;
+            final BitSet[] involvement = this.getInvolvement((HierarchicalSpectra<?, ?>) spectra, nodes);
+            for (int i = 0; i < involvement.length; i++) {
+                final int involved = involvement[i].cardinality();
+                involvement[i].and(successful);
+                ep[i] = involvement[i].cardinality();
+                ef[i] = involved - ep[i];
+                nf[i] = failingTraces - ef[i];
+                np[i] = successfulTraces - ep[i];
+            }
+        } else {
+            for (int i = 0; i < ef.length; i++) {
+                final INode<?> node = nodes.get(i);
+                ef[i] = node.getIF();
+                ep[i] = node.getIS();
+                nf[i] = node.getNF();
+                np[i] = node.getNS();
             }
-            level++;
         }
 
-        // create ranking
-        final Ranking<?> ranking = new Ranking<>();
-        this.addRecursive(ranking, spectra, new HashSet<INode<?>>(spectra.getNodes()), levelRankings, 0.0d);
-        return ranking;
+        final double[] suspiciousness = new double[nodes.size()];
+        ((AbstractSpectrumBasedFaultLocalizer<?>) localizer).suspiciousness(ef, ep, nf, np, suspiciousness);
+        for (int i = 0; i < suspiciousness.length; i++) {
+            // rankings treat undefined suspiciousness as lowest possible suspiciousness
+            if (Double.isNaN(suspiciousness[i])) {
+                suspiciousness[i] = Double.NEGATIVE_INFINITY;
+            }
+        }
+        return suspiciousness;
+    }
+
+    /**
+     * Returns the suspiciousness of each given node.
+     *
+     * @param ranking
+     *            the ranking of the level the nodes belong to
+     * @param nodes
+     *            the nodes of the level
+     * @return suspiciousness of each node
+     */
+    private double[] suspiciousness(final Ranking<?> ranking, final List<INode<?>> nodes) {
+        final double[] suspiciousness = new double[nodes.size()];
+        for (int i = 0; i < suspiciousness.length; i++) {
+            suspiciousness[i] = this.getSuspiciousness(ranking, nodes.get(i));
+        }
+        return suspiciousness;
+    }
+
+    /**
+     * Creates the parent indices of each child node in compressed form: the parents of child i are stored at the
+     * positions [start[i], start[i + 1]) of the parent array, in ascending order.
+     *
+     * @param spectra
+     *            the hierarchical spectra holding the parent nodes
+     * @param parentNodes
+     *            the parent nodes in index order
+     * @param childNodes
+     *            the child nodes in index order
+     * @return the start array at position 0 and the parent array at position 1
+     */
+    private int[][] parentIndices(final HierarchicalSpectra<?, ?> spectra, final List<INode<?>> parentNodes,
+            final List<INode<?>> childNodes) {
+        final Map<INode<?>, Integer> childIndices = new HashMap<>();
+        for (int i = 0; i < childNodes.size(); i++) {
+            childIndices.put(childNodes.get(i), i);
+        }
+
+        // count the parents of each child and convert the counts to start positions
+        final int[][] children = new int[parentNodes.size()][];
+        final int[] start = new int[childNodes.size() + 1];
+        for (int p = 0; p < parentNodes.size(); p++) {
+            int c = 0;
+            children[p] = new int[this.getChildrenof(spectra, parentNodes.get(p)).size()];
+            for (final INode<?> child : this.getChildrenof(spectra, parentNodes.get(p))) {
+                children[p][c] = childIndices.get(child);
+                start[children[p][c++] + 1]++;
+            }
+        }
+        for (int i = 0; i < childNodes.size(); i++) {
+            start[i + 1] += start[i];
+        }
+
+        final int[] parents = new int[start[childNodes.size()]];
+        final int[] fill = start.clone();
+        for (int p = 0; p < parentNodes.size(); p++) {
+            for (final int child : children[p]) {
+                parents[fill[child]++] = p;
+            }
+        }
+        return new int[][] { start, parents };
+    }
+
+    /**
+     * Adds the highest accumulated score of the reached parents to the suspiciousness of a range of child nodes.
+     */
+    private static final class Propagation extends RecursiveAction {
+
+        /** serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+        /** Accumulated score of each parent node */
+        private final double[] parentScores;
+        /** True for each parent node reachable from the top level */
+        private final boolean[] parentReached;
+        /** Start position of the parents of each child in the parent array */
+        private final int[] start;
+        /** Parent indices of all children */
+        private final int[] parents;
+        /** Suspiciousness of each child node, replaced by the accumulated score */
+        private final double[] scores;
+        /** Set to true for each child node reachable from the top level */
+        private final boolean[] reached;
+        /** First child index of this task */
+        private final int from;
+        /** Child index after the last child index of this task */
+        private final int to;
+
+        /**
+         * Creates a propagation task.
+         *
+         * @param parentScores
+         *            accumulated score of each parent node
+         * @param parentReached
+         *            true for each parent node reachable from the top level
+         * @param start
+         *            start position of the parents of each child in the parent array
+         * @param parents
+         *            parent indices of all children
+         * @param scores
+         *            suspiciousness of each child node, replaced by the accumulated score
+         * @param reached
+         *            set to true for each child node reachable from the top level
+         * @param from
+         *            first child index
+         * @param to
+         *            child index after the last child index
+         */
+        private Propagation(final double[] parentScores, final boolean[] parentReached, final int[] start, // NOCS
+                final int[] parents, final double[] scores, final boolean[] reached, final int from, final int to) {
+            super();
+            this.parentScores = parentScores;
+            this.parentReached = parentReached;
+            this.start = start;
+            this.parents = parents;
+            this.scores = scores;
+            this.reached = reached;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > PROPAGATION_THRESHOLD) {
+                final int middle = (this.from + this.to) >>> 1;
+                invokeAll(new Propagation(this.parentScores, this.parentReached, this.start, this.parents,
+                        this.scores, this.reached, this.from, middle), new Propagation(this.parentScores,
+                        this.parentReached, this.start, this.parents, this.scores, this.reached, middle, this.to));
+                return;
+            }
+            for (int c = this.from; c < this.to; c++) {
+                double best = Double.NEGATIVE_INFINITY;
+                for (int i = this.start[c]; i < this.start[c + 1]; i++) {
+                    final int parent = this.parents[i];
+                    if (this.parentReached[parent] && (!this.reached[c] || this.parentScores[parent] > best)) {
+                        best = this.parentScores[parent];
+                        this.reached[c] = true;
+                    }
+                }
+                if (this.reached[c]) {
+                    this.scores[c] += best;
+                }
+            }
+        }
+    }
+
+    private <L> BitSet[] getInvolvement(final HierarchicalSpectra<L, ?> spectra, final List<INode<?>> nodes) {
+        final List<INode<L>> real = new ArrayList<>(nodes.size());
+        for (final INode<?> node : nodes) {
+            @SuppressWarnings("unchecked")
+            final INode<L> realNode = (INode<L>) node;
+            real.add(realNode);
+        }
+        return spectra.getInvolvement(real);
     }
 
     private <L> double getSuspiciousness(final Ranking<L> ranking, final INode<?> node) {
@@ -82,7 +464,8 @@ public class LevelLocalizer<P, C> implements IHierarchicalFaultLocalizer<P, C> {
         return ranking.getSuspiciousness(real);
     }
 
-    private <L, M> Set<INode<M>> getChildrenof(final HierarchicalSpectra<L, M> children, final INode<?> node) {
+    private <L, M> Set<INode<M>> getChildrenof(final HierarchicalSpectra<L, M> children,
+            final INode<?> node) {
         @SuppressWarnings("unchecked")
         final INode<L> real = (INode<L>) node;
         return children.getChildrenOf(real);
@@ -94,24 +477,6 @@ public class LevelLocalizer<P, C> implements IHierarchicalFaultLocalizer<P, C> {
         ranking.rank(real, suspiciousness);
     }
 
-    private void addRecursive(final Ranking<?> finalRanking, final ISpectra<?> spectra, final Set<INode<?>> curNodes,
-            final List<Ranking<?>> rankings, final double score) {
-        if (spectra instanceof HierarchicalSpectra) {
-            // recurse branch - apply this for all children
-            final HierarchicalSpectra<?, ?> hSpectra = (HierarchicalSpectra<?, ?>) spectra;
-            for (final INode<?> curNode : curNodes) {
-                this.addRecursive(finalRanking, hSpectra.getChildSpectra(),
-                        new HashSet<INode<?>>(this.getChildrenof(hSpectra, curNode)),
-                        rankings.subList(1, rankings.size()), score + this.getSuspiciousness(rankings.get(0), curNode));
-            }
-        } else {
-            // abort branch - add all nodes with score added to their suspiciousness
-            for (final INode<?> node : curNodes) {
-                this.rank(finalRanking, node, score + this.getSuspiciousness(rankings.get(0), node));
-            }
-        }
-    }
-
     /**
      * Hope that given fault localizer of level matches with generic type of level spectra.
      *
@@ -0,0 +1,129 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.hierarchical;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fk.stardust.localizer.Ranking;
+import fk.stardust.traces.INode;
+
+/**
+ * Ranking of a hierarchical drill-down that only ranks the bottom level nodes of the expanded subtrees.
+ *
+ * Each subtree that was not expanded is reported as an unexpanded bucket, standing for all bottom level nodes below
+ * its root node. The buckets are ordered by descending suspiciousness.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
+public class PartialRanking<T> extends Ranking<T> {
+
+    /** Holds all unexpanded buckets in the order they were added */
+    private final List<UnexpandedBucket> unexpanded = new ArrayList<>();
+
+    /**
+     * Create a new partial ranking.
+     */
+    public PartialRanking() {
+        super();
+    }
+
+    /**
+     * Adds a subtree that was not expanded.
+     *
+     * @param node
+     *            root node of the subtree
+     * @param level
+     *            hierarchy level of the root node, 0 is the top level
+     * @param suspiciousness
+     *            accumulated suspiciousness of the root node
+     */
+    void addUnexpanded(final INode<?> node, final int level, final double suspiciousness) {
+        this.unexpanded.add(new UnexpandedBucket(node, level, suspiciousness));
+    }
+
+    /**
+     * Returns all subtrees that were not expanded, ordered by descending suspiciousness. Buckets with the same
+     * suspiciousness keep the order they were found in.
+     *
+     * @return unexpanded buckets
+     */
+    public List<UnexpandedBucket> getUnexpanded() {
+        final List<UnexpandedBucket> sorted = new ArrayList<>(this.unexpanded);
+        sorted.sort((a, b) -> Double.compare(b.suspiciousness, a.suspiciousness));
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * A subtree of the hierarchy that was not expanded.
+     */
+    public static final class UnexpandedBucket {
+
+        /** Root node of the subtree */
+        private final INode<?> node;
+
+        /** Hierarchy level of the root node */
+        private final int level;
+
+        /** Accumulated suspiciousness of the root node */
+        private final double suspiciousness;
+
+        /**
+         * Create an unexpanded bucket.
+         *
+         * @param node
+         *            root node of the subtree
+         * @param level
+         *            hierarchy level of the root node
+         * @param suspiciousness
+         *            accumulated suspiciousness of the root node
+         */
+        private UnexpandedBucket(final INode<?> node, final int level, final double suspiciousness) {
+            this.node = node;
+            this.level = level;
+            this.suspiciousness = suspiciousness;
+        }
+
+        /**
+         * Returns the root node of the subtree.
+         *
+         * @return node
+         */
+        public INode<?> getNode() {
+            return this.node;
+        }
+
+        /**
+         * Returns the hierarchy level of the root node, 0 is the top level.
+         *
+         * @return level
+         */
+        public int getLevel() {
+            return this.level;
+        }
+
+        /**
+         * Returns the accumulated suspiciousness of the root node.
+         *
+         * @return suspiciousness
+         */
+        public double getSuspiciousness() {
+            return this.suspiciousness;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("UnexpandedBucket[node=%s, level=%d, suspiciousness=%f]", this.node, this.level,
+                    this.suspiciousness);
+        }
+    }
+}
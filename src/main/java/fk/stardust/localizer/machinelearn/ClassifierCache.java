@@ -0,0 +1,242 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.machinelearn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+
+/**
+ * Caches trained classifiers by a fingerprint of the training data and the classifier configuration.
+ *
+ * The key of a model is a SHA-256 hash over the classifier name, its options and the content of the training set,
+ * i.e. the node identifiers, the involved nodes and the success of each trace. Repeated experiments on unchanged
+ * spectra thus reuse the trained model instead of training it again. The most recently used models are kept in memory,
+ * if a directory is given all models are additionally serialized to disk and survive the process.
+ *
+ * Cached classifiers are shared and must not be used concurrently without copying them first.
+ */
+public class ClassifierCache {
+
+    /** File extension of serialized models */
+    private static final String MODEL_EXTENSION = ".model";
+
+    /** Holds the most recently used models in access order */
+    private final Map<String, Classifier> models;
+
+    /** Directory holding the serialized models, null if models are only cached in memory */
+    private final File directory;
+
+    /**
+     * Create a classifier cache holding models in memory only.
+     *
+     * @param capacity
+     *            maximum number of models kept in memory
+     */
+    public ClassifierCache(final int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Create a classifier cache.
+     *
+     * @param capacity
+     *            maximum number of models kept in memory
+     * @param directory
+     *            directory to store the serialized models in, or null to cache models in memory only
+     */
+    public ClassifierCache(final int capacity, final File directory) {
+        super();
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Cannot cache %d models.", capacity));
+        }
+        this.models = new LinkedHashMap<String, Classifier>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Classifier> eldest) {
+                return this.size() > capacity;
+            }
+        };
+        this.directory = directory;
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new UncheckedIOException(new IOException(String.format("Cannot create model directory %s.",
+                    directory)));
+        }
+    }
+
+    /**
+     * Computes the cache key of a classifier trained on the given training set.
+     *
+     * @param name
+     *            FQCN of the classifier
+     * @param options
+     *            options passed to the classifier
+     * @param trainingSet
+     *            the training set
+     * @return hex encoded fingerprint
+     */
+    public static String key(final String name, final String[] options, final Instances trainingSet) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        update(digest, name);
+        update(digest, options.length);
+        for (final String option : options) {
+            update(digest, option);
+        }
+        update(digest, trainingSet.numAttributes());
+        for (int i = 0; i < trainingSet.numAttributes(); i++) {
+            update(digest, trainingSet.attribute(i).name());
+        }
+        for (int t = 0; t < trainingSet.numInstances(); t++) {
+            // each trace starts with a separator, only values differing from 0 are hashed, such that sparse and dense
+            // instances of a trace have the same fingerprint
+            final Instance instance = trainingSet.instance(t);
+            update(digest, -1);
+            for (int v = 0; v < instance.numValues(); v++) {
+                final double value = instance.valueSparse(v);
+                if (value != 0) {
+                    update(digest, instance.index(v));
+                    final long bits = Double.doubleToLongBits(value);
+                    update(digest, (int) (bits >>> 32));
+                    update(digest, (int) bits);
+                }
+            }
+        }
+        final StringBuilder hex = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Adds a string terminated by a separator to the digest.
+     *
+     * @param digest
+     *            the digest to update
+     * @param value
+     *            the string to add
+     */
+    private static void update(final MessageDigest digest, final String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Adds an integer to the digest.
+     *
+     * @param digest
+     *            the digest to update
+     * @param value
+     *            the integer to add
+     */
+    private static void update(final MessageDigest digest, final int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+    /**
+     * Returns the model cached for the given key.
+     *
+     * Models not found in memory are loaded from disk. Unreadable model files are treated as missing.
+     *
+     * @param key
+     *            the key computed by {@link #key(String, String[], Instances)}
+     * @return cached model or null if no model is cached
+     */
+    public Classifier get(final String key) {
+        synchronized (this.models) {
+            final Classifier model = this.models.get(key);
+            if (model != null) {
+                return model;
+            }
+        }
+        if (this.directory == null) {
+            return null;
+        }
+        final File file = new File(this.directory, key + MODEL_EXTENSION);
+        if (!file.isFile()) {
+            return null;
+        }
+        final Classifier model;
+        try {
+            model = (Classifier) SerializationHelper.read(file.getAbsolutePath());
+        } catch (final Exception e) { // NOCS: Weka throws only raw exceptions
+            return null;
+        }
+        synchronized (this.models) {
+            this.models.put(key, model);
+        }
+        return model;
+    }
+
+    /**
+     * Caches a trained model.
+     *
+     * @param key
+     *            the key computed by {@link #key(String, String[], Instances)}
+     * @param model
+     *            the trained model
+     */
+    public void put(final String key, final Classifier model) {
+        synchronized (this.models) {
+            this.models.put(key, model);
+        }
+        if (this.directory == null) {
+            return;
+        }
+        final File file = new File(this.directory, key + MODEL_EXTENSION);
+        try {
+            // write to a temporary file first, such that concurrent readers never see a partial model
+            final File temp = File.createTempFile(key, MODEL_EXTENSION, this.directory);
+            try {
+                SerializationHelper.write(temp.getAbsolutePath(), model);
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final Exception e) { // NOCS: Weka throws only raw exceptions
+            throw new RuntimeException(String.format("Cannot serialize model to %s.", file), e);
+        }
+    }
+
+    /**
+     * Returns the number of models held in memory.
+     *
+     * @return model count
+     */
+    public int size() {
+        synchronized (this.models) {
+            return this.models.size();
+        }
+    }
+}
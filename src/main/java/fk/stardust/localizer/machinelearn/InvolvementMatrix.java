@@ -0,0 +1,158 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.machinelearn;
+
+import java.util.Arrays;
+import java.util.List;
+
+import fk.stardust.traces.BitsetSpectra;
+import fk.stardust.traces.BitsetTrace;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+import fk.stardust.traces.ITrace;
+
+/**
+ * Sparse involvement matrix of a spectra used as training data.
+ *
+ * Each row holds the ascending positions of the nodes involved in a trace, positions refer to the node list the matrix
+ * was created for.
+ */
+final class InvolvementMatrix {
+
+    /** Holds the positions of the involved nodes of each trace */
+    private final int[][] rows;
+
+    /** Holds whether each trace failed */
+    private final boolean[] failing;
+
+    /** Number of nodes, i.e. columns of the matrix */
+    private final int nodeCount;
+
+    /** Number of failing traces */
+    private final int failingCount;
+
+    /**
+     * Creates the involvement matrix of a spectra.
+     *
+     * @param spectra
+     *            the spectra to create the matrix of
+     * @param nodes
+     *            the nodes of the spectra, defining the node positions
+     * @param <T>
+     *            type used to identify nodes in the system
+     */
+    <T> InvolvementMatrix(final ISpectra<T> spectra, final List<INode<T>> nodes) {
+        super();
+        final List<ITrace<T>> traces = spectra.getTraces();
+        this.nodeCount = nodes.size();
+        this.rows = new int[traces.size()][];
+        this.failing = new boolean[traces.size()];
+        int failingTraces = 0;
+        final int[] buffer = new int[this.nodeCount];
+        for (int t = 0; t < this.rows.length; t++) {
+            final ITrace<T> trace = traces.get(t);
+            int involved = 0;
+            if (trace instanceof BitsetTrace && trace.getSpectra() instanceof BitsetSpectra
+                    && ((BitsetSpectra<T>) trace.getSpectra()).getNodeCount() == this.nodeCount) {
+                // the node list of a bitset spectra is ordered by node index
+                final BitsetTrace<T> bitsetTrace = (BitsetTrace<T>) trace;
+                for (int i = bitsetTrace.nextInvolved(0); i >= 0; i = bitsetTrace.nextInvolved(i + 1)) {
+                    buffer[involved++] = i;
+                }
+            } else {
+                for (int i = 0; i < this.nodeCount; i++) {
+                    if (trace.isInvolved(nodes.get(i))) {
+                        buffer[involved++] = i;
+                    }
+                }
+            }
+            this.rows[t] = Arrays.copyOf(buffer, involved);
+            this.failing[t] = !trace.isSuccessful();
+            if (this.failing[t]) {
+                failingTraces++;
+            }
+        }
+        this.failingCount = failingTraces;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return node count
+     */
+    int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * Returns the number of traces.
+     *
+     * @return trace count
+     */
+    int getTraceCount() {
+        return this.rows.length;
+    }
+
+    /**
+     * Returns the number of failing traces.
+     *
+     * @return failing trace count
+     */
+    int getFailingCount() {
+        return this.failingCount;
+    }
+
+    /**
+     * Returns the positions of the nodes involved in a trace.
+     *
+     * @param trace
+     *            the trace index
+     * @return ascending node positions, must not be modified
+     */
+    int[] getRow(final int trace) {
+        return this.rows[trace];
+    }
+
+    /**
+     * Returns whether a trace failed.
+     *
+     * @param trace
+     *            the trace index
+     * @return true if the trace failed
+     */
+    boolean isFailing(final int trace) {
+        return this.failing[trace];
+    }
+
+    /**
+     * Computes the transposed matrix, i.e. the traces each node is involved in.
+     *
+     * @return ascending trace indices of each node
+     */
+    int[][] columns() {
+        final int[] lengths = new int[this.nodeCount];
+        for (final int[] row : this.rows) {
+            for (final int node : row) {
+                lengths[node]++;
+            }
+        }
+        final int[][] columns = new int[this.nodeCount][];
+        for (int i = 0; i < this.nodeCount; i++) {
+            columns[i] = new int[lengths[i]];
+            lengths[i] = 0;
+        }
+        for (int t = 0; t < this.rows.length; t++) {
+            for (final int node : this.rows[t]) {
+                columns[node][lengths[node]++] = t;
+            }
+        }
+        return columns;
+    }
+}
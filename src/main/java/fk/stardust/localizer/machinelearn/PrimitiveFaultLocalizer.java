@@ -0,0 +1,328 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.machinelearn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import fk.stardust.localizer.IFaultLocalizer;
+import fk.stardust.localizer.Ranking;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+
+/**
+ * Machine learning based fault localization approach training the model directly on the involvement matrix.
+ *
+ * The ranking semantics equal the ones of {@link WekaFaultLocalizer}: a model predicting the failure of a trace from
+ * the involvement of all nodes is trained, and the suspiciousness of a node is the predicted probability of failure of
+ * a trace involving only this node. In contrast to Weka, no instances or nominal attributes are created, the model is
+ * trained on primitive arrays using the sparse rows of the involvement matrix.
+ *
+ * Naive Bayes equals the Weka NaiveBayes classifier with nominal attributes and Laplace estimators, it is computed in
+ * closed form from the involvement counters. Logistic regression is trained by accelerated gradient descent on the
+ * mean log loss with an L2 penalty on the node weights. All sums are computed in a fixed order, such that the result
+ * does not depend on the thread count.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
+public class PrimitiveFaultLocalizer<T> implements IFaultLocalizer<T> {
+
+    /** Default L2 penalty of the logistic regression */
+    public static final double DEFAULT_RIDGE = 1e-4;
+    /** Default maximum number of gradient descent iterations of the logistic regression */
+    public static final int DEFAULT_MAX_ITERATIONS = 2000;
+    /** Gradient descent stops once no gradient component exceeds this tolerance */
+    private static final double TOLERANCE = 1e-8;
+
+    /**
+     * Enum representing all available models.
+     */
+    public enum Model {
+        NAIVE_BAYES, LOGISTIC_REGRESSION
+    }
+
+    /** The model to train */
+    private final Model model;
+    /** Number of threads used to train the model and score the nodes */
+    private final int threads;
+    /** L2 penalty of the logistic regression */
+    private final double ridge;
+    /** Maximum number of gradient descent iterations of the logistic regression */
+    private final int maxIterations;
+
+    /**
+     * Create a primitive fault localizer using one thread per available processor and the default logistic regression
+     * parameters.
+     *
+     * @param model
+     *            the model to train
+     */
+    public PrimitiveFaultLocalizer(final Model model) {
+        this(model, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a primitive fault localizer using the default logistic regression parameters.
+     *
+     * @param model
+     *            the model to train
+     * @param threads
+     *            number of threads used to train the model and score the nodes
+     */
+    public PrimitiveFaultLocalizer(final Model model, final int threads) {
+        this(model, threads, DEFAULT_RIDGE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Create a primitive fault localizer.
+     *
+     * @param model
+     *            the model to train
+     * @param threads
+     *            number of threads used to train the model and score the nodes
+     * @param ridge
+     *            L2 penalty of the logistic regression
+     * @param maxIterations
+     *            maximum number of gradient descent iterations of the logistic regression
+     */
+    public PrimitiveFaultLocalizer(final Model model, final int threads, final double ridge,
+            final int maxIterations) {
+        super();
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Cannot localize using %d threads.", threads));
+        }
+        if (ridge < 0 || maxIterations < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid logistic regression parameters: ridge %f, %d iterations.", ridge, maxIterations));
+        }
+        this.model = model;
+        this.threads = threads;
+        this.ridge = ridge;
+        this.maxIterations = maxIterations;
+    }
+
+    @Override
+    public String getName() {
+        switch (this.model) {
+        case NAIVE_BAYES:
+            return "primitive-NaiveBayes";
+        case LOGISTIC_REGRESSION:
+            return "primitive-Logistic";
+        default:
+            throw new RuntimeException("Not yet implemented");
+        }
+    }
+
+    @Override
+    public Ranking<T> localize(final ISpectra<T> spectra) {
+        final List<INode<T>> nodes = new ArrayList<>(spectra.getNodes());
+        final InvolvementMatrix matrix = new InvolvementMatrix(spectra, nodes);
+
+        final ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            final double[] suspiciousness;
+            switch (this.model) {
+            case NAIVE_BAYES:
+                suspiciousness = this.naiveBayes(pool, matrix);
+                break;
+            case LOGISTIC_REGRESSION:
+                suspiciousness = this.logisticRegression(pool, matrix);
+                break;
+            default:
+                throw new RuntimeException("Not yet implemented");
+            }
+            final Ranking<T> ranking = new Ranking<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                ranking.rank(nodes.get(i), suspiciousness[i]);
+            }
+            return ranking;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Computes the probability of failure of each node using naive Bayes.
+     *
+     * All nodes except the probed one are not involved, thus the log likelihood of each class is the sum over all
+     * nodes of not being involved, corrected by the probed node being involved. All probabilities are Laplace
+     * estimates.
+     *
+     * @param pool
+     *            the pool to compute in
+     * @param matrix
+     *            the involvement matrix
+     * @return probability of failure of each node
+     */
+    private double[] naiveBayes(final ForkJoinPool pool, final InvolvementMatrix matrix) {
+        final int nodeCount = matrix.getNodeCount();
+        final int traces = matrix.getTraceCount();
+        final int failing = matrix.getFailingCount();
+        final int successful = traces - failing;
+
+        // count the involvement of each node in failing and successful traces
+        final int[][] columns = matrix.columns();
+        final int[] ef = new int[nodeCount];
+        final int[] es = new int[nodeCount];
+        this.forEach(pool, nodeCount, i -> {
+            for (final int t : columns[i]) {
+                if (matrix.isFailing(t)) {
+                    ef[i]++;
+                }
+            }
+            es[i] = columns[i].length - ef[i];
+        });
+
+        // log likelihood of each class with no node being involved
+        double notInvolvedFailing = Math.log((failing + 1.0d) / (traces + 2.0d));
+        double notInvolvedSuccessful = Math.log((successful + 1.0d) / (traces + 2.0d));
+        final double failingTotal = failing + 2.0d;
+        final double successfulTotal = successful + 2.0d;
+        for (int i = 0; i < nodeCount; i++) {
+            notInvolvedFailing += Math.log((failing - ef[i] + 1.0d) / failingTotal);
+            notInvolvedSuccessful += Math.log((successful - es[i] + 1.0d) / successfulTotal);
+        }
+        final double baseFailing = notInvolvedFailing;
+        final double baseSuccessful = notInvolvedSuccessful;
+
+        final double[] suspiciousness = new double[nodeCount];
+        this.forEach(pool, nodeCount, i -> {
+            final double logFailing = baseFailing + Math.log((ef[i] + 1.0d) / (failing - ef[i] + 1.0d));
+            final double logSuccessful = baseSuccessful + Math.log((es[i] + 1.0d) / (successful - es[i] + 1.0d));
+            suspiciousness[i] = sigmoid(logFailing - logSuccessful);
+        });
+        return suspiciousness;
+    }
+
+    /**
+     * Computes the probability of failure of each node using L2 regularized logistic regression.
+     *
+     * The residuals of an iteration are computed in parallel over the traces, the gradient in parallel over the nodes
+     * using the transposed matrix. Each value is thus summed up in a fixed order by a single thread.
+     *
+     * @param pool
+     *            the pool to compute in
+     * @param matrix
+     *            the involvement matrix
+     * @return probability of failure of each node
+     */
+    private double[] logisticRegression(final ForkJoinPool pool, final InvolvementMatrix matrix) {
+        final int nodeCount = matrix.getNodeCount();
+        final int traces = matrix.getTraceCount();
+        final double[] suspiciousness = new double[nodeCount];
+        if (traces == 0) {
+            Arrays.fill(suspiciousness, 0.5d);
+            return suspiciousness;
+        }
+        final int[][] columns = matrix.columns();
+
+        // the gradient is Lipschitz continuous with a constant bounded by the largest row of the matrix
+        int maxInvolved = 0;
+        for (int t = 0; t < traces; t++) {
+            maxInvolved = Math.max(maxInvolved, matrix.getRow(t).length);
+        }
+        final double step = 1.0d / (0.25d * (maxInvolved + 1) + this.ridge);
+
+        // weights of the nodes, the bias is kept separately
+        double[] weights = new double[nodeCount];
+        double[] previous = weights;
+        double bias = 0;
+        double previousBias = 0;
+        final double[] lookahead = new double[nodeCount];
+        final double[] residuals = new double[traces];
+        for (int iteration = 1; iteration <= this.maxIterations; iteration++) {
+            // Nesterov momentum
+            final double momentum = (iteration - 1.0d) / (iteration + 2.0d);
+            final double[] current = weights;
+            final double[] last = previous;
+            this.forEach(pool, nodeCount, i -> lookahead[i] = current[i] + momentum * (current[i] - last[i]));
+            final double lookaheadBias = bias + momentum * (bias - previousBias);
+
+            // residual of each trace
+            this.forEach(pool, traces, t -> {
+                double z = lookaheadBias;
+                for (final int node : matrix.getRow(t)) {
+                    z += lookahead[node];
+                }
+                residuals[t] = sigmoid(z) - (matrix.isFailing(t) ? 1.0d : 0.0d);
+            });
+
+            // gradient step on the mean log loss
+            final double[] next = new double[nodeCount];
+            final double[] maxGradient = new double[nodeCount];
+            this.forEach(pool, nodeCount, i -> {
+                double sum = 0;
+                for (final int t : columns[i]) {
+                    sum += residuals[t];
+                }
+                final double gradient = sum / traces + this.ridge * lookahead[i];
+                maxGradient[i] = Math.abs(gradient);
+                next[i] = lookahead[i] - step * gradient;
+            });
+            double biasSum = 0;
+            for (final double residual : residuals) {
+                biasSum += residual;
+            }
+            final double biasGradient = biasSum / traces;
+
+            previous = weights;
+            weights = next;
+            previousBias = bias;
+            bias = lookaheadBias - step * biasGradient;
+
+            double max = Math.abs(biasGradient);
+            for (final double gradient : maxGradient) {
+                max = Math.max(max, gradient);
+            }
+            if (max < TOLERANCE) {
+                break;
+            }
+        }
+
+        final double[] model = weights;
+        final double modelBias = bias;
+        this.forEach(pool, nodeCount, i -> suspiciousness[i] = sigmoid(modelBias + model[i]));
+        return suspiciousness;
+    }
+
+    /**
+     * Applies an action to all indices in parallel.
+     *
+     * @param pool
+     *            the pool to compute in
+     * @param length
+     *            number of indices
+     * @param action
+     *            the action to apply to each index
+     */
+    private void forEach(final ForkJoinPool pool, final int length, final IntConsumer action) {
+        pool.submit(() -> IntStream.range(0, length).parallel().forEach(action)).join();
+    }
+
+    /**
+     * Computes the logistic function in a numerically stable way.
+     *
+     * @param z
+     *            the log odds
+     * @return probability
+     */
+    private static double sigmoid(final double z) {
+        if (z >= 0) {
+            return 1.0d / (1.0d + Math.exp(-z));
+        }
+        final double e = Math.exp(z);
+        return e / (1.0d + e);
+    }
+}
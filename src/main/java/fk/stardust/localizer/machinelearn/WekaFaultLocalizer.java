@@ -11,36 +11,57 @@ package fk.stardust.localizer.machinelearn;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.core.Attribute;
+import weka.core.BatchPredictor;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 import fk.stardust.localizer.IFaultLocalizer;
 import fk.stardust.localizer.Ranking;
 import fk.stardust.traces.INode;
 import fk.stardust.traces.ISpectra;
-import fk.stardust.traces.ITrace;
 
 /**
  * Machine learning based fault localization approach using Weka as ML backend.
  *
  * ML algorithms can be configured.
  *
+ * Each node is a feature of the trained model. Wrap the localizer in a
+ * {@link fk.stardust.localizer.extra.ReducingFaultLocalizer} to train on a single feature per group of nodes with
+ * identical involvement.
+ *
  * @param <T>
  *            type used to identify nodes in the system
  */
 public class WekaFaultLocalizer<T> implements IFaultLocalizer<T> {
 
+    /** Index of the nominal value of a node attribute if the node is not involved */
+    private static final double NOT_INVOLVED = 0.0d;
+    /** Index of the nominal value of a node attribute if the node is involved */
+    private static final double INVOLVED = 1.0d;
+    /** Index of the nominal value of the class attribute of failing traces */
+    private static final int FAILING = 1;
+    /** Number of nodes probed at once by a single thread */
+    private static final int PROBING_BATCH_SIZE = 1000;
+
     /** classifier name */
     private final String classifierName;
     /** options for the classifier */
     private final String[] classifierOptions;
+    /** Number of threads used to probe the nodes */
+    private final int threads;
+    /** Listener notified about the probing progress, may be null */
+    private volatile ProbingListener probingListener;
+    /** Cache holding trained classifiers, may be null */
+    private volatile ClassifierCache classifierCache;
 
     /**
      * Construct Weka fault localizer
@@ -61,13 +82,51 @@ public class WekaFaultLocalizer<T> implements IFaultLocalizer<T> {
      *            options to pass to the classifier
      */
     public WekaFaultLocalizer(final String classifierName, final String[] options) {
+        this(classifierName, options, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct Weka fault localizer
+     *
+     * @param classifierName
+     *            name of the Weka classifier to use
+     * @param options
+     *            options to pass to the classifier
+     * @param threads
+     *            number of threads used to probe the nodes with the trained classifier
+     */
+    public WekaFaultLocalizer(final String classifierName, final String[] options, final int threads) {
         super();
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Cannot localize using %d threads.", threads));
+        }
         this.classifierName = classifierName;
         if (options == null) {
             this.classifierOptions = new String[0];
         } else {
             this.classifierOptions = Arrays.copyOf(options, options.length);
         }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the listener to notify about the probing progress.
+     *
+     * @param listener
+     *            the listener to notify, or null to disable notifications
+     */
+    public void setProbingListener(final ProbingListener listener) {
+        this.probingListener = listener;
+    }
+
+    /**
+     * Sets the cache to look up trained classifiers in before training a classifier.
+     *
+     * @param cache
+     *            the cache to use, or null to always train the classifier
+     */
+    public void setClassifierCache(final ClassifierCache cache) {
+        this.classifierCache = cache;
     }
 
     /**
@@ -85,82 +144,192 @@ public class WekaFaultLocalizer<T> implements IFaultLocalizer<T> {
         // == 1. Create Weka training instance
 
         final List<INode<T>> nodes = new ArrayList<>(spectra.getNodes());
+        final Instances trainingSet = this.createTrainingSet(spectra, nodes);
 
-        // nominal true/false values
-        final List<String> tf = new ArrayList<String>();
-        tf.add("t");
-        tf.add("f");
+        // == 2. use prediction to localize faults
 
-        // create an attribute for each component
-        final Map<INode<T>, Attribute> attributeMap = new HashMap<>();
-        final ArrayList<Attribute> attributeList = new ArrayList<>(); // NOCS: Weka needs ArrayList..
-        for (final INode<T> node : nodes) {
-            final Attribute attribute = new Attribute(node.toString(), tf);
-            attributeList.add(attribute);
-            attributeMap.put(node, attribute);
+        // build classifier or reuse a classifier trained on the same data
+        final ClassifierCache cache = this.classifierCache;
+        final Classifier classifier;
+        if (cache == null) {
+            classifier = this.buildClassifier(this.classifierName, this.classifierOptions, trainingSet);
+        } else {
+            final String key = ClassifierCache.key(this.classifierName, this.classifierOptions, trainingSet);
+            final Classifier cached = cache.get(key);
+            if (cached == null) {
+                classifier = this.buildClassifier(this.classifierName, this.classifierOptions, trainingSet);
+                cache.put(key, classifier);
+            } else {
+                classifier = cached;
+            }
         }
+        final double[] suspiciousness = this.probe(classifier, trainingSet, cache != null);
+        final Ranking<T> ranking = new Ranking<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ranking.rank(nodes.get(i), suspiciousness[i]);
+        }
+        return ranking;
+    }
 
-        // create class attribute (trace success)
-        final Attribute successAttribute = new Attribute("success", tf);
-        attributeList.add(successAttribute);
-
-        // create weka training instance
-        final Instances trainingSet = new Instances("TraceInfoInstances", attributeList, 1);
-        trainingSet.setClassIndex(attributeList.size() - 1);
-
-
-
-        // == 2. add traces to training set
+    /**
+     * Probes each node with the trained classifier, i.e. predicts with which probability a trace involving only this
+     * node fails.
+     *
+     * The nodes are probed in batches pulled by the worker threads. Each thread probes using its own copy of the
+     * classifier and the probing instance, as Weka classifiers are in general not thread-safe. Classifiers that
+     * implement a more efficient batch prediction are passed all probing instances of a batch at once.
+     *
+     * @param classifier
+     *            the trained classifier
+     * @param trainingSet
+     *            the training set the classifier was trained with
+     * @param shared
+     *            true if the classifier may be used by other threads, such that no thread may probe using the
+     *            classifier itself
+     * @return probability of failure of each node, indexed like the node attributes
+     */
+    private double[] probe(final Classifier classifier, final Instances trainingSet, final boolean shared) {
+        final int nodeCount = trainingSet.classIndex();
+        final double[] suspiciousness = new double[nodeCount];
+        final AtomicInteger nextBatch = new AtomicInteger();
+        final AtomicInteger probed = new AtomicInteger();
+        final long start = System.nanoTime();
 
-        // add an instance for each trace
-        for (final ITrace<T> trace : spectra.getTraces()) {
-            final Instance instance = new DenseInstance(nodes.size() + 1);
-            instance.setDataset(trainingSet);
-            for (final INode<T> node : nodes) {
-                instance.setValue(attributeMap.get(node), trace.isInvolved(node) ? "t" : "f");
+        final int batches = (nodeCount + PROBING_BATCH_SIZE - 1) / PROBING_BATCH_SIZE;
+        final int workers = Math.max(1, Math.min(this.threads, batches));
+        final ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            final List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                final boolean copy = shared || w > 0;
+                tasks.add(pool.submit(() -> {
+                    final Classifier probing = copy ? AbstractClassifier.makeCopy(classifier) : classifier;
+                    this.probe(probing, trainingSet, suspiciousness, nextBatch, probed, start);
+                    return null;
+                }));
+            }
+            for (final ForkJoinTask<Void> task : tasks) {
+                task.join();
             }
-            instance.setValue(successAttribute, trace.isSuccessful() ? "t" : "f");
-            trainingSet.add(instance);
+        } finally {
+            pool.shutdown();
         }
+        return suspiciousness;
+    }
 
-        // == 3. use prediction to localize faults
+    /**
+     * Probes batches of nodes until all nodes are probed.
+     *
+     * @param classifier
+     *            the classifier to probe with, exclusively used by the current thread
+     * @param trainingSet
+     *            the training set the classifier was trained with
+     * @param suspiciousness
+     *            receives the probability of failure of each probed node
+     * @param nextBatch
+     *            index of the next batch to probe, shared by all threads
+     * @param probed
+     *            number of probed nodes, shared by all threads
+     * @param start
+     *            start time of the probing in nanoseconds
+     * @throws Exception
+     *             in case the classifier cannot classify an instance
+     */
+    private void probe(final Classifier classifier, final Instances trainingSet, final double[] suspiciousness,
+            final AtomicInteger nextBatch, final AtomicInteger probed, final long start) throws Exception { // NOCS
+        final int classIndex = trainingSet.classIndex();
+        final boolean batchPrediction = classifier instanceof BatchPredictor
+                && ((BatchPredictor) classifier).implementsMoreEfficientBatchPrediction();
 
-        // build classifier
-        try {
-            final Classifier classifier = this
-                    .buildClassifier(this.classifierName, this.classifierOptions, trainingSet);
-            final Ranking<T> ranking = new Ranking<>();
+        // all nodes are not involved, the class is failing
+        final Instance instance = new DenseInstance(1.0d, new double[classIndex + 1]);
+        instance.setDataset(trainingSet);
+        instance.setValue(classIndex, FAILING);
 
-            System.out.println("begin classifying");
-            int classified = 0;
+        int batch;
+        while ((batch = nextBatch.getAndIncrement()) * PROBING_BATCH_SIZE < classIndex) {
+            final int from = batch * PROBING_BATCH_SIZE;
+            final int to = Math.min(from + PROBING_BATCH_SIZE, classIndex);
+            if (batchPrediction) {
+                // one sparse instance per node, containing only the node in the network
+                final Instances instances = new Instances(trainingSet, to - from);
+                for (int i = from; i < to; i++) {
+                    instances.add(new SparseInstance(1.0d, new double[] { INVOLVED, FAILING }, new int[] { i,
+                            classIndex, }, classIndex + 1));
+                }
+                final double[][] distributions = ((BatchPredictor) classifier).distributionsForInstances(instances);
+                for (int i = from; i < to; i++) {
+                    suspiciousness[i] = distributions[i - from][FAILING];
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    // contain only the current node in the network
+                    instance.setValue(i, INVOLVED);
 
-            final Instance instance = new DenseInstance(nodes.size() + 1);
-            instance.setDataset(trainingSet);
-            for (final INode<T> node : nodes) {
-                instance.setValue(attributeMap.get(node), "f");
-            }
-            instance.setValue(successAttribute, "f");
+                    // predict with which probability this setup leads to a failing network
+                    suspiciousness[i] = classifier.distributionForInstance(instance)[FAILING];
 
-            for (final INode<T> node : nodes) {
-                classified++;
-                if (classified % 1000 == 0) {
-                    System.out.println(String.format("Classified %d nodes.", classified));
+                    // reset involvment for node
+                    instance.setValue(i, NOT_INVOLVED);
                 }
+            }
+            final int done = probed.addAndGet(to - from);
+            final ProbingListener listener = this.probingListener;
+            if (listener != null) {
+                listener.probed(done, classIndex, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Creates the training set holding one sparse instance per trace.
+     *
+     * Each node is represented by a nominal attribute at its position in the given node list, whose first value means
+     * "not involved". A sparse instance only stores the values differing from the first value, so each trace instance
+     * is built directly from the involved node positions without touching the other attributes. The class attribute
+     * is the last attribute and holds the success of the trace.
+     *
+     * @param spectra
+     *            the spectra to create the training set for
+     * @param nodes
+     *            the nodes of the spectra, defining the attribute positions
+     * @return training set
+     */
+    Instances createTrainingSet(final ISpectra<T> spectra, final List<INode<T>> nodes) {
+        // nominal values, the value index equals the numeric 0/1 value used in the instances
+        final List<String> involvement = Arrays.asList("f", "t");
+        final List<String> success = Arrays.asList("t", "f");
+
+        // create an attribute for each component
+        final ArrayList<Attribute> attributeList = new ArrayList<>(nodes.size() + 1); // NOCS: Weka needs ArrayList..
+        for (final INode<T> node : nodes) {
+            attributeList.add(new Attribute(node.toString(), involvement));
+        }
 
-                // contain only the current node in the network
-                instance.setValue(attributeMap.get(node), "t");
+        // create class attribute (trace success)
+        attributeList.add(new Attribute("success", success));
 
-                // predict with which probability this setup leads to a failing network
-                final double[] distribution = classifier.distributionForInstance(instance);
-                ranking.rank(node, distribution[1]);
+        // create weka training instance
+        final InvolvementMatrix matrix = new InvolvementMatrix(spectra, nodes);
+        final Instances trainingSet = new Instances("TraceInfoInstances", attributeList, matrix.getTraceCount());
+        final int classIndex = attributeList.size() - 1;
+        trainingSet.setClassIndex(classIndex);
 
-                // reset involvment for node
-                instance.setValue(attributeMap.get(node), "f");
+        // add an instance for each trace
+        for (int t = 0; t < matrix.getTraceCount(); t++) {
+            final int[] involved = matrix.getRow(t);
+            final boolean failing = matrix.isFailing(t);
+            final int[] indices = Arrays.copyOf(involved, involved.length + (failing ? 1 : 0));
+            final double[] values = new double[indices.length];
+            Arrays.fill(values, 0, involved.length, INVOLVED);
+            if (failing) {
+                final int pos = involved.length;
+                indices[pos] = classIndex;
+                values[pos] = FAILING;
             }
-            return ranking;
-        } catch (final Exception e) { // NOCS: Weka throws only raw exceptions
-            throw new RuntimeException(e);
+            trainingSet.add(new SparseInstance(1.0d, values, indices, attributeList.size()));
         }
+        return trainingSet;
     }
 
     /**
@@ -176,7 +345,8 @@ public class WekaFaultLocalizer<T> implements IFaultLocalizer<T> {
      */
     public Classifier buildClassifier(final String name, final String[] options, final Instances trainingSet) {
         try {
-            final Classifier classifier = AbstractClassifier.forName(this.classifierName, options);
+            // Weka consumes the options it parses, thus the given options are left untouched
+            final Classifier classifier = AbstractClassifier.forName(this.classifierName, options.clone());
             classifier.buildClassifier(trainingSet);
             return classifier;
         } catch (final Exception e1) { // NOCS: Weka throws only raw exceptions
@@ -191,4 +361,22 @@ public class WekaFaultLocalizer<T> implements IFaultLocalizer<T> {
         return "weka-" + this.classifierName.substring(this.classifierName.lastIndexOf(".") + 1);
     }
 
+    /**
+     * Listener notified about the progress of probing the nodes with the trained classifier.
+     */
+    @FunctionalInterface
+    public interface ProbingListener {
+
+        /**
+         * Called after a batch of nodes was probed. May be called concurrently by multiple probing threads.
+         *
+         * @param probed
+         *            number of nodes probed so far
+         * @param total
+         *            number of nodes to probe
+         * @param elapsedNanos
+         *            nanoseconds elapsed since probing started
+         */
+        void probed(int probed, int total, long elapsedNanos);
+    }
 }
@@ -9,8 +9,13 @@
 
 package fk.stardust.localizer.sbfl;
 
+import java.util.Collection;
+
 import fk.stardust.localizer.IFaultLocalizer;
 import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.TopKRanking;
+import fk.stardust.traces.ContingencyTable;
+import fk.stardust.traces.ICounterSpectra;
 import fk.stardust.traces.INode;
 import fk.stardust.traces.ISpectra;
 
@@ -27,10 +32,66 @@ public abstract class AbstractSpectrumBasedFaultLocalizer<T> implements IFaultLo
      */
     @Override
     public Ranking<T> localize(final ISpectra<T> spectra) {
-        final Ranking<T> ranking = new Ranking<>();
-        for (final INode<T> node : spectra.getNodes()) {
-            final double suspiciousness = this.suspiciousness(node);
-            ranking.rank(node, suspiciousness);
+        return this.rank(spectra, new Ranking<T>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TopKRanking<T> localize(final ISpectra<T> spectra, final int k) {
+        return this.rank(spectra, new TopKRanking<T>(k));
+    }
+
+    /**
+     * Creates a fault location ranking from the node counters of the given spectra.
+     *
+     * Spectrum based fault localizers only rely on the counters of each node, thus spectra that do not retain their
+     * traces, e.g. a {@link fk.stardust.traces.CounterSpectra}, can be localized as well.
+     *
+     * @param spectra
+     *            the spectra to perform the fault localization on
+     * @return nodes ranked by suspiciousness
+     */
+    public Ranking<T> localize(final ICounterSpectra<T> spectra) {
+        return this.rank(spectra, new Ranking<T>());
+    }
+
+    /**
+     * Updates the suspiciousness of the given nodes in an existing ranking, e.g. after their counters changed.
+     *
+     * All other nodes keep their suspiciousness, thus only the nodes whose counters changed need to be passed, see
+     * {@link fk.stardust.traces.Spectra#pollChangedNodes()}. Nodes not yet part of the ranking are added.
+     *
+     * @param ranking
+     *            the ranking to update
+     * @param nodes
+     *            the nodes to compute the suspiciousness for
+     */
+    public void rerank(final Ranking<T> ranking, final Collection<INode<T>> nodes) {
+        for (final INode<T> node : nodes) {
+            ranking.rank(node, this.suspiciousness(node));
+        }
+    }
+
+    /**
+     * Computes the suspiciousness of all nodes of the given spectra and adds them to the given ranking.
+     *
+     * @param spectra
+     *            the spectra to perform the fault localization on
+     * @param ranking
+     *            the ranking to add the nodes to
+     * @param <R>
+     *            type of the ranking
+     * @return the given ranking
+     */
+    private <R extends Ranking<T>> R rank(final ICounterSpectra<T> spectra, final R ranking) {
+        final ContingencyTable<T> table = spectra.getContingencyTable();
+        final double[] suspiciousness = new double[table.getNodeCount()];
+        this.suspiciousness(table.getIFArray(), table.getISArray(), table.getNFArray(), table.getNSArray(),
+                suspiciousness);
+        for (int i = 0; i < suspiciousness.length; i++) {
+            ranking.rank(table.getNode(i), suspiciousness[i]);
         }
         return ranking;
     }
@@ -42,6 +103,44 @@ public abstract class AbstractSpectrumBasedFaultLocalizer<T> implements IFaultLo
      *            the node to compute the suspiciousness of
      * @return the suspiciousness of the node
      */
-    public abstract double suspiciousness(INode<T> node);
+    public double suspiciousness(final INode<T> node) {
+        return this.suspiciousness(node.getIF(), node.getIS(), node.getNF(), node.getNS());
+    }
+
+    /**
+     * Computes the suspiciousness of a batch of nodes at once.
+     *
+     * Position i of each counter array belongs to the same node, the suspiciousness of that node is written to
+     * position i of the result array. Each formula implements this loop itself and calls its own final
+     * {@link #suspiciousness(int, int, int, int)}, thus the call site in the loop is monomorphic and the JIT can
+     * inline the formula and vectorize the loop, even if many formulas are evaluated through this method.
+     *
+     * @param ef
+     *            amount of failing traces each node was involved in (IF)
+     * @param ep
+     *            amount of successful traces each node was involved in (IS)
+     * @param nf
+     *            amount of failing traces each node was not involved in (NF)
+     * @param np
+     *            amount of successful traces each node was not involved in (NS)
+     * @param result
+     *            array to store the suspiciousness of each node in
+     */
+    public abstract void suspiciousness(int[] ef, int[] ep, int[] nf, int[] np, double[] result);
+
+    /**
+     * Computes the suspiciousness of a single node from its counters.
+     *
+     * @param ef
+     *            amount of failing traces the node was involved in (IF)
+     * @param ep
+     *            amount of successful traces the node was involved in (IS)
+     * @param nf
+     *            amount of failing traces the node was not involved in (NF)
+     * @param np
+     *            amount of successful traces the node was not involved in (NS)
+     * @return the suspiciousness of the node
+     */
+    protected abstract double suspiciousness(int ef, int ep, int nf, int np);
 
 }
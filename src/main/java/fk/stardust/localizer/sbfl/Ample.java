@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Ample fault localizer
  *
@@ -27,12 +25,20 @@ public class Ample<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double left = (double) node.getIF() / (double) (node.getIF() + node.getNF());
-        final double right = (double) node.getIS() / (double) (node.getIS() + node.getNS());
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double left = (double) ef / (double) (ef + nf);
+        final double right = (double) ep / (double) (ep + np);
         return Math.abs(left - right);
     }
 
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
+    }
+
     @Override
     public String getName() {
         return "Ample";
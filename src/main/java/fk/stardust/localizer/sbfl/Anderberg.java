@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Anderberg fault localizer
  * 
@@ -27,8 +25,16 @@ public class Anderberg<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        return (double) node.getIF() / (double) (node.getIF() + 2.0d * (node.getNF() + node.getIS()));
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        return (double) ef / (double) (ef + 2.0d * (nf + ep));
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
     }
 
     @Override
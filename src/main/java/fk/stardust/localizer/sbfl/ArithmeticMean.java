@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * ArithmeticMean fault localizer
  * 
@@ -27,18 +25,26 @@ public class ArithmeticMean<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double enu1 = 2 * node.getIF() * node.getNS();
-        final double enu2 = 2 * node.getNF() * node.getIS();
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double enu1 = 2 * ef * np;
+        final double enu2 = 2 * nf * ep;
         final double enu = enu1 - enu2;
 
-        final double denom1 = (double) (node.getIF() + node.getIS()) * (node.getNS() + node.getNF());
-        final double denom2 = (double) (node.getIF() + node.getNF()) * (node.getIS() + node.getNS());
+        final double denom1 = (double) (ef + ep) * (np + nf);
+        final double denom2 = (double) (ef + nf) * (ep + np);
         final double denom = denom1 + denom2;
 
         return enu / denom;
     }
 
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
+    }
+
     @Override
     public String getName() {
         return "ArithmeticMean";
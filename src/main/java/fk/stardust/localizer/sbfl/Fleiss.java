@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Fleiss fault localizer
  * 
@@ -27,19 +25,27 @@ public class Fleiss<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double enu1 = 4.0d * node.getIF() * node.getNS();
-        final double enu2 = 4.0d * node.getNF() * node.getIS();
-        final double enu3 = node.getNF() - node.getIS();
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double enu1 = 4.0d * ef * np;
+        final double enu2 = 4.0d * nf * ep;
+        final double enu3 = nf - ep;
         final double enu = enu1 - enu2 - (enu3 * enu3);
 
-        final double denom1 = 2.0d * node.getIF() + node.getNF() + node.getIS();
-        final double denom2 = 2.0d * node.getNS() + node.getNF() + node.getIS();
+        final double denom1 = 2.0d * ef + nf + ep;
+        final double denom2 = 2.0d * np + nf + ep;
         final double denom = denom1 + denom2;
 
         return enu / denom; // No new Double() was used here, direct division
     }
 
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
+    }
+
     @Override
     public String getName() {
         return "Fleiss";
@@ -0,0 +1,162 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.sbfl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import fk.stardust.localizer.Ranking;
+import fk.stardust.traces.ContingencyTable;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+
+/**
+ * Evaluates a set of spectrum based fault localizers in a single sweep over a spectra.
+ *
+ * The node counters are extracted once and shared by all formulas, each formula computes the suspiciousness of all
+ * nodes using its batch implementation. The formulas are independent of each other and are evaluated in parallel, as
+ * are the rankings of the formulas.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
+public class FormulaBank<T> {
+
+    /** Holds the formulas to evaluate */
+    private final List<AbstractSpectrumBasedFaultLocalizer<T>> formulas;
+
+    /**
+     * Creates a formula bank evaluating the given formulas.
+     *
+     * @param formulas
+     *            the formulas to evaluate
+     */
+    public FormulaBank(final List<? extends AbstractSpectrumBasedFaultLocalizer<T>> formulas) {
+        super();
+        this.formulas = Collections.unmodifiableList(new ArrayList<>(formulas));
+    }
+
+    /**
+     * Creates a formula bank evaluating all SBFL formulas available in this package.
+     *
+     * @param <T>
+     *            type used to identify nodes in the system
+     * @return formula bank
+     */
+    public static <T> FormulaBank<T> all() {
+        return new FormulaBank<>(defaultFormulas());
+    }
+
+    /**
+     * Creates new instances of all SBFL formulas available in this package.
+     *
+     * @param <T>
+     *            type used to identify nodes in the system
+     * @return list of all formulas
+     */
+    public static <T> List<AbstractSpectrumBasedFaultLocalizer<T>> defaultFormulas() {
+        final List<AbstractSpectrumBasedFaultLocalizer<T>> formulas = new ArrayList<>();
+        formulas.add(new Ample<T>());
+        formulas.add(new Anderberg<T>());
+        formulas.add(new ArithmeticMean<T>());
+        formulas.add(new Cohen<T>());
+        formulas.add(new Dice<T>());
+        formulas.add(new Euclid<T>());
+        formulas.add(new Fleiss<T>());
+        formulas.add(new GeometricMean<T>());
+        formulas.add(new Goodman<T>());
+        formulas.add(new Hamann<T>());
+        formulas.add(new Hamming<T>());
+        formulas.add(new HarmonicMean<T>());
+        formulas.add(new Jaccard<T>());
+        formulas.add(new Kulczynski1<T>());
+        formulas.add(new Kulczynski2<T>());
+        formulas.add(new M1<T>());
+        formulas.add(new M2<T>());
+        formulas.add(new Ochiai<T>());
+        formulas.add(new Ochiai2<T>());
+        formulas.add(new Overlap<T>());
+        formulas.add(new RogersTanimoto<T>());
+        formulas.add(new Rogot1<T>());
+        formulas.add(new Rogot2<T>());
+        formulas.add(new RussellRao<T>());
+        formulas.add(new Scott<T>());
+        formulas.add(new SimpleMatching<T>());
+        formulas.add(new Sokal<T>());
+        formulas.add(new SorensenDice<T>());
+        formulas.add(new Tarantula<T>());
+        formulas.add(new Wong1<T>());
+        formulas.add(new Wong2<T>());
+        formulas.add(new Wong3<T>());
+        formulas.add(new Zoltar<T>());
+        return formulas;
+    }
+
+    /**
+     * Returns the formulas evaluated by this bank.
+     *
+     * @return formulas
+     */
+    public List<AbstractSpectrumBasedFaultLocalizer<T>> getFormulas() {
+        return this.formulas;
+    }
+
+    /**
+     * Computes the suspiciousness of all nodes for all formulas.
+     *
+     * @param table
+     *            the node counters to evaluate the formulas on
+     * @return one suspiciousness array per formula, in the order of {@link #getFormulas()}
+     */
+    public double[][] suspiciousness(final ContingencyTable<T> table) {
+        final int[] ef = table.getIFArray();
+        final int[] ep = table.getISArray();
+        final int[] nf = table.getNFArray();
+        final int[] np = table.getNSArray();
+        final double[][] suspiciousness = new double[this.formulas.size()][];
+        IntStream.range(0, this.formulas.size()).parallel().forEach(f -> {
+            suspiciousness[f] = new double[table.getNodeCount()];
+            this.formulas.get(f).suspiciousness(ef, ep, nf, np, suspiciousness[f]);
+        });
+        return suspiciousness;
+    }
+
+    /**
+     * Creates a fault location ranking for all formulas of this bank.
+     *
+     * @param spectra
+     *            the spectra to perform the fault localization on
+     * @return rankings of all formulas, in the order of {@link #getFormulas()}
+     */
+    public Map<AbstractSpectrumBasedFaultLocalizer<T>, Ranking<T>> localize(final ISpectra<T> spectra) {
+        final ContingencyTable<T> table = spectra.getContingencyTable();
+        final double[][] suspiciousness = this.suspiciousness(table);
+
+        final List<INode<T>> nodes = table.getNodes();
+        final List<Ranking<T>> rankings = IntStream.range(0, this.formulas.size()).parallel().mapToObj(f -> {
+            final Ranking<T> ranking = new Ranking<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                ranking.rank(nodes.get(i), suspiciousness[f][i]);
+            }
+            return ranking;
+        }).collect(Collectors.toList());
+
+        final Map<AbstractSpectrumBasedFaultLocalizer<T>, Ranking<T>> result = new LinkedHashMap<>();
+        for (int f = 0; f < this.formulas.size(); f++) {
+            result.put(this.formulas.get(f), rankings.get(f));
+        }
+        return result;
+    }
+}
@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * GeometricMean fault localizer
  *
@@ -27,13 +25,20 @@ public class GeometricMean<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double denom1 = node.getIF() + node.getIS();
-        final double denom2 = node.getNS() + node.getNF();
-        final double denom3 = node.getIF() + node.getNF();
-        final double denom4 = node.getIS() + node.getNS();
-        return (double) (node.getIF() * node.getNS() - node.getNF() * node.getIS())
-                / Math.sqrt(denom1 * denom2 * denom3 * denom4);
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double denom1 = ef + ep;
+        final double denom2 = np + nf;
+        final double denom3 = ef + nf;
+        final double denom4 = ep + np;
+        return (double) (ef * np - nf * ep) / Math.sqrt(denom1 * denom2 * denom3 * denom4);
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
     }
 
     @Override
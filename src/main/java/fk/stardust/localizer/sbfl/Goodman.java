@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Goodman fault localizer
  * 
@@ -27,9 +25,16 @@ public class Goodman<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        return (2.0d * node.getIF() - node.getNF() - node.getIS())
-                / (2.0d * node.getIF() + node.getNF() + node.getIS());
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        return (2.0d * ef - nf - ep) / (2.0d * ef + nf + ep);
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
     }
 
     @Override
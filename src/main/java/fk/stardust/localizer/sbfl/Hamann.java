@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Hamann fault localizer
  * 
@@ -27,9 +25,16 @@ public class Hamann<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        return (double) (node.getIF() + node.getNS() - node.getNF() - node.getIS())
-                / (double) (node.getIF() + node.getNF() + node.getIS() + node.getNS());
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        return (double) (ef + np - nf - ep) / (double) (ef + nf + ep + np);
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
     }
 
     @Override
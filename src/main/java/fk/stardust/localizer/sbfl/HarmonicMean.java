@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * HarmonicMean fault localizer
  * 
@@ -27,21 +25,29 @@ public class HarmonicMean<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double enu1 = node.getIF() * node.getNS() - node.getNF() * node.getIS();
-        final double enu21 = (double) (node.getIF() + node.getIS()) * (node.getNS() + node.getNF());
-        final double enu22 = (double) (node.getIF() + node.getNF()) * (node.getIS() + node.getNS());
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double enu1 = ef * np - nf * ep;
+        final double enu21 = (double) (ef + ep) * (np + nf);
+        final double enu22 = (double) (ef + nf) * (ep + np);
         final double enu = enu1 * (enu21 + enu22);
 
-        final double denom1 = node.getIF() + node.getIS();
-        final double denom2 = node.getNS() + node.getNF();
-        final double denom3 = node.getIF() + node.getNF();
-        final double denom4 = node.getIS() + node.getNS();
+        final double denom1 = ef + ep;
+        final double denom2 = np + nf;
+        final double denom3 = ef + nf;
+        final double denom4 = ep + np;
         final double denom = denom1 * denom2 * denom3 * denom4;
 
         return enu / denom;
     }
 
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
+    }
+
     @Override
     public String getName() {
         return "HarmonicMean";
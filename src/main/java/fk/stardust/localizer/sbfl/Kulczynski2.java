@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Kulczynski2 fault localizer
  * 
@@ -27,12 +25,20 @@ public class Kulczynski2<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double left = (double) node.getIF() / (double) (node.getIF() + node.getNF());
-        final double right = (double) node.getIF() / (double) (node.getIF() + node.getIS());
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double left = (double) ef / (double) (ef + nf);
+        final double right = (double) ef / (double) (ef + ep);
         return 0.5d * (left + right);
     }
 
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
+    }
+
     @Override
     public String getName() {
         return "Kulczynski2";
@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Ochiai fault localizer
  * 
@@ -27,9 +25,16 @@ public class Ochiai<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        return (double) node.getIF()
-                / Math.sqrt((double) ((node.getIF() + node.getNF()) * (node.getIF() + node.getIS())));
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        return (double) ef / Math.sqrt((double) ((ef + nf) * (ef + ep)));
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
     }
 
     @Override
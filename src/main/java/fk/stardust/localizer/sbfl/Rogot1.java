@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Rogot1 fault localizer
  * 
@@ -27,12 +25,20 @@ public class Rogot1<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double left = (double) node.getIF() / (double) (2.0d * node.getIF() + node.getNF() + node.getIS());
-        final double right = (double) node.getNS() / (double) (2.0d * node.getNS() + node.getNF() + node.getIS());
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double left = (double) ef / (double) (2.0d * ef + nf + ep);
+        final double right = (double) np / (double) (2.0d * np + nf + ep);
         return 0.5d * (left + right);
     }
 
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
+    }
+
     @Override
     public String getName() {
         return "Rogot1";
@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Rogot2 fault localizer
  * 
@@ -27,14 +25,22 @@ public class Rogot2<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double frac1 = (double) node.getIF() / (double) (node.getIF() + node.getIS());
-        final double frac2 = (double) node.getIF() / (double) (node.getIF() + node.getNF());
-        final double frac3 = (double) node.getNS() / (double) (node.getNS() + node.getIS());
-        final double frac4 = (double) node.getNS() / (double) (node.getNS() + node.getNF());
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double frac1 = (double) ef / (double) (ef + ep);
+        final double frac2 = (double) ef / (double) (ef + nf);
+        final double frac3 = (double) np / (double) (np + ep);
+        final double frac4 = (double) np / (double) (np + nf);
         return 0.25d * (frac1 + frac2 + frac3 + frac4);
     }
 
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
+    }
+
     @Override
     public String getName() {
         return "Rogot2";
@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Tarantula fault localizer
  * 
@@ -27,9 +25,17 @@ public class Tarantula<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double part = (double) node.getIF() / (double) (node.getIF() + node.getNF());
-        return part / (part + (double) node.getIS() / (double) (node.getIS() + node.getNS()));
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double part = (double) ef / (double) (ef + nf);
+        return part / (part + (double) ep / (double) (ep + np));
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
     }
 
     @Override
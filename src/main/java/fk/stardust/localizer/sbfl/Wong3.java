@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Wong3 fault localizer
  * 
@@ -27,13 +25,21 @@ public class Wong3<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        if (node.getIS() <= 2) {
-            return (double) node.getIS(); // Cast to double for consistency, though int would auto-widen
-        } else if (node.getIS() <= 10) {
-            return 2.0d + 0.1d * (node.getIS() - 2.0d);
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        if (ep <= 2) {
+            return (double) ep; // Cast to double for consistency, though int would auto-widen
+        } else if (ep <= 10) {
+            return 2.0d + 0.1d * (ep - 2.0d);
         } else {
-            return 2.8d + 0.001d * (node.getIS() - 10.0d);
+            return 2.8d + 0.001d * (ep - 10.0d);
+        }
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
         }
     }
 
@@ -9,8 +9,6 @@
 
 package fk.stardust.localizer.sbfl;
 
-import fk.stardust.traces.INode;
-
 /**
  * Zoltar fault localizer
  * 
@@ -27,9 +25,17 @@ public class Zoltar<T> extends AbstractSpectrumBasedFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node) {
-        final double denomPart = (10000d * node.getNF() * node.getIS()) / (double) node.getIF();
-        return (double) node.getIF() / (double) (node.getIF() + node.getNF() + node.getIS() + denomPart);
+    protected final double suspiciousness(final int ef, final int ep, final int nf, final int np) {
+        final double denomPart = (10000d * nf * ep) / (double) ef;
+        return (double) ef / (double) (ef + nf + ep + denomPart);
+    }
+
+    @Override
+    public final void suspiciousness(final int[] ef, final int[] ep, final int[] nf, final int[] np,
+            final double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+        }
     }
 
     @Override
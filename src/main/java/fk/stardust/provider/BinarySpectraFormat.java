@@ -0,0 +1,414 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.provider;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import fk.stardust.traces.BitsetSpectra;
+import fk.stardust.traces.HierarchicalSpectra;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+import fk.stardust.traces.ITrace;
+
+/**
+ * Reads and writes spectra in a compact binary format.
+ *
+ * The format stores the node dictionary, the pass/fail vector and the involvement bitset of each trace of the line
+ * spectra, followed by the parent/child relation of all hierarchical levels on top of it (if any). A stamp describing
+ * the sources the spectra was created from is stored in the header, such that outdated files can be detected without
+ * reading the remaining file. A CRC32 checksum of the file content is stored at the end of the file.
+ *
+ * All values are stored big endian:
+ *
+ * <pre>
+ * int      magic, int version, long source stamp, int number of hierarchical levels
+ * int      node count, per node: int byte length and UTF-8 bytes of the identifier
+ * int      trace count, int words per trace
+ * long[]   pass/fail vector, bit i is set if trace i is successful
+ * long[][] involvement of each trace, bit i is set if node i is involved
+ * per hierarchical level, starting with the level on top of the line spectra:
+ *   int    node count, per node: identifier, int child count, int[] child node indices
+ * long     CRC32 of all preceding bytes
+ * </pre>
+ *
+ * Files are read using a memory mapped {@link FileChannel}, the trace bitsets are copied directly from the mapped
+ * buffer.
+ */
+public final class BinarySpectraFormat {
+
+    /** Magic number identifying the binary spectra format */
+    private static final int MAGIC = 0x53545350;
+
+    /** Version of the binary spectra format */
+    private static final int VERSION = 1;
+
+    /** Size of the file header in bytes */
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * Hide constructor, as this is a utility class.
+     */
+    private BinarySpectraFormat() {
+        super();
+    }
+
+    /**
+     * Computes a stamp of the given source files based on their path, length and modification time.
+     *
+     * @param files
+     *            the source files a spectra is created from
+     * @return source stamp
+     */
+    public static long sourceStamp(final List<String> files) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (final String path : files) {
+            final File file = new File(path);
+            crc.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            buffer.clear();
+            buffer.putLong(file.length());
+            buffer.putLong(file.lastModified());
+            crc.update(buffer.array());
+        }
+        return crc.getValue() << 32 | files.size() & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Reads the source stamp of a binary spectra file.
+     *
+     * @param file
+     *            the binary spectra file
+     * @return the source stamp or null if the file does not exist or is not a binary spectra file of this version
+     * @throws IOException
+     *             in case the file cannot be read
+     */
+    public static Long readSourceStamp(final File file) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            return in.readLong();
+        }
+    }
+
+    /**
+     * Writes the given spectra to a binary spectra file.
+     *
+     * If the given spectra is a {@link HierarchicalSpectra}, all hierarchical levels down to the line spectra are
+     * written. The file is written to a temporary file first and moved to its destination afterwards, such that
+     * concurrent readers never observe a partially written file.
+     *
+     * @param spectra
+     *            the spectra to write
+     * @param file
+     *            the file to write to
+     * @param sourceStamp
+     *            stamp of the sources the spectra was created from
+     * @throws IOException
+     *             in case the file cannot be written
+     */
+    public static void write(final ISpectra<String> spectra, final File file, final long sourceStamp)
+            throws IOException {
+        // collect hierarchical levels top down
+        final List<HierarchicalSpectra<String, String>> levels = new ArrayList<>();
+        ISpectra<String> lineSpectra = spectra;
+        while (lineSpectra instanceof HierarchicalSpectra) {
+            @SuppressWarnings("unchecked")
+            final HierarchicalSpectra<String, String> level = (HierarchicalSpectra<String, String>) lineSpectra;
+            levels.add(level);
+            lineSpectra = level.getChildSpectra();
+        }
+        Collections.reverse(levels);
+
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException(String.format("Cannot create folder %s.", parent));
+        }
+        final File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            final CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(
+                    new FileOutputStream(tmp), crc)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(sourceStamp);
+                out.writeInt(levels.size());
+                writeLineSpectra(out, lineSpectra);
+                ISpectra<String> child = lineSpectra;
+                for (final HierarchicalSpectra<String, String> level : levels) {
+                    writeHierarchicalLevel(out, level, child);
+                    child = level;
+                }
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Writes the nodes and traces of the line spectra.
+     *
+     * @param out
+     *            stream to write to
+     * @param spectra
+     *            the line spectra
+     * @throws IOException
+     *             in case writing fails
+     */
+    private static void writeLineSpectra(final DataOutputStream out, final ISpectra<String> spectra)
+            throws IOException {
+        final BitsetSpectra<String> bitset = spectra instanceof BitsetSpectra ? (BitsetSpectra<String>) spectra
+                : BitsetSpectra.copyOf(spectra);
+        final int nodeCount = bitset.getNodeCount();
+        out.writeInt(nodeCount);
+        for (final INode<String> node : bitset.getNodes()) {
+            writeString(out, node.getIdentifier());
+        }
+
+        final int traceCount = bitset.getTraceCount();
+        final int wordsPerTrace = words(nodeCount);
+        out.writeInt(traceCount);
+        out.writeInt(wordsPerTrace);
+        final BitSet successful = new BitSet(traceCount);
+        for (int i = 0; i < traceCount; i++) {
+            successful.set(i, bitset.getTrace(i).isSuccessful());
+        }
+        writeWords(out, successful, words(traceCount));
+        for (int i = 0; i < traceCount; i++) {
+            writeWords(out, bitset.getTrace(i).getInvolvement(), wordsPerTrace);
+        }
+    }
+
+    /**
+     * Writes the nodes and parent/child relation of a hierarchical level.
+     *
+     * @param out
+     *            stream to write to
+     * @param level
+     *            the hierarchical level to write
+     * @param child
+     *            the child spectra of the level
+     * @throws IOException
+     *             in case writing fails
+     */
+    private static void writeHierarchicalLevel(final DataOutputStream out,
+            final HierarchicalSpectra<String, String> level, final ISpectra<String> child) throws IOException {
+        final Map<INode<String>, Integer> childIndex = new HashMap<>();
+        final List<INode<String>> childNodes = child.getNodes();
+        for (int i = 0; i < childNodes.size(); i++) {
+            childIndex.put(childNodes.get(i), i);
+        }
+
+        final List<INode<String>> nodes = level.getNodes();
+        out.writeInt(nodes.size());
+        for (final INode<String> node : nodes) {
+            writeString(out, node.getIdentifier());
+            final int[] children = new int[level.getChildrenOf(node).size()];
+            int pos = 0;
+            for (final INode<String> childNode : level.getChildrenOf(node)) {
+                children[pos++] = childIndex.get(childNode);
+            }
+            Arrays.sort(children);
+            out.writeInt(children.length);
+            for (final int index : children) {
+                out.writeInt(index);
+            }
+        }
+    }
+
+    /**
+     * Reads a binary spectra file.
+     *
+     * @param file
+     *            the file to read
+     * @return the top most spectra stored in the file, a {@link HierarchicalSpectra} if hierarchical levels are stored
+     *         and a {@link BitsetSpectra} otherwise
+     * @throws IOException
+     *             in case the file cannot be read or is corrupt
+     */
+    public static ISpectra<String> read(final File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE + 8 || size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("File %s is not a valid binary spectra file.", file));
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // verify checksum
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - 8));
+            if (buffer.getLong((int) size - 8) != crc.getValue()) {
+                throw new IOException(String.format("Checksum mismatch in binary spectra file %s.", file));
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(String.format("File %s is not a binary spectra file of version %d.", file,
+                        VERSION));
+            }
+            buffer.getLong();
+            final int levelCount = buffer.getInt();
+
+            final BitsetSpectra<String> lineSpectra = readLineSpectra(buffer);
+            ISpectra<String> spectra = lineSpectra;
+            for (int level = 0; level < levelCount; level++) {
+                spectra = readHierarchicalLevel(buffer, spectra);
+            }
+            return spectra;
+        }
+    }
+
+    /**
+     * Reads the nodes and traces of the line spectra.
+     *
+     * @param buffer
+     *            buffer positioned at the line spectra
+     * @return line spectra
+     */
+    private static BitsetSpectra<String> readLineSpectra(final ByteBuffer buffer) {
+        final BitsetSpectra<String> spectra = new BitsetSpectra<>();
+        final int nodeCount = buffer.getInt();
+        for (int i = 0; i < nodeCount; i++) {
+            spectra.getNode(readString(buffer));
+        }
+
+        final int traceCount = buffer.getInt();
+        final int wordsPerTrace = buffer.getInt();
+        final BitSet successful = readWords(buffer, words(traceCount));
+        for (int i = 0; i < traceCount; i++) {
+            spectra.addTrace(successful.get(i), readWords(buffer, wordsPerTrace));
+        }
+        return spectra;
+    }
+
+    /**
+     * Reads a hierarchical level on top of the given child spectra.
+     *
+     * @param buffer
+     *            buffer positioned at the hierarchical level
+     * @param child
+     *            the child spectra of the level
+     * @return hierarchical spectra
+     */
+    private static HierarchicalSpectra<String, String> readHierarchicalLevel(final ByteBuffer buffer,
+            final ISpectra<String> child) {
+        final HierarchicalSpectra<String, String> level = new HierarchicalSpectra<>(child);
+        final List<INode<String>> childNodes = child.getNodes();
+        final int nodeCount = buffer.getInt();
+        for (int i = 0; i < nodeCount; i++) {
+            final INode<String> node = level.getNode(readString(buffer));
+            final int childCount = buffer.getInt();
+            for (int c = 0; c < childCount; c++) {
+                level.setParent(node, childNodes.get(buffer.getInt()));
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Returns the number of 64 bit words necessary to store the given number of bits.
+     *
+     * @param bits
+     *            number of bits
+     * @return number of words
+     */
+    private static int words(final int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Writes a bitset as a fixed number of words.
+     *
+     * @param out
+     *            stream to write to
+     * @param bits
+     *            the bitset to write
+     * @param words
+     *            number of words to write
+     * @throws IOException
+     *             in case writing fails
+     */
+    private static void writeWords(final DataOutputStream out, final BitSet bits, final int words) throws IOException {
+        final long[] data = bits.toLongArray();
+        for (int i = 0; i < words; i++) {
+            out.writeLong(i < data.length ? data[i] : 0L);
+        }
+    }
+
+    /**
+     * Reads a bitset stored as a fixed number of words.
+     *
+     * @param buffer
+     *            buffer positioned at the first word
+     * @param words
+     *            number of words to read
+     * @return bitset
+     */
+    private static BitSet readWords(final ByteBuffer buffer, final int words) {
+        final BitSet bits = BitSet.valueOf(buffer.slice(buffer.position(), words * 8).asLongBuffer());
+        buffer.position(buffer.position() + words * 8);
+        return bits;
+    }
+
+    /**
+     * Writes a string as length prefixed UTF-8 bytes.
+     *
+     * @param out
+     *            stream to write to
+     * @param value
+     *            the string to write
+     * @throws IOException
+     *             in case writing fails
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string stored as length prefixed UTF-8 bytes.
+     *
+     * @param buffer
+     *            buffer positioned at the string
+     * @return string
+     */
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
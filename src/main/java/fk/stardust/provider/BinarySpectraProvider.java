@@ -0,0 +1,80 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.provider;
+
+import java.io.File;
+
+import fk.stardust.traces.BitsetSpectra;
+import fk.stardust.traces.HierarchicalSpectra;
+import fk.stardust.traces.ISpectra;
+
+/**
+ * Loads spectra from files written in the {@link BinarySpectraFormat}.
+ *
+ * The line spectra is loaded as {@link BitsetSpectra}. If the file contains hierarchical levels, they can be loaded
+ * using {@link #loadHierarchicalSpectra()}.
+ */
+public class BinarySpectraProvider implements ISpectraProvider<String>, IHierarchicalSpectraProvider<String, String> {
+
+    /** The binary spectra file to load */
+    private final File file;
+
+    /**
+     * Create a binary spectra provider.
+     *
+     * @param file
+     *            path to the binary spectra file to load
+     */
+    public BinarySpectraProvider(final String file) {
+        super();
+        this.file = new File(file);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Returns the line spectra, even if the file contains hierarchical levels.
+     */
+    @Override
+    public ISpectra<String> loadSpectra() throws Exception {
+        ISpectra<String> spectra = BinarySpectraFormat.read(this.file);
+        while (spectra instanceof HierarchicalSpectra) {
+            spectra = asHierarchical(spectra).getChildSpectra();
+        }
+        return spectra;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HierarchicalSpectra<String, String> loadHierarchicalSpectra() throws Exception {
+        final ISpectra<String> spectra = BinarySpectraFormat.read(this.file);
+        if (!(spectra instanceof HierarchicalSpectra)) {
+            throw new RuntimeException(String.format("Binary spectra file %s does not contain a hierarchy.",
+                    this.file));
+        }
+        return asHierarchical(spectra);
+    }
+
+    /**
+     * Casts a spectra read from a binary spectra file to a hierarchical spectra.
+     *
+     * @param spectra
+     *            hierarchical spectra read from the file
+     * @return the hierarchical spectra
+     */
+    private static HierarchicalSpectra<String, String> asHierarchical(final ISpectra<String> spectra) {
+        // binary spectra files identify the nodes of all levels by strings
+        @SuppressWarnings("unchecked")
+        final HierarchicalSpectra<String, String> hierarchical = (HierarchicalSpectra<String, String>) spectra;
+        return hierarchical;
+    }
+}
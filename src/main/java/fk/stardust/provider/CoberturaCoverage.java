@@ -0,0 +1,222 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.provider;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Holds the coverage of a single cobertura.xml trace file.
+ *
+ * The file is read in a single streaming pass. Each line of a method is recorded with its node identifier in document
+ * order, the involvement of all lines is stored as bitset over the line positions. Whether the trace executed anything
+ * at all is known once the pass is complete, no second read of the file is necessary.
+ */
+final class CoberturaCoverage {
+
+    /** Node identifiers of all method lines in document order */
+    private final List<String> lines = new ArrayList<>();
+
+    /** Bit i is set if line i was executed at least once */
+    private final BitSet involvement = new BitSet();
+
+    /** Method identifier of each line in document order, null if the hierarchy is not recorded */
+    private final List<String> lineMethods;
+
+    /** Pairs of package name and class name in document order, null if the hierarchy is not recorded */
+    private final List<String[]> classes;
+
+    /** Pairs of class name and method identifier in document order, null if the hierarchy is not recorded */
+    private final List<String[]> methods;
+
+    /**
+     * Creates an empty coverage.
+     *
+     * @param hierarchy
+     *            true if the package, class and method hierarchy shall be recorded
+     */
+    private CoberturaCoverage(final boolean hierarchy) {
+        this.lineMethods = hierarchy ? new ArrayList<>() : null;
+        this.classes = hierarchy ? new ArrayList<>() : null;
+        this.methods = hierarchy ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Reads the coverage of a cobertura.xml file.
+     *
+     * @param file
+     *            path to the cobertura xml file to read
+     * @param hierarchy
+     *            true if the package, class and method hierarchy shall be recorded
+     * @return coverage of the file
+     * @throws IOException
+     *             in case the xml file cannot be read
+     * @throws XMLStreamException
+     *             in case the xml file cannot be parsed
+     */
+    public static CoberturaCoverage read(final String file, final boolean hierarchy) throws IOException,
+            XMLStreamException {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        final CoberturaCoverage coverage = new CoberturaCoverage(hierarchy);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            final XMLStreamReader reader = factory.createXMLStreamReader(file, in);
+            try {
+                coverage.read(reader);
+            } finally {
+                reader.close();
+            }
+        }
+        return coverage;
+    }
+
+    /**
+     * Records all method lines provided by the given reader.
+     *
+     * Lines that are not part of a method are skipped, as they duplicate the method lines.
+     *
+     * @param reader
+     *            reader positioned at the start of a cobertura xml document
+     * @throws XMLStreamException
+     *             in case the xml file cannot be parsed
+     */
+    private void read(final XMLStreamReader reader) throws XMLStreamException {
+        String packageName = null;
+        String className = null;
+        String methodIdentifier = null;
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("method".equals(reader.getLocalName())) {
+                    methodIdentifier = null;
+                }
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (reader.getLocalName()) {
+            case "package":
+                packageName = reader.getAttributeValue(null, "name");
+                break;
+            case "class":
+                className = reader.getAttributeValue(null, "filename");
+                if (this.classes != null) {
+                    this.classes.add(new String[] { packageName, className });
+                }
+                break;
+            case "method":
+                methodIdentifier = className + ":" + reader.getAttributeValue(null, "name")
+                        + reader.getAttributeValue(null, "signature");
+                if (this.methods != null) {
+                    this.methods.add(new String[] { className, methodIdentifier });
+                }
+                break;
+            case "line":
+                if (methodIdentifier != null) {
+                    if (isExecuted(reader.getAttributeValue(null, "hits"))) {
+                        this.involvement.set(this.lines.size());
+                    }
+                    this.lines.add(CoberturaProvider.createNodeIdentifier(className,
+                            reader.getAttributeValue(null, "number")));
+                    if (this.lineMethods != null) {
+                        this.lineMethods.add(methodIdentifier);
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given hit count is greater than zero without parsing it.
+     *
+     * @param hits
+     *            the hit count attribute of a line
+     * @return true if the hit count contains a non-zero digit
+     */
+    private static boolean isExecuted(final String hits) {
+        for (int i = 0; i < hits.length(); i++) {
+            final char c = hits.charAt(i);
+            if (c >= '1' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether at least one line was executed.
+     *
+     * @return true if the trace executed anything, false otherwise
+     */
+    public boolean isExecuted() {
+        return !this.involvement.isEmpty();
+    }
+
+    /**
+     * Returns the node identifiers of all method lines in document order.
+     *
+     * @return line identifiers
+     */
+    public List<String> getLines() {
+        return this.lines;
+    }
+
+    /**
+     * Returns the involvement of all lines, bit i belongs to line i of {@link #getLines()}.
+     *
+     * @return involvement
+     */
+    public BitSet getInvolvement() {
+        return this.involvement;
+    }
+
+    /**
+     * Returns the method identifier of each line of {@link #getLines()}.
+     *
+     * @return method identifiers or null if the hierarchy was not recorded
+     */
+    public List<String> getLineMethods() {
+        return this.lineMethods;
+    }
+
+    /**
+     * Returns pairs of package name and class name in document order.
+     *
+     * @return class pairs or null if the hierarchy was not recorded
+     */
+    public List<String[]> getClasses() {
+        return this.classes;
+    }
+
+    /**
+     * Returns pairs of class name and method identifier in document order.
+     *
+     * @return method pairs or null if the hierarchy was not recorded
+     */
+    public List<String[]> getMethods() {
+        return this.methods;
+    }
+}
@@ -9,157 +9,227 @@
 
 package fk.stardust.provider;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.JDOMException;
-import org.jdom2.input.SAXBuilder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import fk.stardust.traces.HierarchicalSpectra;
 import fk.stardust.traces.ISpectra;
 import fk.stardust.traces.IMutableTrace;
 import fk.stardust.traces.Spectra;
+import fk.stardust.traces.TraceRecord;
 
 /**
  * Loads cobertura.xml files to {@link Spectra} objects where each covered line is represented by one node and each file
  * represents one trace in the resulting spectra.
+ *
+ * Trace files are parsed independently on a bounded pool of worker threads. The parsed traces are added to the
+ * spectra in the order the trace files were added to the provider, thus the resulting spectra does not depend on the
+ * number of threads used. Only a small window of files is parsed ahead of the files already added to the spectra.
  */
 public class CoberturaProvider implements ISpectraProvider<String>, IHierarchicalSpectraProvider<String, String> {
 
-    /** List of trace files to load. Boolean flag indicates whether the trace is successful or not */
-    private final Map<String, Boolean> files = new HashMap<>();
+    /** Maximum number of trace files per thread parsed ahead of the files added to the spectra */
+    private static final int PARSE_WINDOW_FACTOR = 2;
+
+    /** List of trace files to load in insertion order. Boolean flag indicates whether the trace is successful or not */
+    private final Map<String, Boolean> files = new LinkedHashMap<>();
+
+    /** Number of threads used to parse trace files */
+    private final int threads;
 
     /**
-     * Create a cobertura provider.
+     * Create a cobertura provider that parses trace files using one thread per available processor.
      */
     public CoberturaProvider() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a cobertura provider.
+     *
+     * @param threads
+     *            number of threads used to parse trace files
+     */
+    public CoberturaProvider(final int threads) {
         super();
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Cannot parse trace files using %d threads.", threads));
+        }
+        this.threads = threads;
     }
 
     /**
      * Adds a trace file to the provider.
      *
+     * Trace files that do not execute a single node are skipped when the spectra is loaded.
+     *
      * @param file
      *            path to a cobertura xml file
      * @param successful
      *            true if the trace file contains a successful trace, false if the trace file contains a failing trace
      * @throws IOException
+     *             in case the file does not exist
      */
     public void addTraceFile(final String file, final boolean successful) throws IOException {
-        if (!this.fileToString(file).matches(".*hits=\"[1-9].*")) {
-            System.err.println(String.format("Did not add file %s as it did not execute a single node.", file));
-            return;
+        if (!new File(file).isFile()) {
+            throw new FileNotFoundException(String.format("Trace file %s does not exist.", file));
         }
         this.files.put(file, successful);
     }
 
-    private String fileToString(final String filename) throws IOException {
-        final BufferedReader reader = new BufferedReader(new FileReader(filename));
-        final StringBuilder builder = new StringBuilder();
-        String line;
-
-        // For every line in the file, append it to the string builder
-        while ((line = reader.readLine()) != null) {
-            builder.append(line);
-        }
-        reader.close();
-        return builder.toString();
+    /**
+     * Reads a single trace file without adding it to a spectra, e.g. to feed it to a
+     * {@link fk.stardust.localizer.StreamingFaultLocalizer}.
+     *
+     * @param file
+     *            path to a cobertura xml file
+     * @param successful
+     *            true if the trace file contains a successful trace, false if the trace file contains a failing trace
+     * @return the trace covering all lines of the file
+     * @throws Exception
+     *             in case the trace file cannot be read
+     */
+    public static TraceRecord<String> readTrace(final String file, final boolean successful) throws Exception {
+        final CoberturaCoverage coverage = CoberturaCoverage.read(file, false);
+        return new TraceRecord<>(successful, coverage.getLines(), coverage.getInvolvement());
     }
 
     @Override
     public ISpectra<String> loadSpectra() throws Exception {
         final Spectra<String> spectra = new Spectra<>();
-        for (final Map.Entry<String, Boolean> traceFile : this.files.entrySet()) {
-            this.loadSingleTrace(traceFile.getKey(), traceFile.getValue(), spectra);
-        }
+        this.loadTraces(spectra, null, null, null);
         return spectra;
     }
 
     /**
-     * Loads a single trace file to the given spectra as line spectra.
+     * Parses all trace files in parallel and adds them to the given spectra in the order they were added to the
+     * provider.
      *
-     * @param spectra
-     *            the spectra to add the trace file to
-     * @param file
-     *            path to the trace xml file to load
-     * @param successful
-     *            true if the trace file contains a successful trace, false if the trace file contains a failing trace
-     * @throws JDOMException
-     *             in case the xml file cannot be loaded
-     * @throws IOException
-     *             in case the xml file cannot be loaded
-     */
-    private void loadSingleTrace(final String file, final boolean successful, final Spectra<String> spectra)
-            throws JDOMException, IOException {
-        this.loadSingleTrace(file, successful, spectra, null, null, null);
-    }
-
-    /**
-     * Loads a single trace file to the given spectra.
+     * The hierarchical spectra are only filled if all of them are given.
      *
      * @param lineSpectra
-     *            the spectra to add the trace file to
-     * @param file
-     *            path to the trace xml file to load
-     * @param successful
-     *            true if the trace file contains a successful trace, false if the trace file contains a failing trace
-     * @throws JDOMException
-     *             in case the xml file cannot be loaded
-     * @throws IOException
-     *             in case the xml file cannot be loaded
+     *            the spectra to add the trace files to
+     * @param methodSpectra
+     *            the method spectra to add the line hierarchy to, may be null
+     * @param classSpectra
+     *            the class spectra to add the method hierarchy to, may be null
+     * @param packageSpectra
+     *            the package spectra to add the class hierarchy to, may be null
+     * @throws Exception
+     *             in case a trace file cannot be loaded
      */
-    private void loadSingleTrace(final String file, final boolean successful, final Spectra<String> lineSpectra,
-            final HierarchicalSpectra<String, String> methodSpectra,
+    private void loadTraces(final Spectra<String> lineSpectra, final HierarchicalSpectra<String, String> methodSpectra,
             final HierarchicalSpectra<String, String> classSpectra,
-            final HierarchicalSpectra<String, String> packageSpectra) throws JDOMException, IOException {
-        final IMutableTrace<String> trace = lineSpectra.addTrace(successful);
-        final SAXBuilder saxBuilder = new SAXBuilder();
-        final Document doc = saxBuilder.build(file);
+            final HierarchicalSpectra<String, String> packageSpectra) throws Exception {
         final boolean createHierarchicalSpectra = methodSpectra != null && classSpectra != null
                 && packageSpectra != null;
+        final List<Map.Entry<String, Boolean>> traceFiles = new ArrayList<>(this.files.entrySet());
 
-        // loop over all packages of the trace file
-        for (final Element pckg : doc.getRootElement().getChild("packages").getChildren()) {
-            final String packageName = pckg.getAttributeValue("name");
-
-            // loop over all classes of the package
-            for (final Element clss : pckg.getChild("classes").getChildren()) {
-                final String className = clss.getAttributeValue("filename");
+        // parse sequentially if there is nothing to gain from parallelism
+        if (this.threads == 1 || traceFiles.size() < 2) {
+            for (final Map.Entry<String, Boolean> traceFile : traceFiles) {
+                final CoberturaCoverage coverage = CoberturaCoverage.read(traceFile.getKey(),
+                        createHierarchicalSpectra);
+                this.addTrace(traceFile.getKey(), traceFile.getValue(), coverage, lineSpectra, methodSpectra,
+                        classSpectra, packageSpectra);
+            }
+            return;
+        }
 
-                // if necessary, create hierarchical spectra
-                if (createHierarchicalSpectra) {
-                    packageSpectra.setParent(packageName, className);
+        final int workers = Math.min(this.threads, traceFiles.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            // at most PARSE_WINDOW_FACTOR files per worker are parsed ahead of the merge, such that parsed but
+            // unmerged coverage does not pile up in memory if merging is slower than parsing
+            final int window = PARSE_WINDOW_FACTOR * workers;
+            final Deque<Future<CoberturaCoverage>> parsed = new ArrayDeque<>(window);
+            int submitted = 0;
+            for (int i = 0; i < traceFiles.size(); i++) {
+                while (submitted < traceFiles.size() && parsed.size() < window) {
+                    final String file = traceFiles.get(submitted++).getKey();
+                    parsed.addLast(executor.submit(() -> CoberturaCoverage.read(file, createHierarchicalSpectra)));
                 }
 
-                // loop over all methods of the class
-                for (final Element method : clss.getChild("methods").getChildren()) {
-                    final String methodName = method.getAttributeValue("name") + method.getAttributeValue("signature");
-                    final String methodIdentifier = String.format("%s:%s", className, methodName);
-
-                    // if necessary, create hierarchical spectra
-                    if (createHierarchicalSpectra) {
-                        classSpectra.setParent(className, methodIdentifier);
+                // merge in submission order while the next files are still being parsed
+                final CoberturaCoverage coverage;
+                try {
+                    coverage = parsed.removeFirst().get();
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
                     }
+                    throw e;
+                }
+                this.addTrace(traceFiles.get(i).getKey(), traceFiles.get(i).getValue(), coverage, lineSpectra,
+                        methodSpectra, classSpectra, packageSpectra);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                    // loop over all lines of the method
-                    for (final Element line : method.getChild("lines").getChildren()) {
+    /**
+     * Adds the parsed coverage of a single trace file to the given spectra.
+     *
+     * The hierarchical spectra are only filled if all of them are given.
+     *
+     * @param file
+     *            path to the trace xml file the coverage was read from
+     * @param successful
+     *            true if the trace file contains a successful trace, false if the trace file contains a failing trace
+     * @param coverage
+     *            the coverage of the trace file
+     * @param lineSpectra
+     *            the spectra to add the trace file to
+     * @param methodSpectra
+     *            the method spectra to add the line hierarchy to, may be null
+     * @param classSpectra
+     *            the class spectra to add the method hierarchy to, may be null
+     * @param packageSpectra
+     *            the package spectra to add the class hierarchy to, may be null
+     */
+    private void addTrace(final String file, final boolean successful, final CoberturaCoverage coverage,
+            final Spectra<String> lineSpectra, final HierarchicalSpectra<String, String> methodSpectra,
+            final HierarchicalSpectra<String, String> classSpectra,
+            final HierarchicalSpectra<String, String> packageSpectra) {
+        final boolean createHierarchicalSpectra = methodSpectra != null && classSpectra != null
+                && packageSpectra != null;
+        if (!coverage.isExecuted()) {
+            System.err.println(String.format("Did not add file %s as it did not execute a single node.", file));
+            return;
+        }
 
-                        // set node involvement
-                        final String lineIdentifier = createNodeIdentifier(className, line.getAttributeValue("number"));
-                        final boolean involved = Integer.parseInt(line.getAttributeValue("hits")) > 0;
-                        trace.setInvolvement(lineIdentifier, involved);
+        // set node involvement
+        final IMutableTrace<String> trace = lineSpectra.addTrace(successful);
+        final List<String> lines = coverage.getLines();
+        final BitSet involvement = coverage.getInvolvement();
+        for (int i = 0; i < lines.size(); i++) {
+            trace.setInvolvement(lines.get(i), involvement.get(i));
+        }
 
-                        // if necessary, create hierarchical spectra
-                        if (createHierarchicalSpectra) {
-                            methodSpectra.setParent(methodIdentifier, lineIdentifier);
-                        }
-                    }
-                }
+        // if necessary, create hierarchical spectra
+        if (createHierarchicalSpectra) {
+            for (final String[] clss : coverage.getClasses()) {
+                packageSpectra.setParent(clss[0], clss[1]);
+            }
+            for (final String[] method : coverage.getMethods()) {
+                classSpectra.setParent(method[0], method[1]);
+            }
+            final List<String> lineMethods = coverage.getLineMethods();
+            for (int i = 0; i < lines.size(); i++) {
+                methodSpectra.setParent(lineMethods.get(i), lines.get(i));
             }
         }
     }
@@ -186,8 +256,8 @@ public class CoberturaProvider implements ISpectraProvider<String>, IHierarchica
      *            line number of node
      * @return node identifier
      */
-    private static String createNodeIdentifier(final String className, final String lineNumber) {
-        return String.format("%s:%s", className, lineNumber);
+    static String createNodeIdentifier(final String className, final String lineNumber) {
+        return className + ":" + lineNumber;
     }
 
     @Override
@@ -198,10 +268,7 @@ public class CoberturaProvider implements ISpectraProvider<String>, IHierarchica
         final HierarchicalSpectra<String, String> classSpectra = new HierarchicalSpectra<>(methodSpectra);
         final HierarchicalSpectra<String, String> packageSpectra = new HierarchicalSpectra<>(classSpectra);
 
-        for (final Map.Entry<String, Boolean> traceFile : this.files.entrySet()) {
-            this.loadSingleTrace(traceFile.getKey(), traceFile.getValue(), lineSpectra, methodSpectra, classSpectra,
-                    packageSpectra);
-        }
+        this.loadTraces(lineSpectra, methodSpectra, classSpectra, packageSpectra);
         return packageSpectra;
     }
 }
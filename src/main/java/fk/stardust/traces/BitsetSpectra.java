@@ -0,0 +1,311 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact spectra implementation that stores the involvement matrix as bitsets.
+ *
+ * Each node identifier is interned to a dense node index when the node is first requested. Each trace stores its
+ * involvement as a bitset where bit <code>i</code> denotes the involvement of the node with index <code>i</code>. In
+ * contrast to {@link Spectra}, no map entries or boxed values are created per involvement, which reduces the memory
+ * footprint of large spectra by orders of magnitude.
+ *
+ * The spectra is exposed through the usual {@link ISpectra}, {@link ITrace} and {@link INode} interfaces, thus all
+ * fault localizers work unchanged.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public class BitsetSpectra<T> implements ISpectra<T> {
+
+    /** Maps node identifiers to their interned nodes */
+    private final Map<T, BitsetNode<T>> identifiers = new HashMap<>();
+
+    /** Holds all nodes of this spectra, the position of each node equals its node index */
+    private final List<INode<T>> nodes = new ArrayList<>();
+
+    /** Holds all traces belonging to this spectra */
+    private final List<BitsetTrace<T>> traces = new ArrayList<>();
+
+    /** Counts the modifications of this spectra, used to invalidate the cached contingency table */
+    private long modificationCount;
+
+    /** Holds the modification count the cached contingency table was computed for */
+    private long __cacheTableModificationCount = -1; // NOCS
+    /** caches the contingency table */
+    private ContingencyTable<T> __cacheTable; // NOCS
+
+    /**
+     * Creates a new bitset spectra.
+     */
+    public BitsetSpectra() {
+        super();
+    }
+
+    /**
+     * Creates a bitset spectra holding the same nodes and traces as the given spectra.
+     *
+     * Nodes are interned in the order they are returned by {@link ISpectra#getNodes()}, traces are copied in the order
+     * they are returned by {@link ISpectra#getTraces()}.
+     *
+     * @param spectra
+     *            the spectra to copy
+     * @param <T>
+     *            type used to identify nodes in the system.
+     * @return bitset copy of the given spectra
+     */
+    public static <T> BitsetSpectra<T> copyOf(final ISpectra<T> spectra) {
+        final BitsetSpectra<T> copy = new BitsetSpectra<>();
+        final List<INode<T>> sourceNodes = spectra.getNodes();
+        for (final INode<T> node : sourceNodes) {
+            copy.getNode(node.getIdentifier());
+        }
+        for (final ITrace<T> trace : spectra.getTraces()) {
+            final BitsetTrace<T> copiedTrace = copy.addTrace(trace.isSuccessful());
+            for (int index = 0; index < sourceNodes.size(); index++) {
+                if (trace.isInvolved(sourceNodes.get(index))) {
+                    copiedTrace.setInvolvement(index, true);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned list is ordered by node index and may not be modified.
+     */
+    @Override
+    public List<INode<T>> getNodes() {
+        return Collections.unmodifiableList(this.nodes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public INode<T> getNode(final T identifier) {
+        return this.intern(identifier);
+    }
+
+    /**
+     * Returns the node with the given node index.
+     *
+     * @param index
+     *            the dense index of the node
+     * @return node
+     */
+    public INode<T> getNode(final int index) {
+        return this.nodes.get(index);
+    }
+
+    /**
+     * Returns the number of nodes in this spectra.
+     *
+     * @return node count
+     */
+    public int getNodeCount() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Returns the dense node index of the given node.
+     *
+     * @param node
+     *            a node of this spectra
+     * @return node index
+     */
+    public int indexOf(final INode<T> node) {
+        if (node instanceof BitsetNode && node.getSpectra() == this) {
+            return ((BitsetNode<T>) node).getIndex();
+        }
+        return this.intern(node.getIdentifier()).getIndex();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNode(final T identifier) {
+        return this.identifiers.containsKey(identifier);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned list may not be modified.
+     */
+    @Override
+    public List<ITrace<T>> getTraces() {
+        return Collections.unmodifiableList(this.traces);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ITrace<T>> getFailingTraces() {
+        final List<ITrace<T>> failingTraces = new ArrayList<>();
+        for (final BitsetTrace<T> trace : this.traces) {
+            if (!trace.isSuccessful()) {
+                failingTraces.add(trace);
+            }
+        }
+        return failingTraces;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ITrace<T>> getSuccessfulTraces() {
+        final List<ITrace<T>> successTraces = new ArrayList<>();
+        for (final BitsetTrace<T> trace : this.traces) {
+            if (trace.isSuccessful()) {
+                successTraces.add(trace);
+            }
+        }
+        return successTraces;
+    }
+
+    /**
+     * Returns the trace with the given trace index.
+     *
+     * @param index
+     *            the position of the trace in this spectra
+     * @return trace
+     */
+    public BitsetTrace<T> getTrace(final int index) {
+        return this.traces.get(index);
+    }
+
+    /**
+     * Returns the number of traces in this spectra.
+     *
+     * @return trace count
+     */
+    public int getTraceCount() {
+        return this.traces.size();
+    }
+
+    /**
+     * Adds a new trace to this spectra.
+     *
+     * @param successful
+     *            True if the trace execution was successful, false otherwise
+     * @return the trace object
+     */
+    public BitsetTrace<T> addTrace(final boolean successful) {
+        final BitsetTrace<T> trace = new BitsetTrace<>(this, successful);
+        this.traces.add(trace);
+        this.modified();
+        return trace;
+    }
+
+    /**
+     * Adds a new trace with the given involvement to this spectra.
+     *
+     * @param successful
+     *            True if the trace execution was successful, false otherwise
+     * @param involvement
+     *            the involvement of the trace, bit i denotes the involvement of the node with index i
+     * @return the trace object
+     */
+    public BitsetTrace<T> addTrace(final boolean successful, final BitSet involvement) {
+        if (involvement.length() > this.nodes.size()) {
+            throw new IllegalArgumentException(String.format(
+                    "Involvement of node index %d exceeds the %d nodes of the spectra.", involvement.length() - 1,
+                    this.nodes.size()));
+        }
+        final BitsetTrace<T> trace = this.addTrace(successful);
+        trace.involvement().or(involvement);
+        return trace;
+    }
+
+    /**
+     * Returns the interned node of the given identifier and creates it if necessary.
+     *
+     * @param identifier
+     *            node identifier
+     * @return interned node
+     */
+    private BitsetNode<T> intern(final T identifier) {
+        BitsetNode<T> node = this.identifiers.get(identifier);
+        if (node == null) {
+            node = new BitsetNode<>(identifier, this, this.nodes.size());
+            this.identifiers.put(identifier, node);
+            this.nodes.add(node);
+            this.modified();
+        }
+        return node;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ContingencyTable<T> getContingencyTable() {
+        if (this.__cacheTable == null || this.__cacheTableModificationCount != this.modificationCount) {
+            this.__cacheTable = this.computeContingencyTable();
+            this.__cacheTableModificationCount = this.modificationCount;
+        }
+        return this.__cacheTable;
+    }
+
+    /**
+     * Computes the counters of all nodes in a single pass over the traces, visiting only the set bits of each trace.
+     *
+     * @return contingency table
+     */
+    private ContingencyTable<T> computeContingencyTable() {
+        final int[] involvedFailed = new int[this.nodes.size()];
+        final int[] involvedSuccessful = new int[this.nodes.size()];
+        int failing = 0;
+        int successful = 0;
+        for (final BitsetTrace<T> trace : this.traces) {
+            final int[] counter;
+            if (trace.isSuccessful()) {
+                successful++;
+                counter = involvedSuccessful;
+            } else {
+                failing++;
+                counter = involvedFailed;
+            }
+            final BitSet involvement = trace.involvement();
+            for (int i = involvement.nextSetBit(0); i >= 0; i = involvement.nextSetBit(i + 1)) {
+                counter[i]++;
+            }
+        }
+        return new ContingencyTable<>(this.nodes, involvedFailed, involvedSuccessful, failing, successful);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount;
+    }
+
+    /**
+     * Marks the spectra as modified.
+     */
+    void modified() {
+        this.modificationCount++;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Execution trace of a {@link BitsetSpectra} storing the involvement of all nodes in a single bitset indexed by the
+ * node index.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public class BitsetTrace<T> implements IMutableTrace<T> {
+
+    /** Holds the success state of this trace */
+    private final boolean successful;
+
+    /** Holds the spectra this trace belongs to */
+    private final BitsetSpectra<T> spectra;
+
+    /** Bit i is set if the node with node index i is involved in this trace */
+    private final BitSet involvement = new BitSet();
+
+    /**
+     * Create a trace for a spectra.
+     *
+     * @param spectra
+     *            the trace belongs to
+     * @param successful
+     *            true if the trace originates from a successful execution, false otherwise
+     */
+    protected BitsetTrace(final BitsetSpectra<T> spectra, final boolean successful) {
+        this.successful = successful;
+        this.spectra = spectra;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSuccessful() {
+        return this.successful;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ISpectra<T> getSpectra() {
+        return this.spectra;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvement(final T node, final boolean involved) {
+        this.setInvolvement(this.spectra.indexOf(this.spectra.getNode(node)), involved);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvement(final INode<T> node, final boolean involved) {
+        this.setInvolvement(this.spectra.indexOf(node), involved);
+    }
+
+    /**
+     * Set the involvement of a single node.
+     *
+     * @param nodeIndex
+     *            the node index of the node to set the involvement for
+     * @param involved
+     *            true if the node was involved, false otherwise
+     */
+    public void setInvolvement(final int nodeIndex, final boolean involved) {
+        if (this.involvement.get(nodeIndex) != involved) {
+            this.involvement.set(nodeIndex, involved);
+            this.spectra.modified();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvementForIdentifiers(final Map<T, Boolean> nodeInvolvement) {
+        for (final Map.Entry<T, Boolean> cur : nodeInvolvement.entrySet()) {
+            this.setInvolvement(cur.getKey(), cur.getValue());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvementForNodes(final Map<INode<T>, Boolean> nodeInvolvement) {
+        for (final Map.Entry<INode<T>, Boolean> cur : nodeInvolvement.entrySet()) {
+            this.setInvolvement(cur.getKey(), cur.getValue());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isInvolved(final INode<T> node) {
+        if (node instanceof BitsetNode && node.getSpectra() == this.spectra) {
+            return this.involvement.get(((BitsetNode<T>) node).getIndex());
+        }
+        if (!this.spectra.hasNode(node.getIdentifier())) {
+            return false;
+        }
+        return this.involvement.get(this.spectra.indexOf(node));
+    }
+
+    /**
+     * Checks whether the node with the given node index is involved in the current trace.
+     *
+     * @param nodeIndex
+     *            the node index of the node to check
+     * @return true if it was involved, false otherwise
+     */
+    public boolean isInvolved(final int nodeIndex) {
+        return this.involvement.get(nodeIndex);
+    }
+
+    /**
+     * Returns the index of the first involved node with a node index equal to or greater than the given index.
+     *
+     * Iterate over all involved nodes using
+     * <code>for (int i = trace.nextInvolved(0); i >= 0; i = trace.nextInvolved(i + 1))</code>.
+     *
+     * @param fromIndex
+     *            node index to start searching from (inclusive)
+     * @return the node index of the next involved node, or -1 if there is no such node
+     */
+    public int nextInvolved(final int fromIndex) {
+        return this.involvement.nextSetBit(fromIndex);
+    }
+
+    /**
+     * Returns the number of nodes involved in this trace.
+     *
+     * @return involved node count
+     */
+    public int getInvolvedCount() {
+        return this.involvement.cardinality();
+    }
+
+    /**
+     * Returns a copy of the involvement bitset of this trace.
+     *
+     * @return bitset where bit i is set if the node with node index i is involved
+     */
+    public BitSet getInvolvement() {
+        return (BitSet) this.involvement.clone();
+    }
+
+    /**
+     * Provides direct access to the involvement bitset for classes of this package.
+     *
+     * @return the involvement bitset, must not be modified
+     */
+    BitSet involvement() {
+        return this.involvement;
+    }
+}
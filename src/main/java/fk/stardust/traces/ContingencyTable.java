@@ -0,0 +1,262 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the IF, IS, NF and NS counters of all nodes of a spectra in primitive arrays.
+ *
+ * Node <code>i</code> of {@link #getNodes()} corresponds to position <code>i</code> of each counter array. The table is
+ * a snapshot: it is not updated when the spectra changes. Spectra implementations cache their table and recompute it
+ * once their modification count changes, see {@link ISpectra#getContingencyTable()}.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system
+ */
+public final class ContingencyTable<T> {
+
+    /** Holds all nodes of the table in index order */
+    private final List<INode<T>> nodes;
+    /** IF counter of each node */
+    private final int[] involvedFailed;
+    /** IS counter of each node */
+    private final int[] involvedSuccessful;
+    /** NF counter of each node */
+    private final int[] notInvolvedFailed;
+    /** NS counter of each node */
+    private final int[] notInvolvedSuccessful;
+    /** Number of failing traces */
+    private final int failingTraces;
+    /** Number of successful traces */
+    private final int successfulTraces;
+
+    /** Lazily created lookup of node positions for nodes without a known index */
+    private Map<INode<T>, Integer> __cacheIndex; // NOCS
+
+    /**
+     * Creates a contingency table from the involvement counters of all nodes. The NF and NS counters are derived from
+     * the total number of failing and successful traces.
+     *
+     * @param nodes
+     *            all nodes in index order
+     * @param involvedFailed
+     *            IF counter of each node
+     * @param involvedSuccessful
+     *            IS counter of each node
+     * @param failingTraces
+     *            number of failing traces
+     * @param successfulTraces
+     *            number of successful traces
+     */
+    public ContingencyTable(final List<INode<T>> nodes, final int[] involvedFailed, final int[] involvedSuccessful,
+            final int failingTraces, final int successfulTraces) {
+        if (nodes.size() != involvedFailed.length || nodes.size() != involvedSuccessful.length) {
+            throw new IllegalArgumentException("Counter arrays must contain exactly one entry per node.");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.involvedFailed = involvedFailed;
+        this.involvedSuccessful = involvedSuccessful;
+        this.notInvolvedFailed = new int[nodes.size()];
+        this.notInvolvedSuccessful = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            this.notInvolvedFailed[i] = failingTraces - involvedFailed[i];
+            this.notInvolvedSuccessful[i] = successfulTraces - involvedSuccessful[i];
+        }
+        this.failingTraces = failingTraces;
+        this.successfulTraces = successfulTraces;
+    }
+
+    /**
+     * Computes the contingency table of an arbitrary spectra in a single pass over all traces.
+     *
+     * Spectra implementations knowing their internal layout should prefer a specialized computation.
+     *
+     * @param spectra
+     *            the spectra to compute the counters for
+     * @param <T>
+     *            type used to identify nodes in the system
+     * @return contingency table
+     */
+    public static <T> ContingencyTable<T> compute(final ISpectra<T> spectra) {
+        final List<INode<T>> nodes = new ArrayList<>(spectra.getNodes());
+        final int[] involvedFailed = new int[nodes.size()];
+        final int[] involvedSuccessful = new int[nodes.size()];
+        int failing = 0;
+        int successful = 0;
+        for (final ITrace<T> trace : spectra.getTraces()) {
+            final int[] counter;
+            if (trace.isSuccessful()) {
+                successful++;
+                counter = involvedSuccessful;
+            } else {
+                failing++;
+                counter = involvedFailed;
+            }
+            for (int i = 0; i < nodes.size(); i++) {
+                if (trace.isInvolved(nodes.get(i))) {
+                    counter[i]++;
+                }
+            }
+        }
+        return new ContingencyTable<>(nodes, involvedFailed, involvedSuccessful, failing, successful);
+    }
+
+    /**
+     * Returns the number of nodes in this table.
+     *
+     * @return node count
+     */
+    public int getNodeCount() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Returns all nodes of this table in index order.
+     *
+     * @return nodes
+     */
+    public List<INode<T>> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Returns the node at the given position.
+     *
+     * @param index
+     *            position of the node
+     * @return node
+     */
+    public INode<T> getNode(final int index) {
+        return this.nodes.get(index);
+    }
+
+    /**
+     * Returns the position of the given node in this table.
+     *
+     * @param node
+     *            the node to look up
+     * @return the node position or -1 if the node is not part of this table
+     */
+    public int indexOf(final INode<T> node) {
+        synchronized (this) {
+            if (this.__cacheIndex == null) {
+                this.__cacheIndex = new IdentityHashMap<>();
+                for (int i = 0; i < this.nodes.size(); i++) {
+                    this.__cacheIndex.put(this.nodes.get(i), i);
+                }
+            }
+        }
+        final Integer index = this.__cacheIndex.get(node);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the number of failing traces the counters are based on.
+     *
+     * @return failing trace count
+     */
+    public int getFailingTraceCount() {
+        return this.failingTraces;
+    }
+
+    /**
+     * Returns the number of successful traces the counters are based on.
+     *
+     * @return successful trace count
+     */
+    public int getSuccessfulTraceCount() {
+        return this.successfulTraces;
+    }
+
+    /**
+     * Returns the amount of failing traces the node at the given position was involved in.
+     *
+     * @param index
+     *            position of the node
+     * @return IF
+     */
+    public int getIF(final int index) {
+        return this.involvedFailed[index];
+    }
+
+    /**
+     * Returns the amount of successful traces the node at the given position was involved in.
+     *
+     * @param index
+     *            position of the node
+     * @return IS
+     */
+    public int getIS(final int index) {
+        return this.involvedSuccessful[index];
+    }
+
+    /**
+     * Returns the amount of failing traces the node at the given position was not involved in.
+     *
+     * @param index
+     *            position of the node
+     * @return NF
+     */
+    public int getNF(final int index) {
+        return this.notInvolvedFailed[index];
+    }
+
+    /**
+     * Returns the amount of successful traces the node at the given position was not involved in.
+     *
+     * @param index
+     *            position of the node
+     * @return NS
+     */
+    public int getNS(final int index) {
+        return this.notInvolvedSuccessful[index];
+    }
+
+    /**
+     * Returns the IF counters of all nodes. The returned array is shared and must not be modified.
+     *
+     * @return IF counters indexed by node position
+     */
+    public int[] getIFArray() {
+        return this.involvedFailed;
+    }
+
+    /**
+     * Returns the IS counters of all nodes. The returned array is shared and must not be modified.
+     *
+     * @return IS counters indexed by node position
+     */
+    public int[] getISArray() {
+        return this.involvedSuccessful;
+    }
+
+    /**
+     * Returns the NF counters of all nodes. The returned array is shared and must not be modified.
+     *
+     * @return NF counters indexed by node position
+     */
+    public int[] getNFArray() {
+        return this.notInvolvedFailed;
+    }
+
+    /**
+     * Returns the NS counters of all nodes. The returned array is shared and must not be modified.
+     *
+     * @return NS counters indexed by node position
+     */
+    public int[] getNSArray() {
+        return this.notInvolvedSuccessful;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+/**
+ * Represents a single node of a {@link CounterSpectra}. All counters are read from the spectra.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public class CounterNode<T> implements INode<T> {
+
+    /** The identifier of this node */
+    private final T identifier;
+
+    /** The spectra this node belongs to */
+    private final CounterSpectra<T> spectra;
+
+    /** The dense index of this node within its spectra */
+    private final int index;
+
+    /**
+     * Constructs the node
+     *
+     * @param identifier
+     *            the identifier of this node
+     * @param spectra
+     *            the spectra this node belongs to
+     * @param index
+     *            the dense index of this node within the spectra
+     */
+    protected CounterNode(final T identifier, final CounterSpectra<T> spectra, final int index) {
+        this.identifier = identifier;
+        this.spectra = spectra;
+        this.index = index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getIdentifier() {
+        return this.identifier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ICounterSpectra<T> getSpectra() {
+        return this.spectra;
+    }
+
+    /**
+     * Returns the dense index of this node within its spectra.
+     *
+     * @return node index
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNS() {
+        return this.spectra.getNS(this.index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNF() {
+        return this.spectra.getNF(this.index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIS() {
+        return this.spectra.getIS(this.index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIF() {
+        return this.spectra.getIF(this.index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.identifier.toString();
+    }
+}
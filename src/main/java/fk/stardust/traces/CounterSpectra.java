@@ -0,0 +1,204 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spectra that only keeps the IF and IS counters of each node and the number of failing and successful traces.
+ *
+ * The involvement of a trace is folded into the counters when the trace is added and then discarded, thus the memory
+ * required is linear in the number of nodes and independent of the number of traces. This suffices for all fault
+ * localizers that only rely on the contingency table of a spectra, e.g. the spectrum based fault localizers, and allows
+ * to consume an unbounded feed of traces. Since traces are not retained, this is no {@link ISpectra}.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public class CounterSpectra<T> implements ICounterSpectra<T> {
+
+    /** Holds all nodes belonging to this spectra */
+    private final Map<T, CounterNode<T>> nodes = new HashMap<>();
+
+    /** Holds all nodes belonging to this spectra ordered by their node index */
+    private final List<INode<T>> nodeList = new ArrayList<>();
+
+    /** IF counter of each node, indexed by node index */
+    private int[] involvedFailed = new int[16];
+
+    /** IS counter of each node, indexed by node index */
+    private int[] involvedSuccessful = new int[16];
+
+    /** Number of the last trace each node was counted for, used to count each node once per trace */
+    private int[] lastTrace = new int[16];
+
+    /** Number of failing traces */
+    private int failingTraces;
+
+    /** Number of successful traces */
+    private int successfulTraces;
+
+    /** Counts the modifications of this spectra */
+    private long modificationCount;
+
+    /** Holds the modification count the cached contingency table was computed for */
+    private long __cacheTableModificationCount = -1; // NOCS
+    /** caches the contingency table */
+    private ContingencyTable<T> __cacheTable; // NOCS
+
+    /**
+     * Creates a new counter spectra.
+     */
+    public CounterSpectra() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<INode<T>> getNodes() {
+        return new ArrayList<>(this.nodeList);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized INode<T> getNode(final T identifier) {
+        CounterNode<T> node = this.nodes.get(identifier);
+        if (node == null) {
+            final int index = this.nodeList.size();
+            node = new CounterNode<>(identifier, this, index);
+            this.nodes.put(identifier, node);
+            this.nodeList.add(node);
+            if (index == this.involvedFailed.length) {
+                this.involvedFailed = Arrays.copyOf(this.involvedFailed, index * 2);
+                this.involvedSuccessful = Arrays.copyOf(this.involvedSuccessful, index * 2);
+                this.lastTrace = Arrays.copyOf(this.lastTrace, index * 2);
+            }
+            this.modificationCount++;
+        }
+        return node;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean hasNode(final T identifier) {
+        return this.nodes.containsKey(identifier);
+    }
+
+    /**
+     * Adds a trace by incrementing the counters of all involved nodes. All nodes covered by the trace that are not yet
+     * part of this spectra are created. A node covered multiple times by the trace is counted at most once, it is
+     * considered involved if any of its occurrences is involved.
+     *
+     * @param trace
+     *            the trace to add
+     */
+    public synchronized void addTrace(final TraceRecord<T> trace) {
+        final int number = this.failingTraces + this.successfulTraces + 1;
+        final List<T> covered = trace.getNodes();
+        for (int i = 0; i < covered.size(); i++) {
+            final int index = ((CounterNode<T>) this.getNode(covered.get(i))).getIndex();
+            if (trace.isInvolved(i) && this.lastTrace[index] != number) {
+                this.lastTrace[index] = number;
+                (trace.isSuccessful() ? this.involvedSuccessful : this.involvedFailed)[index]++;
+            }
+        }
+        if (trace.isSuccessful()) {
+            this.successfulTraces++;
+        } else {
+            this.failingTraces++;
+        }
+        this.modificationCount++;
+    }
+
+    /**
+     * Returns the number of traces added to this spectra.
+     *
+     * @return trace count
+     */
+    public synchronized int getTraceCount() {
+        return this.failingTraces + this.successfulTraces;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ContingencyTable<T> getContingencyTable() {
+        if (this.__cacheTable == null || this.__cacheTableModificationCount != this.modificationCount) {
+            final int size = this.nodeList.size();
+            this.__cacheTable = new ContingencyTable<>(this.nodeList, Arrays.copyOf(this.involvedFailed, size),
+                    Arrays.copyOf(this.involvedSuccessful, size), this.failingTraces, this.successfulTraces);
+            this.__cacheTableModificationCount = this.modificationCount;
+        }
+        return this.__cacheTable;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getModificationCount() {
+        return this.modificationCount;
+    }
+
+    /**
+     * Returns the IF counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return IF
+     */
+    synchronized int getIF(final int index) {
+        return this.involvedFailed[index];
+    }
+
+    /**
+     * Returns the IS counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return IS
+     */
+    synchronized int getIS(final int index) {
+        return this.involvedSuccessful[index];
+    }
+
+    /**
+     * Returns the NF counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return NF
+     */
+    synchronized int getNF(final int index) {
+        return this.failingTraces - this.involvedFailed[index];
+    }
+
+    /**
+     * Returns the NS counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return NS
+     */
+    synchronized int getNS(final int index) {
+        return this.successfulTraces - this.involvedSuccessful[index];
+    }
+}
@@ -10,6 +10,7 @@
 package fk.stardust.traces;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -19,6 +20,13 @@ import java.util.Set;
 
 
 /**
+ * Spectra whose nodes aggregate nodes of a child spectra, e.g. methods aggregating lines. A parent node is involved in
+ * a trace if at least one of its children is involved in the corresponding child trace.
+ *
+ * By default the involvement of each parent node is materialized once into a bitset over all traces, which is the
+ * OR-reduction of the involvement of its children. Materialized levels are cached until either this spectra or its
+ * child spectra is modified. If the child spectra is a materialized hierarchical spectra as well, the bitsets of the
+ * child level are reused directly, thus nested levels never walk the bottom level more than once.
  *
  * @param <P>
  *            parent node identifier type
@@ -36,15 +44,42 @@ public class HierarchicalSpectra<P, C> extends Spectra<P> {
     /** Holds a map of all child traces that are mapped to hierarchical traces of this spectra. */
     Map<ITrace<C>, HierarchicalTrace> traceMap = new HashMap<>();
 
+    /** True if the involvement of the parent nodes is materialized into bitsets */
+    private final boolean materialize;
+
+    /** Holds the modification count the cached level was materialized for */
+    private long __cacheLevelModificationCount = -1; // NOCS
+    /** caches the materialized involvement of this level */
+    private Level<C> __cacheLevel; // NOCS
+
+    /** Holds the child modification count the cached trace views were created for */
+    private long __cacheTracesModificationCount = -1; // NOCS
+    /** caches the ordered trace views of this spectra */
+    private TraceViews<P> __cacheTraces; // NOCS
+
     /**
-     * Creates a new parent spectra object.
+     * Creates a new parent spectra object that materializes the involvement of its nodes.
      *
      * @param childSpectra
      *            the child spectra to fetch involvement information from
      */
     public HierarchicalSpectra(final ISpectra<C> childSpectra) {
+        this(childSpectra, true);
+    }
+
+    /**
+     * Creates a new parent spectra object.
+     *
+     * @param childSpectra
+     *            the child spectra to fetch involvement information from
+     * @param materialize
+     *            true to materialize the involvement of the parent nodes into bitsets, false to compute the
+     *            involvement from the child nodes on each query
+     */
+    public HierarchicalSpectra(final ISpectra<C> childSpectra, final boolean materialize) {
         super();
         this.childSpectra = childSpectra;
+        this.materialize = materialize;
     }
 
     /**
@@ -68,7 +103,9 @@ public class HierarchicalSpectra<P, C> extends Spectra<P> {
      *            the child node to be added under the parent node
      */
     public void setParent(final INode<P> parentNode, final INode<C> childNode) {
-        this.childrenOf(parentNode).add(childNode);
+        if (this.childrenOf(parentNode).add(childNode)) {
+            this.modified();
+        }
     }
 
     /**
@@ -103,23 +140,276 @@ public class HierarchicalSpectra<P, C> extends Spectra<P> {
         throw new IllegalStateException("Cannot add new trace in hierarchical spectra");
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The traces are ordered like the traces of the child spectra. The returned list is cached until the child spectra
+     * is modified and must not be modified.
+     */
     @Override
     public List<ITrace<P>> getTraces() {
-        // if not yet stored add hierarchical traces for all available child traces to this spectra
-        if (this.traceMap.size() != this.childSpectra.getTraces().size()) {
-            for (final ITrace<C> childTrace : this.childSpectra.getTraces()) {
-                if (!this.traceMap.containsKey(childTrace)) {
-                    this.traceMap.put(childTrace, new HierarchicalTrace(this, childTrace));
+        return this.traces().all;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned list is cached until the child spectra is modified and must not be modified.
+     */
+    @Override
+    public List<ITrace<P>> getFailingTraces() {
+        return this.traces().failing;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned list is cached until the child spectra is modified and must not be modified.
+     */
+    @Override
+    public List<ITrace<P>> getSuccessfulTraces() {
+        return this.traces().successful;
+    }
+
+    /**
+     * Returns the cached trace views of this spectra, creating them if the child spectra was modified.
+     *
+     * @return trace views
+     */
+    private synchronized TraceViews<P> traces() {
+        final long modifications = this.childSpectra.getModificationCount();
+        if (this.__cacheTraces == null || this.__cacheTracesModificationCount != modifications) {
+            final List<ITrace<C>> childTraces = this.childSpectra.getTraces();
+            final List<ITrace<P>> all = new ArrayList<>(childTraces.size());
+            final List<ITrace<P>> failing = new ArrayList<>();
+            final List<ITrace<P>> successful = new ArrayList<>();
+            for (final ITrace<C> childTrace : childTraces) {
+                HierarchicalTrace trace = this.traceMap.get(childTrace);
+                if (trace == null) {
+                    trace = new HierarchicalTrace(this, childTrace);
+                    this.traceMap.put(childTrace, trace);
                 }
+                all.add(trace);
+                (trace.isSuccessful() ? successful : failing).add(trace);
             }
+            this.__cacheTraces = new TraceViews<>(all, failing, successful);
+            this.__cacheTracesModificationCount = modifications;
+        }
+        return this.__cacheTraces;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A hierarchical spectra is also modified whenever its child spectra is modified.
+     */
+    @Override
+    public long getModificationCount() {
+        return super.getModificationCount() + this.childSpectra.getModificationCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ContingencyTable<P> computeContingencyTable() {
+        if (!this.materialize) {
+            return ContingencyTable.compute(this);
+        }
+        final Level<C> level = this.level();
+        final List<INode<P>> nodes = this.getNodes();
+        final int[] involvedFailed = new int[nodes.size()];
+        final int[] involvedSuccessful = new int[nodes.size()];
+        final BitSet successful = new BitSet();
+        for (int i = 0; i < nodes.size(); i++) {
+            successful.clear();
+            successful.or(level.successful);
+            successful.and(level.columns[i]);
+            involvedSuccessful[i] = successful.cardinality();
+            involvedFailed[i] = level.columns[i].cardinality() - involvedSuccessful[i];
+        }
+        final int successfulTraces = level.successful.cardinality();
+        return new ContingencyTable<>(nodes, involvedFailed, involvedSuccessful, level.traces.size()
+                - successfulTraces, successfulTraces);
+    }
+
+    /**
+     * Returns the materialized involvement of this level, materializing it if the cached level is outdated.
+     *
+     * @return materialized level
+     */
+    private synchronized Level<C> level() {
+        final long modifications = this.getModificationCount();
+        if (this.__cacheLevel == null || this.__cacheLevelModificationCount != modifications) {
+            this.__cacheLevel = this.materializeLevel();
+            this.__cacheLevelModificationCount = modifications;
+        }
+        return this.__cacheLevel;
+    }
+
+    /**
+     * Returns the involvement of the given nodes over all trace positions of {@link #getTraces()}.
+     *
+     * Materialized levels are used where they are up to date. Otherwise only the subtrees below the given nodes are
+     * evaluated, thus the involvement of a few nodes is available without materializing the whole level.
+     *
+     * @param nodes
+     *            nodes of this spectra
+     * @return involvement of each node, bit t is set if the node is involved in trace t
+     */
+    public BitSet[] getInvolvement(final List<INode<P>> nodes) {
+        ISpectra<?> bottom = this.childSpectra;
+        while (bottom instanceof HierarchicalSpectra) {
+            bottom = ((HierarchicalSpectra<?, ?>) bottom).childSpectra;
         }
+        final List<? extends ITrace<?>> bottomTraces = bottom.getTraces();
+        final BitSet[] involvement = new BitSet[nodes.size()];
+        for (int i = 0; i < involvement.length; i++) {
+            involvement[i] = (BitSet) this.involvement(nodes.get(i), bottomTraces).clone();
+        }
+        return involvement;
+    }
 
-        // Due to some reason no direct cast from Collection<HierarchicalTrace> to Collection<ITrace<P>> is possible
-        final List<ITrace<P>> hierarchicalTraces = new ArrayList<>();
-        for (final HierarchicalTrace trace : this.traceMap.values()) {
-            hierarchicalTraces.add(trace);
+    /**
+     * Returns the involvement of a single node, using the materialized level if it is up to date.
+     *
+     * @param node
+     *            node of this spectra
+     * @param bottomTraces
+     *            the traces of the bottom level spectra
+     * @return involvement of the node, must not be modified
+     */
+    @SuppressWarnings("unchecked")
+    private BitSet involvement(final INode<P> node, final List<? extends ITrace<?>> bottomTraces) {
+        synchronized (this) {
+            if (this.__cacheLevel != null && this.__cacheLevelModificationCount == this.getModificationCount()) {
+                final BitSet column = this.__cacheLevel.column(node);
+                if (column != null) {
+                    return column;
+                }
+            }
+        }
+        final BitSet involvement = new BitSet(bottomTraces.size());
+        final Set<INode<C>> children = this.relation.get(node);
+        if (children == null) {
+            return involvement;
+        }
+        for (final INode<C> child : children) {
+            if (this.childSpectra instanceof HierarchicalSpectra) {
+                involvement.or(((HierarchicalSpectra<C, ?>) this.childSpectra).involvement(child, bottomTraces));
+            } else {
+                for (int t = 0; t < bottomTraces.size(); t++) {
+                    if (((ITrace<C>) bottomTraces.get(t)).isInvolved(child)) {
+                        involvement.set(t);
+                    }
+                }
+            }
         }
-        return hierarchicalTraces;
+        return involvement;
+    }
+
+    /**
+     * Materializes the involvement of all parent nodes by OR-reducing the involvement of their children.
+     *
+     * @return materialized level
+     */
+    @SuppressWarnings("unchecked")
+    private Level<C> materializeLevel() {
+        // reuse the materialized child level if possible, so its bitsets share the trace positions of this level
+        final Level<?> childLevel;
+        final List<ITrace<C>> traces;
+        if (this.childSpectra instanceof HierarchicalSpectra
+                && ((HierarchicalSpectra<C, ?>) this.childSpectra).materialize) {
+            final HierarchicalSpectra<C, ?> child = (HierarchicalSpectra<C, ?>) this.childSpectra;
+            // ensures the child has a hierarchical trace for each of its child traces
+            child.traces();
+            childLevel = child.level();
+            traces = new ArrayList<>(childLevel.traces.size());
+            for (final ITrace<?> childTrace : childLevel.traces) {
+                traces.add(child.traceMap.get(childTrace));
+            }
+        } else {
+            childLevel = null;
+            traces = this.childSpectra.getTraces();
+        }
+
+        final Map<ITrace<C>, Integer> positions = new HashMap<>();
+        final BitSet successful = new BitSet(traces.size());
+        for (int t = 0; t < traces.size(); t++) {
+            positions.put(traces.get(t), t);
+            successful.set(t, traces.get(t).isSuccessful());
+        }
+
+        final List<INode<P>> nodes = this.getNodes();
+        final BitSet[] columns = new BitSet[nodes.size()];
+        final Map<INode<C>, BitSet> childColumns = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            columns[i] = new BitSet(traces.size());
+            final Set<INode<C>> children = this.relation.get(nodes.get(i));
+            if (children == null) {
+                continue;
+            }
+            for (final INode<C> childNode : children) {
+                BitSet childColumn = childLevel == null ? null : childLevel.column(childNode);
+                if (childColumn == null) {
+                    childColumn = childColumns.get(childNode);
+                }
+                if (childColumn == null) {
+                    childColumn = new BitSet(traces.size());
+                    for (int t = 0; t < traces.size(); t++) {
+                        if (traces.get(t).isInvolved(childNode)) {
+                            childColumn.set(t);
+                        }
+                    }
+                    childColumns.put(childNode, childColumn);
+                }
+                columns[i].or(childColumn);
+            }
+        }
+        return new Level<>(traces, positions, successful, columns, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The counters of a hierarchical spectra depend on the child spectra, thus all nodes are considered changed.
+     */
+    @Override
+    public List<INode<P>> pollChangedNodes() {
+        super.pollChangedNodes();
+        return this.getNodes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getIF(final int index) {
+        return this.getContingencyTable().getIF(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getIS(final int index) {
+        return this.getContingencyTable().getIS(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getNF(final int index) {
+        return this.getContingencyTable().getNF(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getNS(final int index) {
+        return this.getContingencyTable().getNS(index);
     }
 
     /**
@@ -131,6 +421,116 @@ public class HierarchicalSpectra<P, C> extends Spectra<P> {
         return this.childSpectra;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The traces of a hierarchical spectra are derived from its child spectra, thus it cannot be cloned on its own.
+     *
+     * @throws CloneNotSupportedException
+     *             always
+     */
+    @Override
+    public Spectra<P> clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException("Hierarchical spectra cannot be cloned.");
+    }
+
+    /**
+     * Immutable views of all, failing and successful traces of a hierarchical spectra.
+     *
+     * @param <P>
+     *            parent node identifier type
+     */
+    private static final class TraceViews<P> {
+
+        /** All traces ordered like the child traces */
+        private final List<ITrace<P>> all;
+
+        /** All failing traces ordered like the child traces */
+        private final List<ITrace<P>> failing;
+
+        /** All successful traces ordered like the child traces */
+        private final List<ITrace<P>> successful;
+
+        /**
+         * Creates the trace views.
+         *
+         * @param all
+         *            all traces
+         * @param failing
+         *            all failing traces
+         * @param successful
+         *            all successful traces
+         */
+        private TraceViews(final List<ITrace<P>> all, final List<ITrace<P>> failing,
+                final List<ITrace<P>> successful) {
+            this.all = Collections.unmodifiableList(all);
+            this.failing = Collections.unmodifiableList(failing);
+            this.successful = Collections.unmodifiableList(successful);
+        }
+    }
+
+    /**
+     * The materialized involvement of a hierarchical spectra.
+     *
+     * @param <C>
+     *            child node identifier type
+     */
+    private static final class Level<C> {
+
+        /** The child traces in position order */
+        private final List<ITrace<C>> traces;
+
+        /** Holds the position of each child trace */
+        private final Map<ITrace<C>, Integer> positions;
+
+        /** Bit t is set if trace t is successful */
+        private final BitSet successful;
+
+        /** Involvement of each parent node over all trace positions, indexed by node index */
+        private final BitSet[] columns;
+
+        /** The spectra this level was materialized for */
+        private final Spectra<?> spectra;
+
+        /**
+         * Creates a materialized level.
+         *
+         * @param traces
+         *            the child traces in position order
+         * @param positions
+         *            the position of each child trace
+         * @param successful
+         *            bit t is set if trace t is successful
+         * @param columns
+         *            involvement of each parent node, indexed by node index
+         * @param spectra
+         *            the spectra this level was materialized for
+         */
+        private Level(final List<ITrace<C>> traces, final Map<ITrace<C>, Integer> positions,
+                final BitSet successful, final BitSet[] columns, final Spectra<?> spectra) {
+            this.traces = traces;
+            this.positions = positions;
+            this.successful = successful;
+            this.columns = columns;
+            this.spectra = spectra;
+        }
+
+        /**
+         * Returns the materialized involvement of the given node over all trace positions.
+         *
+         * @param node
+         *            a node of the spectra this level was materialized for
+         * @return involvement or null if the node is not part of this level
+         */
+        private BitSet column(final INode<?> node) {
+            if (node instanceof Node && node.getSpectra() == this.spectra) {
+                final int index = ((Node<?>) node).getIndex();
+                return index < this.columns.length ? this.columns[index] : null;
+            }
+            return null;
+        }
+    }
+
     /**
      * This trace implementation ensures the involvement of all child nodes of a parent node are compiled into a single
      * involvement information.
@@ -167,6 +567,14 @@ public class HierarchicalSpectra<P, C> extends Spectra<P> {
 
         @Override
         public boolean isInvolved(final INode<P> node) {
+            if (HierarchicalSpectra.this.materialize) {
+                final Level<C> level = HierarchicalSpectra.this.level();
+                final BitSet column = level.column(node);
+                final Integer position = level.positions.get(this.childTrace);
+                if (column != null && position != null) {
+                    return column.get(position);
+                }
+            }
             for (final INode<C> childNode : HierarchicalSpectra.this.childrenOf(node)) {
                 if (this.childTrace.isInvolved(childNode)) {
                     return true;
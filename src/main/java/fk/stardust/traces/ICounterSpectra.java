@@ -0,0 +1,66 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.List;
+
+/**
+ * Provides the interface of a spectra that holds the nodes and their counters, but not necessarily the traces.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public interface ICounterSpectra<T> {
+
+    /**
+     * Returns all nodes of this spectra.
+     *
+     * @return nodes
+     */
+    public abstract List<INode<T>> getNodes();
+
+    /**
+     * Returns the node for the given identifier.
+     *
+     * If the node is not present in the current spectra, the node will be created.
+     *
+     * @param identifier
+     *            identifier
+     * @return the spectra node object for the identifier
+     */
+    public abstract INode<T> getNode(T identifier);
+
+    /**
+     * Checks whether the node with the given identifier is present in the current spectra.
+     *
+     * @param identifier
+     *            of the node
+     * @return true if it is present, false otherwise
+     */
+    public abstract boolean hasNode(T identifier);
+
+    /**
+     * Returns the IF, IS, NF and NS counters of all nodes in this spectra.
+     *
+     * The counters of all nodes are computed at once and cached until the spectra is modified.
+     *
+     * @return contingency table of all nodes
+     */
+    public abstract ContingencyTable<T> getContingencyTable();
+
+    /**
+     * Returns a counter that changes whenever nodes or traces are added to this spectra or the involvement of a node
+     * in a trace changes.
+     *
+     * @return modification count
+     */
+    public abstract long getModificationCount();
+
+}
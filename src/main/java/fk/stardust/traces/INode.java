@@ -30,7 +30,7 @@ public interface INode<T> {
      *
      * @return spectra
      */
-    public abstract ISpectra<T> getSpectra();
+    public abstract ICounterSpectra<T> getSpectra();
 
     /**
      * Returns the amount of traces this node was not involved in, but passed.
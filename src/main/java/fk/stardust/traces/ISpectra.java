@@ -13,37 +13,12 @@ import java.util.List;
 
 
 /**
- * Provides the interface that can represent a whole spectra.
+ * Provides the interface that can represent a whole spectra, i.e. the nodes and all traces.
  *
  * @param <T>
  *            type used to identify nodes in the system.
  */
-public interface ISpectra<T> {
-
-    /**
-     * {@inheritDoc}
-     */
-    public abstract List<INode<T>> getNodes();
-
-    /**
-     * Returns the node for the given identifier.
-     *
-     * If the node is not present in the current spectra, the node will be created.
-     *
-     * @param identifier
-     *            identifier
-     * @return the spectra node object for the identifier
-     */
-    public abstract INode<T> getNode(T identifier);
-
-    /**
-     * Checks whether the node with the given identifier is present in the current spectra.
-     *
-     * @param identifier
-     *            of the node
-     * @return true if it is present, false otherwise
-     */
-    public abstract boolean hasNode(T identifier);
+public interface ISpectra<T> extends ICounterSpectra<T> {
 
     /**
      * Returns a list of all traces available in the spectra.
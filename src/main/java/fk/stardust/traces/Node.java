@@ -22,19 +22,10 @@ public class Node<T> implements INode<T> {
     private final T identifier;
 
     /** The spectra this node belongs to */
-    private final ISpectra<T> spectra;
+    private final Spectra<T> spectra;
 
-
-    /** Holds the number of traces that were available in the spectra when the cache was created */
-    private Integer __cacheTraceCount; // NOCS
-    /** cache IF */
-    private Integer __cacheIF; // NOCS
-    /** cache IS */
-    private Integer __cacheIS; // NOCS
-    /** cache NF */
-    private Integer __cacheNF; // NOCS
-    /** cache IS */
-    private Integer __cacheNS; // NOCS
+    /** The position of this node in the contingency table of its spectra */
+    private final int index;
 
     /**
      * Constructs the node
@@ -43,10 +34,13 @@ public class Node<T> implements INode<T> {
      *            the identifier of this node
      * @param spectra
      *            the spectra this node belongs to
+     * @param index
+     *            the position of this node in the contingency table of the spectra
      */
-    protected Node(final T identifier, final ISpectra<T> spectra) {
+    protected Node(final T identifier, final Spectra<T> spectra, final int index) {
         this.identifier = identifier;
         this.spectra = spectra;
+        this.index = index;
     }
 
     /*
@@ -76,16 +70,7 @@ public class Node<T> implements INode<T> {
      */
     @Override
     public int getNS() {
-        if (this.cacheOutdated() || null == this.__cacheNS) {
-            int count = 0;
-            for (final ITrace<T> trace : this.spectra.getTraces()) {
-                if (trace.isSuccessful() && !trace.isInvolved(this)) {
-                    count++;
-                }
-            }
-            this.__cacheNS = count;
-        }
-        return this.__cacheNS;
+        return this.spectra.getNS(this.index);
     }
 
     /*
@@ -95,16 +80,7 @@ public class Node<T> implements INode<T> {
      */
     @Override
     public int getNF() {
-        if (this.cacheOutdated() || null == this.__cacheNF) {
-            int count = 0;
-            for (final ITrace<T> trace : this.spectra.getTraces()) {
-                if (!trace.isSuccessful() && !trace.isInvolved(this)) {
-                    count++;
-                }
-            }
-            this.__cacheNF = count;
-        }
-        return this.__cacheNF;
+        return this.spectra.getNF(this.index);
     }
 
     /*
@@ -114,16 +90,7 @@ public class Node<T> implements INode<T> {
      */
     @Override
     public int getIS() {
-        if (this.cacheOutdated() || null == this.__cacheIS) {
-            int count = 0;
-            for (final ITrace<T> trace : this.spectra.getTraces()) {
-                if (trace.isSuccessful() && trace.isInvolved(this)) {
-                    count++;
-                }
-            }
-            this.__cacheIS = count;
-        }
-        return this.__cacheIS;
+        return this.spectra.getIS(this.index);
     }
 
     /*
@@ -133,25 +100,16 @@ public class Node<T> implements INode<T> {
      */
     @Override
     public int getIF() {
-        if (this.cacheOutdated() || null == this.__cacheIF) {
-            int count = 0;
-            for (final ITrace<T> trace : this.spectra.getTraces()) {
-                if (!trace.isSuccessful() && trace.isInvolved(this)) {
-                    count++;
-                }
-            }
-            this.__cacheIF = count;
-        }
-        return this.__cacheIF;
+        return this.spectra.getIF(this.index);
     }
 
     /**
-     * Check if the cache is outdated
+     * Returns the position of this node in the contingency table of its spectra.
      *
-     * @return true if the cache is outdated, false otherwise.
+     * @return node index
      */
-    private boolean cacheOutdated() {
-        return null == this.__cacheTraceCount || this.__cacheTraceCount != this.spectra.getTraces().size();
+    public int getIndex() {
+        return this.index;
     }
 
     /**
@@ -0,0 +1,181 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the nodes of a spectra into equivalence classes of nodes with identical involvement columns.
+ *
+ * Nodes of the same class are involved in exactly the same traces, e.g. all lines of a basic block, and are thus
+ * indistinguishable for any fault localizer. The involvement columns are hashed once, each class is represented by
+ * its first node in the order of {@link ISpectra#getNodes()}. The reduced spectra holds only the representatives and
+ * can be localized instead of the original spectra, the score of a representative then applies to all members of its
+ * class.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public final class NodeEquivalenceClasses<T> {
+
+    /** Holds all nodes of the original spectra */
+    private final List<INode<T>> nodes;
+
+    /** Holds the equivalence class of each node, indexed like {@link #nodes} */
+    private final int[] classes;
+
+    /** Holds the position of the representative of each class in {@link #nodes} */
+    private final int[] representatives;
+
+    /** Holds the spectra containing only the representative of each class, node index i belongs to class i */
+    private final BitsetSpectra<T> reducedSpectra;
+
+    /**
+     * Computes the equivalence classes of the nodes of the given spectra.
+     *
+     * @param spectra
+     *            the spectra to group the nodes of
+     */
+    public NodeEquivalenceClasses(final ISpectra<T> spectra) {
+        super();
+        this.nodes = new ArrayList<>(spectra.getNodes());
+        final List<ITrace<T>> traces = spectra.getTraces();
+        final BitSet[] columns = columns(spectra, this.nodes, traces);
+
+        // group the nodes by hashing their columns
+        final Map<BitSet, Integer> classOfColumn = new HashMap<>();
+        final List<Integer> representativeList = new ArrayList<>();
+        this.classes = new int[this.nodes.size()];
+        for (int i = 0; i < columns.length; i++) {
+            Integer equivalenceClass = classOfColumn.get(columns[i]);
+            if (equivalenceClass == null) {
+                equivalenceClass = representativeList.size();
+                classOfColumn.put(columns[i], equivalenceClass);
+                representativeList.add(i);
+            }
+            this.classes[i] = equivalenceClass;
+        }
+        this.representatives = new int[representativeList.size()];
+        for (int c = 0; c < this.representatives.length; c++) {
+            this.representatives[c] = representativeList.get(c);
+        }
+
+        // create the reduced spectra holding one node per class
+        this.reducedSpectra = new BitsetSpectra<>();
+        final BitSet[] rows = new BitSet[traces.size()];
+        for (int t = 0; t < rows.length; t++) {
+            rows[t] = new BitSet(this.representatives.length);
+        }
+        for (int c = 0; c < this.representatives.length; c++) {
+            this.reducedSpectra.getNode(this.nodes.get(this.representatives[c]).getIdentifier());
+            final BitSet column = columns[this.representatives[c]];
+            for (int t = column.nextSetBit(0); t >= 0; t = column.nextSetBit(t + 1)) {
+                rows[t].set(c);
+            }
+        }
+        for (int t = 0; t < rows.length; t++) {
+            this.reducedSpectra.addTrace(traces.get(t).isSuccessful(), rows[t]);
+        }
+    }
+
+    /**
+     * Computes the involvement column of each node.
+     *
+     * @param spectra
+     *            the spectra to compute the columns of
+     * @param nodes
+     *            the nodes of the spectra
+     * @param traces
+     *            the traces of the spectra
+     * @return bit t of column i is set if node i is involved in trace t
+     */
+    private static <T> BitSet[] columns(final ISpectra<T> spectra, final List<INode<T>> nodes,
+            final List<ITrace<T>> traces) {
+        final BitSet[] columns = new BitSet[nodes.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new BitSet(traces.size());
+        }
+        final boolean indexed = spectra instanceof BitsetSpectra;
+        for (int t = 0; t < traces.size(); t++) {
+            final ITrace<T> trace = traces.get(t);
+            if (indexed && trace instanceof BitsetTrace) {
+                // the node list of a bitset spectra is ordered by node index
+                final BitsetTrace<T> bitsetTrace = (BitsetTrace<T>) trace;
+                for (int i = bitsetTrace.nextInvolved(0); i >= 0; i = bitsetTrace.nextInvolved(i + 1)) {
+                    columns[i].set(t);
+                }
+            } else {
+                for (int i = 0; i < columns.length; i++) {
+                    if (trace.isInvolved(nodes.get(i))) {
+                        columns[i].set(t);
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Returns all nodes of the original spectra.
+     *
+     * @return nodes in the order of {@link ISpectra#getNodes()}
+     */
+    public List<INode<T>> getNodes() {
+        return Collections.unmodifiableList(this.nodes);
+    }
+
+    /**
+     * Returns the number of equivalence classes.
+     *
+     * @return class count
+     */
+    public int getClassCount() {
+        return this.representatives.length;
+    }
+
+    /**
+     * Returns the equivalence class of the node at the given position of {@link #getNodes()}.
+     *
+     * @param position
+     *            the position of the node
+     * @return equivalence class, equal to the node index of its representative in the reduced spectra
+     */
+    public int getClassOf(final int position) {
+        return this.classes[position];
+    }
+
+    /**
+     * Returns the representative of the given equivalence class.
+     *
+     * @param equivalenceClass
+     *            the equivalence class
+     * @return node of the original spectra representing the class
+     */
+    public INode<T> getRepresentative(final int equivalenceClass) {
+        return this.nodes.get(this.representatives[equivalenceClass]);
+    }
+
+    /**
+     * Returns the spectra holding only the representative of each equivalence class.
+     *
+     * The node with node index i represents class i. The traces equal the traces of the original spectra in order and
+     * success, restricted to the representatives.
+     *
+     * @return reduced spectra
+     */
+    public BitsetSpectra<T> getReducedSpectra() {
+        return this.reducedSpectra;
+    }
+}
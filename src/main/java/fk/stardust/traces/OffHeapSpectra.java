@@ -0,0 +1,572 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spectra implementation that keeps the involvement matrix outside of the Java heap.
+ *
+ * The involvement of each trace is stored as a row of 64 bit words, bit <code>i</code> of a row denotes the
+ * involvement of the node with node index <code>i</code>. Rows are stored in memory mapped blocks of a temporary file,
+ * thus neither the garbage collector nor the direct memory limit is burdened by the matrix and spectra larger than the
+ * heap can be processed. Only the node dictionary and the success state of each trace are kept on the heap.
+ *
+ * Traces are addressed by their trace index. {@link #getTraces()} returns lightweight views that are created on
+ * access, the primitive methods {@link #isInvolved(int, int)} and {@link #nextInvolved(int, int)} avoid creating
+ * trace objects altogether. The counters of all nodes are computed in a single pass over the matrix, see
+ * {@link #getContingencyTable()}.
+ *
+ * The spectra must be closed once it is no longer needed in order to release the backing file.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public class OffHeapSpectra<T> implements ISpectra<T>, Closeable {
+
+    /** Default size of a single memory mapped block in bytes */
+    private static final int DEFAULT_BLOCK_SIZE = 64 * 1024 * 1024;
+
+    /** Default number of nodes a row can hold before the matrix needs to be widened */
+    private static final int DEFAULT_NODE_CAPACITY = 1024;
+
+    /** Maps node identifiers to their interned nodes */
+    private final Map<T, OffHeapNode<T>> identifiers = new HashMap<>();
+
+    /** Holds all nodes of this spectra, the position of each node equals its node index */
+    private final List<INode<T>> nodes = new ArrayList<>();
+
+    /** Bit i is set if trace i is successful */
+    private final BitSet successful = new BitSet();
+
+    /** Size of a single memory mapped block in bytes */
+    private final int blockSize;
+
+    /** Holds the involvement matrix */
+    private Matrix matrix;
+
+    /** Number of traces in this spectra */
+    private int traceCount;
+
+    /** Counts the modifications of this spectra, used to invalidate the cached contingency table */
+    private long modificationCount;
+
+    /** Holds the modification count the cached contingency table was computed for */
+    private long __cacheTableModificationCount = -1; // NOCS
+    /** caches the contingency table */
+    private ContingencyTable<T> __cacheTable; // NOCS
+
+    /**
+     * Creates a new off-heap spectra.
+     */
+    public OffHeapSpectra() {
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Creates a new off-heap spectra.
+     *
+     * @param nodeCapacity
+     *            the number of nodes expected, avoids widening the matrix if the number of nodes is known beforehand
+     */
+    public OffHeapSpectra(final int nodeCapacity) {
+        this(nodeCapacity, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new off-heap spectra.
+     *
+     * @param nodeCapacity
+     *            the number of nodes expected, avoids widening the matrix if the number of nodes is known beforehand
+     * @param blockSize
+     *            size of a single memory mapped block in bytes
+     */
+    OffHeapSpectra(final int nodeCapacity, final int blockSize) {
+        super();
+        this.blockSize = blockSize;
+        this.matrix = new Matrix(words(Math.max(1, nodeCapacity)), blockSize);
+    }
+
+    /**
+     * Creates an off-heap spectra holding the same nodes and traces as the given spectra.
+     *
+     * @param spectra
+     *            the spectra to copy
+     * @param <T>
+     *            type used to identify nodes in the system.
+     * @return off-heap copy of the given spectra
+     */
+    public static <T> OffHeapSpectra<T> copyOf(final ISpectra<T> spectra) {
+        final List<INode<T>> sourceNodes = spectra.getNodes();
+        final OffHeapSpectra<T> copy = new OffHeapSpectra<>(sourceNodes.size());
+        for (final INode<T> node : sourceNodes) {
+            copy.getNode(node.getIdentifier());
+        }
+        for (final ITrace<T> trace : spectra.getTraces()) {
+            final int traceIndex = copy.addTrace(trace.isSuccessful()).getIndex();
+            for (int index = 0; index < sourceNodes.size(); index++) {
+                if (trace.isInvolved(sourceNodes.get(index))) {
+                    copy.setInvolvement(traceIndex, index, true);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned list is ordered by node index and may not be modified.
+     */
+    @Override
+    public List<INode<T>> getNodes() {
+        return Collections.unmodifiableList(this.nodes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public INode<T> getNode(final T identifier) {
+        return this.intern(identifier);
+    }
+
+    /**
+     * Returns the node with the given node index.
+     *
+     * @param index
+     *            the dense index of the node
+     * @return node
+     */
+    public INode<T> getNode(final int index) {
+        return this.nodes.get(index);
+    }
+
+    /**
+     * Returns the number of nodes in this spectra.
+     *
+     * @return node count
+     */
+    public int getNodeCount() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Returns the dense node index of the given node.
+     *
+     * @param node
+     *            a node of this spectra
+     * @return node index
+     */
+    public int indexOf(final INode<T> node) {
+        if (node instanceof OffHeapNode && node.getSpectra() == this) {
+            return ((OffHeapNode<T>) node).getIndex();
+        }
+        return this.intern(node.getIdentifier()).getIndex();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNode(final T identifier) {
+        return this.identifiers.containsKey(identifier);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned list creates a lightweight view for each accessed trace and may not be modified.
+     */
+    @Override
+    public List<ITrace<T>> getTraces() {
+        return new AbstractList<ITrace<T>>() {
+
+            @Override
+            public ITrace<T> get(final int index) {
+                return OffHeapSpectra.this.getTrace(index);
+            }
+
+            @Override
+            public int size() {
+                return OffHeapSpectra.this.traceCount;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ITrace<T>> getFailingTraces() {
+        final List<ITrace<T>> failingTraces = new ArrayList<>();
+        for (int i = this.successful.nextClearBit(0); i < this.traceCount; i = this.successful.nextClearBit(i + 1)) {
+            failingTraces.add(this.getTrace(i));
+        }
+        return failingTraces;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ITrace<T>> getSuccessfulTraces() {
+        final List<ITrace<T>> successTraces = new ArrayList<>();
+        for (int i = this.successful.nextSetBit(0); i >= 0; i = this.successful.nextSetBit(i + 1)) {
+            successTraces.add(this.getTrace(i));
+        }
+        return successTraces;
+    }
+
+    /**
+     * Returns a view of the trace with the given trace index.
+     *
+     * @param index
+     *            the position of the trace in this spectra
+     * @return trace
+     */
+    public OffHeapTrace<T> getTrace(final int index) {
+        if (index < 0 || index >= this.traceCount) {
+            throw new IndexOutOfBoundsException(String.format("Trace index %d out of range [0, %d).", index,
+                    this.traceCount));
+        }
+        return new OffHeapTrace<>(this, index);
+    }
+
+    /**
+     * Returns the number of traces in this spectra.
+     *
+     * @return trace count
+     */
+    public int getTraceCount() {
+        return this.traceCount;
+    }
+
+    /**
+     * Adds a new trace to this spectra.
+     *
+     * @param successful
+     *            True if the trace execution was successful, false otherwise
+     * @return view of the trace object
+     */
+    public OffHeapTrace<T> addTrace(final boolean successful) {
+        final int index = this.traceCount;
+        this.matrix.ensureRows(index + 1);
+        this.successful.set(index, successful);
+        this.traceCount++;
+        this.modified();
+        return new OffHeapTrace<>(this, index);
+    }
+
+    /**
+     * Checks whether the trace with the given trace index is successful.
+     *
+     * @param trace
+     *            the trace index
+     * @return true if the trace is successful, false otherwise
+     */
+    public boolean isSuccessful(final int trace) {
+        return this.successful.get(trace);
+    }
+
+    /**
+     * Checks whether a node is involved in a trace.
+     *
+     * @param trace
+     *            the trace index
+     * @param node
+     *            the node index
+     * @return true if the node is involved in the trace, false otherwise
+     */
+    public boolean isInvolved(final int trace, final int node) {
+        if (node >= this.nodes.size()) {
+            return false;
+        }
+        return (this.matrix.getWord(trace, node >>> 6) & 1L << node) != 0;
+    }
+
+    /**
+     * Sets the involvement of a node in a trace.
+     *
+     * @param trace
+     *            the trace index
+     * @param node
+     *            the node index
+     * @param involved
+     *            true if the node was involved, false otherwise
+     */
+    public void setInvolvement(final int trace, final int node, final boolean involved) {
+        if (node >= this.nodes.size()) {
+            throw new IndexOutOfBoundsException(String.format("Node index %d out of range [0, %d).", node,
+                    this.nodes.size()));
+        }
+        final long word = this.matrix.getWord(trace, node >>> 6);
+        final long updated = involved ? word | 1L << node : word & ~(1L << node);
+        if (updated != word) {
+            this.matrix.setWord(trace, node >>> 6, updated);
+            this.modified();
+        }
+    }
+
+    /**
+     * Returns the index of the first involved node of a trace with a node index equal to or greater than the given
+     * index.
+     *
+     * @param trace
+     *            the trace index
+     * @param fromIndex
+     *            node index to start searching from (inclusive)
+     * @return the node index of the next involved node, or -1 if there is no such node
+     */
+    public int nextInvolved(final int trace, final int fromIndex) {
+        final int words = words(this.nodes.size());
+        int word = fromIndex >>> 6;
+        if (word >= words) {
+            return -1;
+        }
+        long bits = this.matrix.getWord(trace, word) & -1L << fromIndex;
+        while (true) {
+            if (bits != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word >= words) {
+                return -1;
+            }
+            bits = this.matrix.getWord(trace, word);
+        }
+    }
+
+    /**
+     * Returns the interned node of the given identifier and creates it if necessary.
+     *
+     * @param identifier
+     *            node identifier
+     * @return interned node
+     */
+    private OffHeapNode<T> intern(final T identifier) {
+        OffHeapNode<T> node = this.identifiers.get(identifier);
+        if (node == null) {
+            final int index = this.nodes.size();
+            if (words(index + 1) > this.matrix.words) {
+                this.widen(words(index + 1) * 2);
+            }
+            node = new OffHeapNode<>(identifier, this, index);
+            this.identifiers.put(identifier, node);
+            this.nodes.add(node);
+            this.modified();
+        }
+        return node;
+    }
+
+    /**
+     * Copies the matrix into a new matrix with wider rows.
+     *
+     * @param words
+     *            number of words per row of the new matrix
+     */
+    private void widen(final int words) {
+        final Matrix widened = new Matrix(words, this.blockSize);
+        widened.ensureRows(this.traceCount);
+        for (int trace = 0; trace < this.traceCount; trace++) {
+            for (int word = 0; word < this.matrix.words; word++) {
+                widened.setWord(trace, word, this.matrix.getWord(trace, word));
+            }
+        }
+        this.matrix.close();
+        this.matrix = widened;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ContingencyTable<T> getContingencyTable() {
+        if (this.__cacheTable == null || this.__cacheTableModificationCount != this.modificationCount) {
+            this.__cacheTable = this.computeContingencyTable();
+            this.__cacheTableModificationCount = this.modificationCount;
+        }
+        return this.__cacheTable;
+    }
+
+    /**
+     * Computes the counters of all nodes in a single pass over the matrix, visiting only the set bits of each row.
+     *
+     * @return contingency table
+     */
+    private ContingencyTable<T> computeContingencyTable() {
+        final int[] involvedFailed = new int[this.nodes.size()];
+        final int[] involvedSuccessful = new int[this.nodes.size()];
+        final int words = words(this.nodes.size());
+        int failing = 0;
+        for (int trace = 0; trace < this.traceCount; trace++) {
+            final int[] counter;
+            if (this.successful.get(trace)) {
+                counter = involvedSuccessful;
+            } else {
+                failing++;
+                counter = involvedFailed;
+            }
+            for (int word = 0; word < words; word++) {
+                long bits = this.matrix.getWord(trace, word);
+                while (bits != 0) {
+                    counter[word * 64 + Long.numberOfTrailingZeros(bits)]++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return new ContingencyTable<>(this.nodes, involvedFailed, involvedSuccessful, failing, this.traceCount
+                - failing);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount;
+    }
+
+    /**
+     * Marks the spectra as modified.
+     */
+    void modified() {
+        this.modificationCount++;
+    }
+
+    /**
+     * Releases the backing file of the involvement matrix. The spectra must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        this.matrix.close();
+    }
+
+    /**
+     * Returns the number of 64 bit words necessary to store the given number of bits.
+     *
+     * @param bits
+     *            number of bits
+     * @return number of words
+     */
+    private static int words(final int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Involvement matrix stored in memory mapped blocks of a temporary file. Each block holds a fixed number of rows.
+     */
+    private static final class Matrix {
+
+        /** Number of words per row */
+        private final int words;
+        /** Number of rows per block */
+        private final int rowsPerBlock;
+        /** The temporary backing file */
+        private final File file;
+        /** The channel of the backing file */
+        private final FileChannel channel;
+        /** The memory mapped blocks */
+        private final List<MappedByteBuffer> blocks = new ArrayList<>();
+
+        /**
+         * Creates an empty matrix.
+         *
+         * @param words
+         *            number of words per row
+         * @param blockSize
+         *            preferred size of a single block in bytes
+         */
+        private Matrix(final int words, final int blockSize) {
+            this.words = words;
+            this.rowsPerBlock = Math.max(1, blockSize / (words * 8));
+            try {
+                this.file = File.createTempFile("stardust", ".matrix");
+                this.file.deleteOnExit();
+                this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Creating the off-heap involvement matrix failed.", e);
+            }
+        }
+
+        /**
+         * Maps additional blocks until the matrix can hold the given number of rows.
+         *
+         * @param rows
+         *            number of rows
+         */
+        private void ensureRows(final int rows) {
+            final long blockBytes = (long) this.rowsPerBlock * this.words * 8;
+            try {
+                while ((long) this.blocks.size() * this.rowsPerBlock < rows) {
+                    this.blocks.add(this.channel.map(FileChannel.MapMode.READ_WRITE, this.blocks.size() * blockBytes,
+                            blockBytes));
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Extending the off-heap involvement matrix failed.", e);
+            }
+        }
+
+        /**
+         * Returns a word of a row.
+         *
+         * @param row
+         *            the row index
+         * @param word
+         *            the word index within the row
+         * @return word
+         */
+        private long getWord(final int row, final int word) {
+            return this.blocks.get(row / this.rowsPerBlock).getLong(
+                    ((row % this.rowsPerBlock) * this.words + word) * 8);
+        }
+
+        /**
+         * Sets a word of a row.
+         *
+         * @param row
+         *            the row index
+         * @param word
+         *            the word index within the row
+         * @param value
+         *            the new word
+         */
+        private void setWord(final int row, final int word, final long value) {
+            this.blocks.get(row / this.rowsPerBlock).putLong(((row % this.rowsPerBlock) * this.words + word) * 8,
+                    value);
+        }
+
+        /**
+         * Closes the backing file and deletes it.
+         */
+        private void close() {
+            this.blocks.clear();
+            try {
+                this.channel.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Closing the off-heap involvement matrix failed.", e);
+            } finally {
+                this.file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.Map;
+
+/**
+ * Lightweight view of a single trace of an {@link OffHeapSpectra}. The view holds no involvement information itself,
+ * all queries are delegated to the involvement matrix of the spectra.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public class OffHeapTrace<T> implements IMutableTrace<T> {
+
+    /** Holds the spectra this trace belongs to */
+    private final OffHeapSpectra<T> spectra;
+
+    /** The index of this trace within its spectra */
+    private final int index;
+
+    /**
+     * Create a view of a trace.
+     *
+     * @param spectra
+     *            the trace belongs to
+     * @param index
+     *            the index of the trace within the spectra
+     */
+    protected OffHeapTrace(final OffHeapSpectra<T> spectra, final int index) {
+        this.spectra = spectra;
+        this.index = index;
+    }
+
+    /**
+     * Returns the index of this trace within its spectra.
+     *
+     * @return trace index
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSuccessful() {
+        return this.spectra.isSuccessful(this.index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ISpectra<T> getSpectra() {
+        return this.spectra;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvement(final T node, final boolean involved) {
+        this.spectra.setInvolvement(this.index, this.spectra.indexOf(this.spectra.getNode(node)), involved);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvement(final INode<T> node, final boolean involved) {
+        this.spectra.setInvolvement(this.index, this.spectra.indexOf(node), involved);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvementForIdentifiers(final Map<T, Boolean> nodeInvolvement) {
+        for (final Map.Entry<T, Boolean> cur : nodeInvolvement.entrySet()) {
+            this.setInvolvement(cur.getKey(), cur.getValue());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInvolvementForNodes(final Map<INode<T>, Boolean> nodeInvolvement) {
+        for (final Map.Entry<INode<T>, Boolean> cur : nodeInvolvement.entrySet()) {
+            this.setInvolvement(cur.getKey(), cur.getValue());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isInvolved(final INode<T> node) {
+        if (node instanceof OffHeapNode && node.getSpectra() == this.spectra) {
+            return this.spectra.isInvolved(this.index, ((OffHeapNode<T>) node).getIndex());
+        }
+        if (!this.spectra.hasNode(node.getIdentifier())) {
+            return false;
+        }
+        return this.spectra.isInvolved(this.index, this.spectra.indexOf(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Two views are equal if they refer to the same trace of the same spectra.
+     */
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof OffHeapTrace)) {
+            return false;
+        }
+        final OffHeapTrace<?> trace = (OffHeapTrace<?>) other;
+        return this.spectra == trace.spectra && this.index == trace.index;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this.spectra) * 31 + this.index;
+    }
+}
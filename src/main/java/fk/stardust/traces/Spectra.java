@@ -10,6 +10,8 @@
 package fk.stardust.traces;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +39,11 @@ import java.util.Map;
  *
  * Given this information it is possible to use this spectra as input for various fault localization techniques.
  *
+ * The IF and IS counters of all nodes as well as the number of failing and successful traces are maintained
+ * incrementally whenever a trace is added or the involvement of a node changes, thus all counters are available in
+ * constant time. Nodes whose counters changed are tracked and can be retrieved using {@link #pollChangedNodes()} in
+ * order to update existing rankings without recomputing the suspiciousness of all nodes.
+ *
  * @param <T>
  *            type used to identify nodes in the system.
  */
@@ -45,8 +52,37 @@ public class Spectra<T> implements Cloneable, ISpectra<T> {
     /** Holds all nodes belonging to this spectra */
     private final Map<T, Node<T>> nodes = new HashMap<>();
 
+    /** Holds all nodes belonging to this spectra ordered by their node index */
+    private final List<INode<T>> nodeList = new ArrayList<>();
+
     /** Holds all traces belonging to this spectra */
-    private final List<IMutableTrace<T>> traces = new ArrayList<>();
+    private final List<Trace<T>> traces = new ArrayList<>();
+
+    /** IF counter of each node, indexed by node index */
+    private int[] involvedFailed = new int[16];
+
+    /** IS counter of each node, indexed by node index */
+    private int[] involvedSuccessful = new int[16];
+
+    /** Number of failing traces */
+    private int failingTraces;
+
+    /** Number of successful traces */
+    private int successfulTraces;
+
+    /** Holds the indices of all nodes whose counters changed since the last poll */
+    private final BitSet changedNodes = new BitSet();
+
+    /** True if the counters of all nodes changed since the last poll */
+    private boolean allNodesChanged;
+
+    /** Counts the modifications of this spectra */
+    private long modificationCount;
+
+    /** Holds the modification count the cached contingency table was computed for */
+    private long __cacheTableModificationCount = -1; // NOCS
+    /** caches the contingency table */
+    private ContingencyTable<T> __cacheTable; // NOCS
 
     /**
      * Creates a new spectra.
@@ -60,7 +96,7 @@ public class Spectra<T> implements Cloneable, ISpectra<T> {
      */
     @Override
     public List<INode<T>> getNodes() {
-        return new ArrayList<>(this.nodes.values());
+        return new ArrayList<>(this.nodeList);
     }
 
     /**
@@ -69,7 +105,16 @@ public class Spectra<T> implements Cloneable, ISpectra<T> {
     @Override
     public INode<T> getNode(final T identifier) {
         if (!this.nodes.containsKey(identifier)) {
-            this.nodes.put(identifier, new Node<T>(identifier, this));
+            final int index = this.nodeList.size();
+            final Node<T> node = new Node<T>(identifier, this, index);
+            this.nodes.put(identifier, node);
+            this.nodeList.add(node);
+            if (index == this.involvedFailed.length) {
+                this.involvedFailed = Arrays.copyOf(this.involvedFailed, index * 2);
+                this.involvedSuccessful = Arrays.copyOf(this.involvedSuccessful, index * 2);
+            }
+            this.changedNodes.set(index);
+            this.modified();
         }
         return this.nodes.get(identifier);
     }
@@ -96,7 +141,7 @@ public class Spectra<T> implements Cloneable, ISpectra<T> {
     @Override
     public List<ITrace<T>> getFailingTraces() {
         final List<ITrace<T>> failingTraces = new ArrayList<>();
-        for (final IMutableTrace<T> trace : this.traces) {
+        for (final Trace<T> trace : this.traces) {
             if (!trace.isSuccessful()) {
                 failingTraces.add(trace);
             }
@@ -110,7 +155,7 @@ public class Spectra<T> implements Cloneable, ISpectra<T> {
     @Override
     public List<ITrace<T>> getSuccessfulTraces() {
         final List<ITrace<T>> successTraces = new ArrayList<>();
-        for (final IMutableTrace<T> trace : this.traces) {
+        for (final Trace<T> trace : this.traces) {
             if (trace.isSuccessful()) {
                 successTraces.add(trace);
             }
@@ -128,12 +173,163 @@ public class Spectra<T> implements Cloneable, ISpectra<T> {
     public IMutableTrace<T> addTrace(final boolean successful) {
         final Trace<T> trace = new Trace<>(this, successful);
         this.traces.add(trace);
+        if (successful) {
+            this.successfulTraces++;
+        } else {
+            this.failingTraces++;
+        }
+        // the NF or NS counter of every node changes
+        this.allNodesChanged = true;
+        this.modified();
         return trace;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Updates the counters of a node after its involvement in a trace changed.
+     *
+     * @param node
+     *            the node whose involvement changed
+     * @param successful
+     *            true if the trace is successful, false otherwise
+     * @param involved
+     *            the new involvement of the node
+     */
+    void involvementChanged(final Node<T> node, final boolean successful, final boolean involved) {
+        final int[] counter = successful ? this.involvedSuccessful : this.involvedFailed;
+        counter[node.getIndex()] += involved ? 1 : -1;
+        this.changedNodes.set(node.getIndex());
+        this.modified();
+    }
+
+    /**
+     * Returns all nodes whose counters changed since the last call of this method, ordered by node index, and resets
+     * the changed state of all nodes.
+     *
+     * Adding a trace changes the NF or NS counter of all nodes, thus all nodes are returned after a trace was added.
+     *
+     * @return nodes with changed counters
+     */
+    public List<INode<T>> pollChangedNodes() {
+        final List<INode<T>> changed;
+        if (this.allNodesChanged) {
+            changed = new ArrayList<>(this.nodeList);
+        } else {
+            changed = new ArrayList<>(this.changedNodes.cardinality());
+            for (int i = this.changedNodes.nextSetBit(0); i >= 0; i = this.changedNodes.nextSetBit(i + 1)) {
+                changed.add(this.nodeList.get(i));
+            }
+        }
+        this.changedNodes.clear();
+        this.allNodesChanged = false;
+        return changed;
+    }
+
+    /**
+     * Returns the IF counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return IF
+     */
+    protected int getIF(final int index) {
+        return this.involvedFailed[index];
+    }
+
+    /**
+     * Returns the IS counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return IS
+     */
+    protected int getIS(final int index) {
+        return this.involvedSuccessful[index];
+    }
+
+    /**
+     * Returns the NF counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return NF
+     */
+    protected int getNF(final int index) {
+        return this.failingTraces - this.involvedFailed[index];
+    }
+
+    /**
+     * Returns the NS counter of the node with the given node index.
+     *
+     * @param index
+     *            the node index
+     * @return NS
+     */
+    protected int getNS(final int index) {
+        return this.successfulTraces - this.involvedSuccessful[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ContingencyTable<T> getContingencyTable() {
+        final long modifications = this.getModificationCount();
+        if (this.__cacheTable == null || this.__cacheTableModificationCount != modifications) {
+            this.__cacheTable = this.computeContingencyTable();
+            this.__cacheTableModificationCount = modifications;
+        }
+        return this.__cacheTable;
+    }
+
+    /**
+     * Creates a snapshot of the incrementally maintained counters of all nodes.
+     *
+     * @return contingency table
+     */
+    protected ContingencyTable<T> computeContingencyTable() {
+        final int size = this.nodeList.size();
+        return new ContingencyTable<>(this.nodeList, Arrays.copyOf(this.involvedFailed, size), Arrays.copyOf(
+                this.involvedSuccessful, size), this.failingTraces, this.successfulTraces);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount;
+    }
+
+    /**
+     * Marks this spectra as modified, which invalidates the cached contingency table.
+     */
+    protected void modified() {
+        this.modificationCount++;
+    }
+
+    /**
+     * Creates a deep copy of this spectra.
+     *
+     * The copy holds its own nodes and traces with the same identifiers, involvement and node indices, thus modifying
+     * the copy neither affects this spectra nor is affected by modifications of this spectra. The counters are rebuilt
+     * for the copy, the nodes reported as changed by {@link #pollChangedNodes()} equal the ones of this spectra.
+     *
+     * @return copy of this spectra
+     * @throws CloneNotSupportedException
+     *             never thrown by this implementation
+     */
     @Override
     public Spectra<T> clone() throws CloneNotSupportedException {
-        return (Spectra<T>) super.clone();
+        final Spectra<T> clone = new Spectra<>();
+        for (final INode<T> node : this.nodeList) {
+            clone.getNode(node.getIdentifier());
+        }
+        for (final Trace<T> trace : this.traces) {
+            trace.copyInvolvementTo((Trace<T>) clone.addTrace(trace.isSuccessful()));
+        }
+        clone.changedNodes.clear();
+        clone.changedNodes.or(this.changedNodes);
+        clone.allNodesChanged = this.allNodesChanged;
+        return clone;
     }
 }
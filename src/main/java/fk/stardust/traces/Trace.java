@@ -26,7 +26,7 @@ public class Trace<T> implements IMutableTrace<T> {
     private final boolean successful;
 
     /** Holds the spectra this trace belongs to */
-    private final ISpectra<T> spectra;
+    private final Spectra<T> spectra;
 
     /**
      * Stores the involvement of all nodes for this trace. Attention: This map may not store all nodes available in the
@@ -42,7 +42,7 @@ public class Trace<T> implements IMutableTrace<T> {
      * @param successful
      *            true if the trace originates from a successful execution, false otherwise
      */
-    protected Trace(final ISpectra<T> spectra, final boolean successful) {
+    protected Trace(final Spectra<T> spectra, final boolean successful) {
         this.successful = successful;
         this.spectra = spectra;
     }
@@ -68,7 +68,15 @@ public class Trace<T> implements IMutableTrace<T> {
     /** {@inheritDoc} */
     @Override
     public void setInvolvement(final INode<T> node, final boolean involved) {
-        this.involvement.put(node, involved);
+        final Boolean previous = this.involvement.put(node, involved);
+        if (Boolean.TRUE.equals(previous) == involved) {
+            return;
+        }
+        if (node instanceof Node && node.getSpectra() == this.spectra) {
+            this.spectra.involvementChanged((Node<T>) node, this.successful, involved);
+        } else {
+            this.spectra.modified();
+        }
     }
 
     /** {@inheritDoc} */
@@ -95,4 +103,18 @@ public class Trace<T> implements IMutableTrace<T> {
         }
         return this.involvement.get(node);
     }
+
+    /**
+     * Sets the involvement of all nodes involved in this trace in a trace of another spectra.
+     *
+     * @param copy
+     *            the trace to copy the involvement to, nodes are resolved by their identifier in its spectra
+     */
+    void copyInvolvementTo(final Trace<T> copy) {
+        for (final Map.Entry<INode<T>, Boolean> entry : this.involvement.entrySet()) {
+            if (entry.getValue()) {
+                copy.setInvolvement(entry.getKey().getIdentifier(), true);
+            }
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A self-contained execution trace that is not bound to a spectra, e.g. to be passed along a feed of traces.
+ *
+ * The trace holds the identifiers of all nodes it covers together with the involvement of each of these nodes, bit i
+ * of the involvement belongs to node i.
+ *
+ * @param <T>
+ *            type used to identify nodes in the system.
+ */
+public final class TraceRecord<T> {
+
+    /** True if the trace execution was successful */
+    private final boolean successful;
+
+    /** Identifiers of all nodes covered by this trace */
+    private final List<T> nodes;
+
+    /** Bit i is set if node i was involved */
+    private final BitSet involvement;
+
+    /**
+     * Creates a trace record covering the given nodes.
+     *
+     * @param successful
+     *            true if the trace execution was successful, false otherwise
+     * @param nodes
+     *            identifiers of all nodes covered by the trace
+     * @param involvement
+     *            bit i is set if node i was involved in the trace
+     */
+    public TraceRecord(final boolean successful, final List<T> nodes, final BitSet involvement) {
+        if (involvement.length() > nodes.size()) {
+            throw new IllegalArgumentException(String.format(
+                    "Involvement of %d nodes given, but the trace only covers %d nodes.", involvement.length(),
+                    nodes.size()));
+        }
+        this.successful = successful;
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.involvement = (BitSet) involvement.clone();
+    }
+
+    /**
+     * Creates a trace record in which all given nodes are involved.
+     *
+     * @param successful
+     *            true if the trace execution was successful, false otherwise
+     * @param involvedNodes
+     *            identifiers of all nodes involved in the trace
+     */
+    public TraceRecord(final boolean successful, final Collection<T> involvedNodes) {
+        this.successful = successful;
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(involvedNodes));
+        this.involvement = new BitSet(this.nodes.size());
+        this.involvement.set(0, this.nodes.size());
+    }
+
+    /**
+     * Returns true if the trace execution was successful and false if an error occured during execution.
+     *
+     * @return successful
+     */
+    public boolean isSuccessful() {
+        return this.successful;
+    }
+
+    /**
+     * Returns the identifiers of all nodes covered by this trace.
+     *
+     * @return node identifiers
+     */
+    public List<T> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Checks whether the node at the given position of {@link #getNodes()} was involved in this trace.
+     *
+     * @param position
+     *            position of the node
+     * @return true if it was involved, false otherwise
+     */
+    public boolean isInvolved(final int position) {
+        return this.involvement.get(position);
+    }
+
+    /**
+     * Checks whether this trace involves at least one node.
+     *
+     * @return true if the trace executed anything, false otherwise
+     */
+    public boolean isExecuted() {
+        return !this.involvement.isEmpty();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.evaluation.ibugs;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.provider.CoberturaProvider;
+import fk.stardust.traces.ISpectra;
+
+public class IBugsSpectraProviderTest {
+
+    private static final String COVERAGE = "src/test/resources/fk/stardust/provider/simple-coverage.xml";
+
+    @Test
+    public void failedCacheWriteReturnsParsedSpectra() throws Exception {
+        final File root = Files.createTempDirectory("ibugs").toFile();
+        final File bugFolder = new File(root, "1/pre-fix");
+        Assert.assertTrue(bugFolder.mkdirs());
+        Files.copy(Paths.get(COVERAGE), new File(bugFolder, "f_1.xml").toPath());
+        Files.copy(Paths.get(COVERAGE), new File(bugFolder, "p_1.xml").toPath());
+
+        // the cache folder is a file, thus the binary spectra file cannot be written
+        final File cacheFolder = new File(root, "cache");
+        Assert.assertTrue(cacheFolder.createNewFile());
+        final ISpectra<String> spectra = new IBugsSpectraProvider(root.getPath(), 1, null, null,
+                cacheFolder.getPath()).loadSpectra();
+
+        final CoberturaProvider c = new CoberturaProvider();
+        c.addTraceFile(COVERAGE, false);
+        c.addTraceFile(COVERAGE, true);
+        Assert.assertEquals(spectra.getTraces().size(), 2);
+        Assert.assertEquals(spectra.getNodes().size(), c.loadSpectra().getNodes().size());
+        Assert.assertTrue(cacheFolder.isFile());
+
+        new File(bugFolder, "f_1.xml").delete();
+        new File(bugFolder, "p_1.xml").delete();
+        bugFolder.delete();
+        bugFolder.getParentFile().delete();
+        cacheFolder.delete();
+        root.delete();
+    }
+}
@@ -181,6 +181,74 @@ public class NormalizedRankingTest {
         Assert.assertEquals(1.0d, n.getSuspiciousness(this.data.getNode("S4")));
     }
 
+    @Test
+    public void normalizeArrayMatchesRanking() {
+        final double[] suspiciousness = { 0.3, Double.NaN, -1.0, 0.3, Double.POSITIVE_INFINITY, 0.0,
+                Double.NEGATIVE_INFINITY, 0.7, 0.3, 0.0 };
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> ranking = new Ranking<>();
+        for (int i = 0; i < suspiciousness.length; i++) {
+            ranking.rank(s.getNode("N" + i), suspiciousness[i]);
+        }
+        for (final NormalizationStrategy strategy : NormalizationStrategy.values()) {
+            final NormalizedRanking<String> n = new NormalizedRanking<>(ranking, strategy);
+            final double[] normalized = NormalizedRanking.normalize(suspiciousness, strategy);
+            for (int i = 0; i < suspiciousness.length; i++) {
+                Assert.assertEquals(normalized[i], n.getSuspiciousness(s.getNode("N" + i)));
+            }
+        }
+    }
+
+    @Test
+    public void sharedDataIsCopiedOnModification() {
+        final Ranking<String> ranking = new Ranking<>();
+        ranking.rank(this.data.getNode("S1"), 0.0);
+        ranking.rank(this.data.getNode("S2"), 1.0);
+        ranking.rank(this.data.getNode("S3"), 2.0);
+
+        final NormalizedRanking<String> n = new NormalizedRanking<>(ranking, NormalizationStrategy.ZeroOne);
+        Assert.assertEquals(0.5d, n.getSuspiciousness(this.data.getNode("S2")));
+
+        // modifying the source must not affect the normalized ranking
+        ranking.rank(this.data.getNode("S3"), 4.0);
+        ranking.rank(this.data.getNode("S4"), 8.0);
+        Assert.assertEquals(0.5d, n.getSuspiciousness(this.data.getNode("S2")));
+        Assert.assertEquals(3, n.size());
+        Assert.assertEquals(4, ranking.size());
+
+        // modifying the normalized ranking must not affect the source
+        n.rank(this.data.getNode("S1"), 2.0);
+        Assert.assertEquals(0.0d, n.getSuspiciousness(this.data.getNode("S2")));
+        Assert.assertEquals(1.0d, n.getSuspiciousness(this.data.getNode("S1")));
+        Assert.assertEquals(0.0d, ranking.getSuspiciousness(this.data.getNode("S1")));
+        Assert.assertEquals(2, n.getRankingMetrics(this.data.getNode("S1")).getWorstRanking());
+    }
+
+    @Test
+    public void mergeIsNormalized() {
+        final Ranking<String> ranking = new Ranking<>();
+        ranking.rank(this.data.getNode("S1"), 0.0);
+        ranking.rank(this.data.getNode("S2"), 1.0);
+        final Ranking<String> other = new Ranking<>();
+        other.rank(this.data.getNode("S2"), 4.0);
+        other.rank(this.data.getNode("S3"), 2.0);
+
+        final NormalizedRanking<String> n = new NormalizedRanking<>(ranking, NormalizationStrategy.ZeroOne);
+        final NormalizedRanking<String> merged = n.merge(other);
+        Assert.assertEquals(3, merged.size());
+        Assert.assertEquals(0.0d, merged.getSuspiciousness(this.data.getNode("S1")));
+        Assert.assertEquals(1.0d, merged.getSuspiciousness(this.data.getNode("S2")));
+        Assert.assertEquals(0.5d, merged.getSuspiciousness(this.data.getNode("S3")));
+        Assert.assertEquals(1.0d, n.getSuspiciousness(this.data.getNode("S2")));
+        Assert.assertEquals(2, n.size());
+
+        final NormalizedRanking<String> reciprocal = new NormalizedRanking<>(ranking,
+                NormalizationStrategy.ReciprocalRank).merge(other);
+        Assert.assertEquals(1.0d / 3.0d, reciprocal.getSuspiciousness(this.data.getNode("S1")));
+        Assert.assertEquals(1.0d, reciprocal.getSuspiciousness(this.data.getNode("S2")));
+        Assert.assertEquals(0.5d, reciprocal.getSuspiciousness(this.data.getNode("S3")));
+    }
+
 
     private ISpectra<String> data() {
         final Spectra<String> s = new Spectra<>();
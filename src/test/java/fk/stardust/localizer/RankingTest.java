@@ -0,0 +1,145 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.Ranking.RankingMetric;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.Spectra;
+
+public class RankingTest {
+
+    @Test
+    public void rankingMetricsWithTies() {
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> ranking = new Ranking<>();
+        ranking.rank(s.getNode("S1"), 0.5);
+        ranking.rank(s.getNode("S2"), 1.0);
+        ranking.rank(s.getNode("S3"), 0.5);
+        ranking.rank(s.getNode("S4"), Double.NaN);
+
+        final List<INode<String>> order = new ArrayList<>();
+        for (final INode<String> node : ranking) {
+            order.add(node);
+        }
+        Assert.assertEquals(order.size(), 4);
+        Assert.assertSame(order.get(0), s.getNode("S2"));
+        Assert.assertSame(order.get(1), s.getNode("S1"));
+        Assert.assertSame(order.get(2), s.getNode("S3"));
+        Assert.assertSame(order.get(3), s.getNode("S4"));
+
+        final RankingMetric m1 = ranking.getRankingMetrics(s.getNode("S1"));
+        Assert.assertEquals(m1.getBestRanking(), 2);
+        Assert.assertEquals(m1.getWorstRanking(), 3);
+        Assert.assertEquals(m1.getSuspiciousness(), 0.5);
+        Assert.assertEquals(ranking.getRankingMetrics(s.getNode("S2")).getBestRanking(), 1);
+        Assert.assertEquals(ranking.getRankingMetrics(s.getNode("S4")).getWorstRanking(), 4);
+        Assert.assertEquals(ranking.getSuspiciousness(s.getNode("S4")), Double.NEGATIVE_INFINITY);
+
+        for (int position = 0; position < order.size(); position++) {
+            Assert.assertEquals(ranking.wastedEffort(order.get(position)), position);
+        }
+    }
+
+    @Test
+    public void tiesWithCollidingHashCodesKeepRankingOrder() {
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> ranking = new Ranking<>();
+        ranking.rank(s.getNode("BB"), 0.5);
+        ranking.rank(s.getNode("Aa"), 0.5);
+        ranking.rank(s.getNode("C"), 0.5);
+
+        final List<INode<String>> order = new ArrayList<>();
+        for (final INode<String> node : ranking) {
+            order.add(node);
+        }
+        Assert.assertEquals(order.size(), 3);
+        Assert.assertSame(order.get(0), s.getNode("BB"));
+        Assert.assertSame(order.get(1), s.getNode("Aa"));
+        Assert.assertSame(order.get(2), s.getNode("C"));
+        for (final INode<String> node : order) {
+            Assert.assertEquals(ranking.getRankingMetrics(node).getBestRanking(), 1);
+            Assert.assertEquals(ranking.getRankingMetrics(node).getWorstRanking(), 3);
+        }
+    }
+
+    @Test
+    public void rerankReplacesSuspiciousness() {
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> ranking = new Ranking<>();
+        ranking.rank(s.getNode("S1"), 0.5);
+        ranking.rank(s.getNode("S2"), 1.0);
+        Assert.assertEquals(ranking.wastedEffort(s.getNode("S1")), 1);
+
+        ranking.rank(s.getNode("S1"), 2.0);
+        Assert.assertEquals(ranking.size(), 2);
+        Assert.assertEquals(ranking.wastedEffort(s.getNode("S1")), 0);
+        Assert.assertEquals(ranking.getSuspiciousness(s.getNode("S1")), 2.0);
+    }
+
+    @Test
+    public void mergeRankings() {
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> r1 = new Ranking<>();
+        r1.rank(s.getNode("S1"), 0.5);
+        r1.rank(s.getNode("S2"), 0.7);
+        final Ranking<String> r2 = new Ranking<>();
+        r2.rank(s.getNode("S2"), 0.1);
+        r2.rank(s.getNode("S3"), 0.9);
+
+        final Ranking<String> merged = r1.merge(r2);
+        Assert.assertEquals(merged.size(), 3);
+        Assert.assertEquals(merged.getSuspiciousness(s.getNode("S2")), 0.1);
+        Assert.assertEquals(merged.wastedEffort(s.getNode("S3")), 0);
+        Assert.assertEquals(merged.wastedEffort(s.getNode("S2")), 2);
+        // source rankings stay untouched
+        Assert.assertEquals(r1.size(), 2);
+        Assert.assertEquals(r1.getSuspiciousness(s.getNode("S2")), 0.7);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownNode() {
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> ranking = new Ranking<>();
+        ranking.rank(s.getNode("S1"), 0.5);
+        ranking.wastedEffort(s.getNode("S2"));
+    }
+
+    @Test
+    public void largeRankingIsSorted() {
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> ranking = new Ranking<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            ranking.rank(s.getNode("S" + i), random.nextInt(50) / 10.0d);
+        }
+
+        double previous = Double.POSITIVE_INFINITY;
+        int position = 0;
+        for (final INode<String> node : ranking) {
+            final double susp = ranking.getSuspiciousness(node);
+            Assert.assertTrue(susp <= previous);
+            final RankingMetric metric = ranking.getRankingMetrics(node);
+            Assert.assertTrue(metric.getBestRanking() <= position + 1);
+            Assert.assertTrue(metric.getWorstRanking() >= position + 1);
+            Assert.assertEquals(ranking.wastedEffort(node), position);
+            previous = susp;
+            position++;
+        }
+        Assert.assertEquals(position, 1000);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.sbfl.Ochiai;
+import fk.stardust.provider.CoberturaProvider;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+import fk.stardust.traces.TraceRecord;
+
+public class StreamingFaultLocalizerTest {
+
+    private static final String SIMPLE = "src/test/resources/fk/stardust/provider/simple-coverage.xml";
+    private static final String LARGE = "src/test/resources/fk/stardust/provider/large-coverage.xml";
+    private static final String UNEXECUTED = "src/test/resources/fk/stardust/provider/unexecuted-coverage.xml";
+
+    private static void assertSameRanking(final Ranking<String> actual, final Ranking<String> expected) {
+        Assert.assertEquals(actual.size(), expected.size());
+        final List<String> actualOrder = new ArrayList<>();
+        final List<Double> actualSusp = new ArrayList<>();
+        for (final INode<String> node : actual) {
+            actualOrder.add(node.getIdentifier());
+            actualSusp.add(actual.getSuspiciousness(node));
+        }
+        final List<String> expectedOrder = new ArrayList<>();
+        final List<Double> expectedSusp = new ArrayList<>();
+        for (final INode<String> node : expected) {
+            expectedOrder.add(node.getIdentifier());
+            expectedSusp.add(expected.getSuspiciousness(node));
+        }
+        Assert.assertEquals(actualOrder, expectedOrder);
+        Assert.assertEquals(actualSusp, expectedSusp);
+    }
+
+    @Test
+    public void streamedCoberturaTracesMatchSpectra() throws Exception {
+        final CoberturaProvider c = new CoberturaProvider(1);
+        c.addTraceFile(SIMPLE, true);
+        c.addTraceFile(LARGE, false);
+        c.addTraceFile(UNEXECUTED, false);
+        final ISpectra<String> spectra = c.loadSpectra();
+
+        final List<Ranking<String>> snapshots = new ArrayList<>();
+        final StreamingFaultLocalizer<String> streaming = new StreamingFaultLocalizer<>(new Ochiai<>(), 2,
+                snapshots::add);
+        final Ranking<String> ranking = streaming.consume(Arrays.asList(
+                CoberturaProvider.readTrace(SIMPLE, true), CoberturaProvider.readTrace(LARGE, false),
+                CoberturaProvider.readTrace(UNEXECUTED, false)).iterator());
+
+        Assert.assertEquals(streaming.getSpectra().getTraceCount(), 2);
+        Assert.assertEquals(snapshots.size(), 1);
+        assertSameRanking(ranking, new Ochiai<String>().localize(spectra));
+    }
+
+    @Test
+    public void snapshotEveryNTraces() {
+        final List<Ranking<String>> snapshots = new ArrayList<>();
+        final StreamingFaultLocalizer<String> streaming = new StreamingFaultLocalizer<>(new Ochiai<>(), 2,
+                snapshots::add);
+        streaming.addTrace(new TraceRecord<>(false, Arrays.asList("a", "b")));
+        Assert.assertTrue(snapshots.isEmpty());
+        streaming.addTrace(new TraceRecord<>(true, Arrays.asList("b", "c")));
+        Assert.assertEquals(snapshots.size(), 1);
+        streaming.addTrace(new TraceRecord<>(true, Arrays.asList("c")));
+        Assert.assertEquals(snapshots.size(), 1);
+
+        final Ranking<String> first = snapshots.get(0);
+        Assert.assertEquals(first.size(), 3);
+        Assert.assertEquals(first.getSuspiciousness(streaming.getSpectra().getNode("a")), 1.0);
+        Assert.assertEquals(streaming.getSpectra().getNode("c").getIS(), 2);
+        Assert.assertEquals(streaming.getSpectra().getNode("a").getNS(), 2);
+    }
+
+    @Test
+    public void snapshotAfterInterval() throws Exception {
+        final List<Ranking<String>> snapshots = new ArrayList<>();
+        final StreamingFaultLocalizer<String> streaming = new StreamingFaultLocalizer<>(new Ochiai<>(), 0, 1,
+                TimeUnit.MILLISECONDS, snapshots::add);
+        Thread.sleep(5);
+        streaming.addTrace(new TraceRecord<>(false, Arrays.asList("a")));
+        Assert.assertEquals(snapshots.size(), 1);
+    }
+
+    @Test
+    public void subscribeToPublisher() throws Exception {
+        final List<Ranking<String>> snapshots = new ArrayList<>();
+        final StreamingFaultLocalizer<String> streaming = new StreamingFaultLocalizer<>(new Ochiai<>(), 0,
+                snapshots::add);
+        try (SubmissionPublisher<TraceRecord<String>> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(streaming);
+            publisher.submit(new TraceRecord<>(false, Arrays.asList("a", "b")));
+            publisher.submit(new TraceRecord<>(true, Arrays.asList("b")));
+        }
+        final Ranking<String> ranking = streaming.getResult().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(snapshots, Arrays.asList(ranking));
+        Assert.assertEquals(ranking.wastedEffort(streaming.getSpectra().getNode("a")), 0);
+        Assert.assertEquals(ranking.wastedEffort(streaming.getSpectra().getNode("b")), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void negativeSnapshotTraces() {
+        new StreamingFaultLocalizer<String>(new Ochiai<>(), -1, null);
+    }
+}
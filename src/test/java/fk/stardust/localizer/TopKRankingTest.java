@@ -0,0 +1,112 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.Ranking.RankingMetric;
+import fk.stardust.localizer.sbfl.Ochiai;
+import fk.stardust.test.data.SimpleSpectraProvider;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.Spectra;
+
+public class TopKRankingTest {
+
+    @Test
+    public void matchesFullRanking() {
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> full = new Ranking<>();
+        final Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            full.rank(s.getNode("S" + i), random.nextInt(20) / 4.0d);
+        }
+        final TopKRanking<String> top = new TopKRanking<>(full, 25);
+
+        final List<INode<String>> tracked = new ArrayList<>();
+        for (final INode<String> node : top) {
+            tracked.add(node);
+        }
+        Assert.assertEquals(tracked.size(), 25);
+        final Iterator<INode<String>> fullIterator = full.iterator();
+        for (final INode<String> node : tracked) {
+            Assert.assertSame(node, fullIterator.next());
+            Assert.assertTrue(top.isTracked(node));
+        }
+
+        // exact metrics for tracked and untracked nodes
+        for (final INode<String> node : s.getNodes()) {
+            final RankingMetric expected = full.getRankingMetrics(node);
+            final RankingMetric actual = top.getRankingMetrics(node);
+            Assert.assertEquals(actual.getBestRanking(), expected.getBestRanking(), node.toString());
+            Assert.assertEquals(actual.getWorstRanking(), expected.getWorstRanking(), node.toString());
+            Assert.assertEquals(top.wastedEffort(node), full.wastedEffort(node), node.toString());
+        }
+    }
+
+    @Test
+    public void inheritedCacheMatchesFullRanking() {
+        final Spectra<String> s = new Spectra<>();
+        final Ranking<String> full = new Ranking<>();
+        final Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            full.rank(s.getNode("S" + i), random.nextInt(10) / 2.0d);
+        }
+        final TopKRanking<String> top = new TopKRanking<>(full, 20);
+
+        // a ranking sharing the data of a top K ranking must not reuse its partial cache
+        top.iterator();
+        final NormalizedRanking<String> normalizedTop = new NormalizedRanking<>(top,
+                NormalizedRanking.NormalizationStrategy.ReciprocalRank);
+        final NormalizedRanking<String> normalizedFull = new NormalizedRanking<>(full,
+                NormalizedRanking.NormalizationStrategy.ReciprocalRank);
+        Assert.assertEquals(normalizedTop.size(), full.size());
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(normalizedTop.getSuspiciousness(node), normalizedFull.getSuspiciousness(node));
+            Assert.assertEquals(normalizedTop.wastedEffort(node), full.wastedEffort(node));
+        }
+    }
+
+    @Test
+    public void kLargerThanRanking() {
+        final Spectra<String> s = new Spectra<>();
+        final TopKRanking<String> top = new TopKRanking<>(10);
+        top.rank(s.getNode("S1"), 0.5);
+        top.rank(s.getNode("S2"), 1.0);
+
+        final Iterator<INode<String>> it = top.iterator();
+        Assert.assertSame(it.next(), s.getNode("S2"));
+        Assert.assertSame(it.next(), s.getNode("S1"));
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(top.getRankingMetrics(s.getNode("S1")).getWorstRanking(), 2);
+    }
+
+    @Test
+    public void localizeTopK() throws Exception {
+        final Spectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final TopKRanking<String> top = new Ochiai<String>().localize(s, 1);
+        Assert.assertEquals(top.getK(), 1);
+        Assert.assertEquals(top.size(), 3);
+        final Iterator<INode<String>> it = top.iterator();
+        Assert.assertSame(it.next(), s.getNode("S2"));
+        Assert.assertFalse(it.hasNext());
+        Assert.assertFalse(top.isTracked(s.getNode("S1")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidK() {
+        new TopKRanking<String>(0);
+    }
+}
@@ -9,6 +9,7 @@
 
 package fk.stardust.localizer.extra;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import fk.stardust.localizer.NormalizedRanking.NormalizationStrategy;
@@ -32,4 +33,19 @@ public class FusingFaultLocalizerTest {
             System.out.println(String.format("Node %s: %f", n.getIdentifier(), r.getSuspiciousness(n)));
         }
     }
+
+    @Test
+    public void fusionIsDeterministic() throws Exception {
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        for (final DataFusionTechnique fusion : new DataFusionTechnique[] { DataFusionTechnique.COMB_SUM,
+                DataFusionTechnique.COMB_ANZ }) {
+            final Ranking<String> first = new FusingFaultLocalizer<String>(NormalizationStrategy.ReciprocalRank,
+                    SelectionTechnique.BIAS_RATE, fusion).localize(s);
+            final Ranking<String> second = new FusingFaultLocalizer<String>(NormalizationStrategy.ReciprocalRank,
+                    SelectionTechnique.BIAS_RATE, fusion).localize(s);
+            for (final INode<String> n : s.getNodes()) {
+                Assert.assertEquals(first.getSuspiciousness(n), second.getSuspiciousness(n));
+            }
+        }
+    }
 }
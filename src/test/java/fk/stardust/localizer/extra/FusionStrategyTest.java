@@ -0,0 +1,90 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.NormalizedRanking.NormalizationStrategy;
+import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.extra.FusingFaultLocalizer.DataFusionTechnique;
+import fk.stardust.localizer.extra.FusingFaultLocalizer.SelectionTechnique;
+import fk.stardust.test.data.SimpleSpectraProvider;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+
+public class FusionStrategyTest {
+
+    private static final double[][] SCORES = { { 0.0, 0.5, 1.0, 0.0 }, { 0.0, 0.25, 0.0, 1.0 },
+            { 0.0, 1.0, 0.5, 0.5 } };
+
+    @Test
+    public void combSum() {
+        Assert.assertEquals(new CombSum().fuse(SCORES, 4), new double[] { 0.0, 1.75, 1.5, 1.5 });
+    }
+
+    @Test
+    public void combAnz() {
+        Assert.assertEquals(new CombAnz().fuse(SCORES, 4), new double[] { 0.0, 1.0 / 3 * 1.75, 1.5 / 2, 1.5 / 2 });
+    }
+
+    @Test
+    public void combMnz() {
+        Assert.assertEquals(new CombMnz().fuse(SCORES, 4), new double[] { 0.0, 1.75 * 3, 1.5 * 2, 1.5 * 2 });
+    }
+
+    @Test
+    public void weightedSum() {
+        Assert.assertEquals(new WeightedSum(1.0, 2.0, 0.0).fuse(SCORES, 4), new double[] { 0.0, 1.0, 1.0, 2.0 });
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void weightedSumWithWrongWeightCount() {
+        new WeightedSum(1.0).fuse(SCORES, 4);
+    }
+
+    @Test
+    public void correlationWeights() {
+        final double[][] scores = { { 0.0, 0.5, 1.0 }, { 0.0, 0.5, 1.0 }, { 1.0, 0.5, 0.0 }, { 0.3, 0.3, 0.3 } };
+        final double[] weights = new CorrelationFusion().weights(scores, 3);
+        // correlations: 0-1 = 1, 0-2 = -1, 1-2 = -1, constant technique 3 is uncorrelated
+        Assert.assertEquals(weights[0], 1.0 - (1.0 - 1.0) / 3, 1e-12);
+        Assert.assertEquals(weights[1], 1.0 - (1.0 - 1.0) / 3, 1e-12);
+        Assert.assertEquals(weights[2], 1.0 - (-2.0) / 3, 1e-12);
+        Assert.assertEquals(weights[3], 1.0, 1e-12);
+
+        final double[] fused = new CorrelationFusion().fuse(scores, 3);
+        for (int i = 0; i < 3; i++) {
+            double expected = 0;
+            for (int t = 0; t < scores.length; t++) {
+                expected += weights[t] * scores[t][i];
+            }
+            Assert.assertEquals(fused[i], expected, 1e-12);
+        }
+        Assert.assertEquals(new CorrelationFusion().weights(new double[][] { { 0.1, 0.2 } }, 2), new double[] { 1.0 });
+    }
+
+    @Test
+    public void localizeWithAllTechniques() throws Exception {
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        for (final DataFusionTechnique fusion : DataFusionTechnique.values()) {
+            final FusingFaultLocalizer<String> f = new FusingFaultLocalizer<>(NormalizationStrategy.ZeroOne,
+                    SelectionTechnique.OVERLAP_RATE, fusion);
+            Assert.assertEquals(f.getName(), "F-ZeroOne-OVERLAP_RATE-" + fusion.toString());
+            final Ranking<String> r = f.localize(s);
+            for (final INode<String> n : s.getNodes()) {
+                Assert.assertFalse(Double.isNaN(r.getSuspiciousness(n)));
+            }
+        }
+        final FusingFaultLocalizer<String> f = new FusingFaultLocalizer<>(NormalizationStrategy.ZeroOne,
+                SelectionTechnique.OVERLAP_RATE, new CombMnz());
+        Assert.assertEquals(f.getName(), "F-ZeroOne-OVERLAP_RATE-combmnz");
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.extra;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.sbfl.Ochiai;
+import fk.stardust.traces.IMutableTrace;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.Spectra;
+
+public class ReducingFaultLocalizerTest {
+
+    @Test
+    public void reducedRankingEqualsFullRanking() {
+        final Random random = new Random(7);
+        final Spectra<String> s = new Spectra<>();
+        for (int t = 0; t < 12; t++) {
+            final IMutableTrace<String> trace = s.addTrace(t % 4 != 0);
+            for (int block = 0; block < 30; block++) {
+                final boolean involved = random.nextInt(3) == 0;
+                // each block consists of three lines with identical involvement
+                for (int line = 0; line < 3; line++) {
+                    trace.setInvolvement("B" + block + "L" + line, involved);
+                }
+            }
+        }
+        final Ranking<String> expected = new Ochiai<String>().localize(s);
+        final Ranking<String> actual = new ReducingFaultLocalizer<>(new Ochiai<String>()).localize(s);
+        Assert.assertEquals(actual.size(), expected.size());
+        final Iterator<INode<String>> expectedOrder = expected.iterator();
+        for (final INode<String> node : actual) {
+            Assert.assertEquals(node, expectedOrder.next());
+            Assert.assertEquals(actual.getSuspiciousness(node), expected.getSuspiciousness(node));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.hierarchical;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.sbfl.Ochiai;
+import fk.stardust.localizer.sbfl.Tarantula;
+import fk.stardust.traces.HierarchicalSpectra;
+import fk.stardust.traces.IMutableTrace;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.Spectra;
+
+public class LevelLocalizerTest {
+
+    private Spectra<String> lines;
+    private HierarchicalSpectra<String, String> methods;
+    private HierarchicalSpectra<String, String> classes;
+
+    @BeforeMethod
+    public void createSpectra() {
+        this.lines = new Spectra<>();
+        this.methods = new HierarchicalSpectra<>(this.lines);
+        this.classes = new HierarchicalSpectra<>(this.methods);
+        final Random random = new Random(16);
+        for (int t = 0; t < 30; t++) {
+            final IMutableTrace<String> trace = this.lines.addTrace(random.nextInt(3) != 0);
+            for (int n = 0; n < 200; n++) {
+                trace.setInvolvement("L" + n, random.nextInt(5) == 0);
+            }
+        }
+        // the last 10 lines have no method and are not ranked
+        for (int n = 0; n < 190; n++) {
+            this.methods.setParent("M" + n / 5, "L" + n);
+        }
+        for (int m = 0; m < 38; m++) {
+            this.classes.setParent("C" + m / 4, "M" + m);
+        }
+    }
+
+    private LevelLocalizer<String, String> localizer(final int threads) {
+        final LevelLocalizer<String, String> ll = new LevelLocalizer<>(threads);
+        ll.setLevelLocalizer(0, new Tarantula<>());
+        ll.setLevelLocalizer(1, new Ochiai<>());
+        ll.setLevelLocalizer(2, new Tarantula<>());
+        return ll;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void accumulateSuspiciousnessOfAllLevels() {
+        final Ranking<String> ranking = (Ranking<String>) this.localizer(4).localize(this.classes);
+        final Ranking<String> classRanking = new Tarantula<String>().localize(this.classes);
+        final Ranking<String> methodRanking = new Ochiai<String>().localize(this.methods);
+        final Ranking<String> lineRanking = new Tarantula<String>().localize(this.lines);
+
+        Assert.assertEquals(ranking.size(), 190);
+        for (int n = 0; n < 190; n++) {
+            final INode<String> line = this.lines.getNode("L" + n);
+            final double expected = classRanking.getSuspiciousness(this.classes.getNode("C" + n / 20))
+                    + methodRanking.getSuspiciousness(this.methods.getNode("M" + n / 5))
+                    + lineRanking.getSuspiciousness(line);
+            Assert.assertEquals(ranking.getSuspiciousness(line), expected, 1e-12);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void resultIndependentOfThreads() {
+        final Ranking<String> sequential = (Ranking<String>) this.localizer(1).localize(this.classes);
+        final Ranking<String> parallel = (Ranking<String>) this.localizer(4).localize(this.classes);
+        for (final INode<String> node : sequential) {
+            Assert.assertEquals(parallel.getSuspiciousness(node), sequential.getSuspiciousness(node));
+            Assert.assertEquals(parallel.wastedEffort(node), sequential.wastedEffort(node));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void sharedChildKeepsHighestScore() {
+        this.methods.setParent("M0", "L100");
+        final Ranking<String> ranking = (Ranking<String>) this.localizer(2).localize(this.classes);
+        final Ranking<String> classRanking = new Tarantula<String>().localize(this.classes);
+        final Ranking<String> methodRanking = new Ochiai<String>().localize(this.methods);
+        final double viaM0 = classRanking.getSuspiciousness(this.classes.getNode("C0"))
+                + methodRanking.getSuspiciousness(this.methods.getNode("M0"));
+        final double viaM20 = classRanking.getSuspiciousness(this.classes.getNode("C5"))
+                + methodRanking.getSuspiciousness(this.methods.getNode("M20"));
+        final INode<String> line = this.lines.getNode("L100");
+        Assert.assertEquals(ranking.getSuspiciousness(line), Math.max(viaM0, viaM20)
+                + new Tarantula<String>().localize(this.lines).getSuspiciousness(line), 1e-12);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void missingLevelLocalizer() {
+        final LevelLocalizer<String, String> ll = new LevelLocalizer<>(1);
+        ll.setLevelLocalizer(0, new Tarantula<>());
+        ll.localize(this.classes);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void drillDownExpandingAllNodesEqualsFullRanking() {
+        final Ranking<String> full = (Ranking<String>) this.localizer(2).localize(this.classes);
+        final PartialRanking<String> partial = (PartialRanking<String>) this.localizer(2).localize(this.classes,
+                Integer.MAX_VALUE, Double.POSITIVE_INFINITY);
+        Assert.assertTrue(partial.getUnexpanded().isEmpty());
+        Assert.assertEquals(partial.size(), full.size());
+        for (final INode<String> node : full) {
+            Assert.assertEquals(partial.getSuspiciousness(node), full.getSuspiciousness(node));
+            Assert.assertEquals(partial.wastedEffort(node), full.wastedEffort(node));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void drillDownExpandsTopNodesOnly() {
+        final Ranking<String> full = (Ranking<String>) this.localizer(2).localize(this.classes);
+        final PartialRanking<String> partial = (PartialRanking<String>) this.localizer(2).localize(this.classes, 1,
+                Double.POSITIVE_INFINITY);
+
+        // one class and one of its methods expanded
+        Assert.assertEquals(partial.size(), 5);
+        final List<PartialRanking.UnexpandedBucket> unexpanded = partial.getUnexpanded();
+        int unexpandedClasses = 0;
+        for (final PartialRanking.UnexpandedBucket bucket : unexpanded) {
+            unexpandedClasses += bucket.getLevel() == 0 ? 1 : 0;
+        }
+        Assert.assertEquals(unexpandedClasses, 9);
+        final int line = Integer.parseInt(partial.iterator().next().getIdentifier().substring(1));
+        final int methodsOfClass = this.classes.getChildrenOf(this.classes.getNode("C" + line / 20)).size();
+        Assert.assertEquals(unexpanded.size() - unexpandedClasses, methodsOfClass - 1);
+        for (int i = 1; i < unexpanded.size(); i++) {
+            Assert.assertTrue(unexpanded.get(i - 1).getSuspiciousness() >= unexpanded.get(i).getSuspiciousness());
+        }
+        for (final INode<String> node : partial) {
+            Assert.assertEquals(partial.getSuspiciousness(node), full.getSuspiciousness(node), 1e-12);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void drillDownExpandsNodesAboveThreshold() {
+        final PartialRanking<String> partial = (PartialRanking<String>) this.localizer(2).localize(this.classes, 0,
+                Double.NEGATIVE_INFINITY);
+        Assert.assertTrue(partial.getUnexpanded().isEmpty());
+        Assert.assertEquals(partial.size(), 190);
+
+        final PartialRanking<String> none = (PartialRanking<String>) this.localizer(2).localize(this.classes, 0,
+                Double.POSITIVE_INFINITY);
+        Assert.assertEquals(none.size(), 0);
+        Assert.assertEquals(none.getUnexpanded().size(), 10);
+        Assert.assertEquals(none.getUnexpanded().get(0).getLevel(), 0);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.machinelearn;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.machinelearn.PrimitiveFaultLocalizer.Model;
+import fk.stardust.traces.BitsetSpectra;
+import fk.stardust.traces.IMutableTrace;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+import fk.stardust.traces.Spectra;
+
+public class PrimitiveFaultLocalizerTest {
+
+    /**
+     * Creates a spectra where node N3 is involved in all failing traces.
+     */
+    private Spectra<String> spectra() {
+        final Random random = new Random(3);
+        final Spectra<String> s = new Spectra<>();
+        for (int t = 0; t < 60; t++) {
+            final boolean successful = t % 3 != 0;
+            final IMutableTrace<String> trace = s.addTrace(successful);
+            for (int n = 0; n < 40; n++) {
+                trace.setInvolvement("N" + n, random.nextInt(3) == 0 || !successful && n == 3);
+            }
+        }
+        return s;
+    }
+
+    @Test
+    public void naiveBayesMatchesWeka() {
+        final Spectra<String> s = this.spectra();
+        final Ranking<String> expected = new WekaFaultLocalizer<String>("weka.classifiers.bayes.NaiveBayes")
+                .localize(s);
+        final Ranking<String> actual = new PrimitiveFaultLocalizer<String>(Model.NAIVE_BAYES).localize(s);
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(actual.getSuspiciousness(node), expected.getSuspiciousness(node), 1e-12);
+        }
+    }
+
+    @Test
+    public void logisticRegressionRanksFaultFirst() {
+        final Spectra<String> s = this.spectra();
+        final Ranking<String> ranking = new PrimitiveFaultLocalizer<String>(Model.LOGISTIC_REGRESSION).localize(s);
+        Assert.assertEquals(ranking.iterator().next().getIdentifier(), "N3");
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertTrue(ranking.getSuspiciousness(node) > 0 && ranking.getSuspiciousness(node) < 1);
+        }
+    }
+
+    @Test
+    public void resultIsIndependentOfThreadCount() {
+        final Spectra<String> s = this.spectra();
+        final ISpectra<String> b = BitsetSpectra.copyOf(s);
+        for (final Model model : Model.values()) {
+            final Ranking<String> expected = new PrimitiveFaultLocalizer<String>(model, 1).localize(s);
+            final Ranking<String> actual = new PrimitiveFaultLocalizer<String>(model, 4).localize(b);
+            for (final INode<String> node : s.getNodes()) {
+                Assert.assertEquals(actual.getSuspiciousness(b.getNode(node.getIdentifier())),
+                        expected.getSuspiciousness(node));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsInvalidParameters() {
+        new PrimitiveFaultLocalizer<String>(Model.LOGISTIC_REGRESSION, 1, -1.0, 10);
+    }
+}
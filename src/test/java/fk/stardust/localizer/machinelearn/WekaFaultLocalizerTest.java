@@ -0,0 +1,231 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.machinelearn;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import fk.stardust.localizer.Ranking;
+import fk.stardust.test.data.SimpleSpectraProvider;
+import fk.stardust.traces.BitsetSpectra;
+import fk.stardust.traces.IMutableTrace;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+import fk.stardust.traces.ITrace;
+import fk.stardust.traces.Spectra;
+
+public class WekaFaultLocalizerTest {
+
+    private static final String NAIVE_BAYES = "weka.classifiers.bayes.NaiveBayes";
+
+    @Test
+    public void trainingSetIsSparse() throws Exception {
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final List<INode<String>> nodes = new ArrayList<>(s.getNodes());
+        final Instances trainingSet = new WekaFaultLocalizer<String>(NAIVE_BAYES).createTrainingSet(s, nodes);
+
+        Assert.assertEquals(trainingSet.numInstances(), s.getTraces().size());
+        Assert.assertEquals(trainingSet.classIndex(), nodes.size());
+        for (int t = 0; t < trainingSet.numInstances(); t++) {
+            final Instance instance = trainingSet.instance(t);
+            final ITrace<String> trace = s.getTraces().get(t);
+            Assert.assertTrue(instance instanceof SparseInstance);
+            for (int i = 0; i < nodes.size(); i++) {
+                Assert.assertEquals(instance.stringValue(i), trace.isInvolved(nodes.get(i)) ? "t" : "f");
+            }
+            Assert.assertEquals(instance.stringValue(trainingSet.classIndex()), trace.isSuccessful() ? "t" : "f");
+        }
+    }
+
+    @Test
+    public void bitsetSpectraMatchesSpectra() throws Exception {
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final ISpectra<String> b = BitsetSpectra.copyOf(s);
+        final Ranking<String> expected = new WekaFaultLocalizer<String>(NAIVE_BAYES).localize(s);
+        final Ranking<String> actual = new WekaFaultLocalizer<String>(NAIVE_BAYES).localize(b);
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(actual.getSuspiciousness(b.getNode(node.getIdentifier())),
+                    expected.getSuspiciousness(node));
+        }
+        // S2 is involved in all failing traces
+        Assert.assertEquals(expected.iterator().next().getIdentifier(), "S2");
+    }
+
+    @Test
+    public void parallelProbingMatchesSequentialProbing() throws Exception {
+        final ISpectra<String> s = this.largeSpectra();
+        final Ranking<String> expected = new WekaFaultLocalizer<String>(NAIVE_BAYES, null, 1).localize(s);
+
+        final WekaFaultLocalizer<String> parallel = new WekaFaultLocalizer<>(NAIVE_BAYES, null, 4);
+        final AtomicInteger probed = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        parallel.setProbingListener((done, total, elapsed) -> {
+            Assert.assertEquals(total, s.getNodes().size());
+            probed.accumulateAndGet(done, Math::max);
+            calls.incrementAndGet();
+        });
+        final Ranking<String> actual = parallel.localize(s);
+        Assert.assertEquals(probed.get(), s.getNodes().size());
+        Assert.assertEquals(calls.get(), 3);
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(actual.getSuspiciousness(node), expected.getSuspiciousness(node));
+        }
+    }
+
+    @Test
+    public void batchProbingMatchesSingleProbing() throws Exception {
+        final ISpectra<String> s = this.largeSpectra();
+        final Ranking<String> expected = new WekaFaultLocalizer<String>(NAIVE_BAYES, null, 2).localize(s);
+        final Ranking<String> actual = new WekaFaultLocalizer<String>(BatchNaiveBayes.class.getName(), null, 2)
+                .localize(s);
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(actual.getSuspiciousness(node), expected.getSuspiciousness(node), 1e-12);
+        }
+        Assert.assertTrue(BatchNaiveBayes.BATCHES.get() > 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsInvalidThreadCount() {
+        new WekaFaultLocalizer<String>(NAIVE_BAYES, null, 0);
+    }
+
+    @Test
+    public void cachedClassifierIsReused() throws Exception {
+        final File directory = Files.createTempDirectory("models").toFile();
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final Ranking<String> expected = new WekaFaultLocalizer<String>(NAIVE_BAYES).localize(s);
+
+        final WekaFaultLocalizer<String> cached = new WekaFaultLocalizer<>(NAIVE_BAYES);
+        final ClassifierCache cache = new ClassifierCache(1, directory);
+        cached.setClassifierCache(cache);
+        cached.localize(s);
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(directory.listFiles().length, 1);
+
+        // a second cache only finds the serialized model
+        final ClassifierCache reloaded = new ClassifierCache(1, directory);
+        cached.setClassifierCache(reloaded);
+        final ISpectra<String> b = BitsetSpectra.copyOf(s);
+        final Ranking<String> actual = cached.localize(b);
+        Assert.assertEquals(reloaded.size(), 1);
+        Assert.assertEquals(directory.listFiles().length, 1);
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(actual.getSuspiciousness(b.getNode(node.getIdentifier())),
+                    expected.getSuspiciousness(node));
+        }
+        for (final File model : directory.listFiles()) {
+            model.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void cachedClassifierWithOptionsIsReused() throws Exception {
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final String[] options = { "-K" };
+        final Ranking<String> expected = new WekaFaultLocalizer<String>(NAIVE_BAYES, options, 1).localize(s);
+
+        final AtomicInteger hits = new AtomicInteger();
+        final ClassifierCache cache = new ClassifierCache(2) {
+            @Override
+            public Classifier get(final String key) {
+                final Classifier model = super.get(key);
+                if (model != null) {
+                    hits.incrementAndGet();
+                }
+                return model;
+            }
+        };
+        final WekaFaultLocalizer<String> cached = new WekaFaultLocalizer<>(NAIVE_BAYES, options, 1);
+        cached.setClassifierCache(cache);
+        cached.localize(s);
+        Assert.assertEquals(hits.get(), 0);
+        final Ranking<String> actual = cached.localize(s);
+        Assert.assertEquals(hits.get(), 1);
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(options, new String[] { "-K" });
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(actual.getSuspiciousness(node), expected.getSuspiciousness(node));
+        }
+    }
+
+    @Test
+    public void cacheKeyDependsOnDataAndOptions() throws Exception {
+        final Spectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final WekaFaultLocalizer<String> localizer = new WekaFaultLocalizer<>(NAIVE_BAYES);
+        final Instances trainingSet = localizer.createTrainingSet(s, new ArrayList<>(s.getNodes()));
+        final String key = ClassifierCache.key(NAIVE_BAYES, new String[0], trainingSet);
+        Assert.assertEquals(ClassifierCache.key(NAIVE_BAYES, new String[0], localizer.createTrainingSet(
+                BitsetSpectra.copyOf(s), new ArrayList<>(s.getNodes()))), key);
+        Assert.assertNotEquals(ClassifierCache.key(NAIVE_BAYES, new String[] { "-K" }, trainingSet), key);
+
+        ((IMutableTrace<String>) s.getTraces().get(0)).setInvolvement("S3", true);
+        Assert.assertNotEquals(ClassifierCache.key(NAIVE_BAYES, new String[0], localizer.createTrainingSet(s,
+                new ArrayList<>(s.getNodes()))), key);
+    }
+
+    @Test
+    public void cacheEvictsLeastRecentlyUsedModels() {
+        final ClassifierCache cache = new ClassifierCache(2);
+        cache.put("a", new NaiveBayes());
+        cache.put("b", new NaiveBayes());
+        cache.get("a");
+        cache.put("c", new NaiveBayes());
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+    }
+
+    private ISpectra<String> largeSpectra() {
+        final Random random = new Random(42);
+        final Spectra<String> s = new Spectra<>();
+        for (int t = 0; t < 20; t++) {
+            final IMutableTrace<String> trace = s.addTrace(t % 3 != 0);
+            for (int n = 0; n < 2500; n++) {
+                trace.setInvolvement("N" + n, random.nextInt(4) == 0);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Naive Bayes classifier claiming an efficient batch prediction and counting the predicted batches.
+     */
+    public static class BatchNaiveBayes extends NaiveBayes {
+
+        private static final long serialVersionUID = 1L;
+
+        static final AtomicInteger BATCHES = new AtomicInteger();
+
+        @Override
+        public boolean implementsMoreEfficientBatchPrediction() {
+            return true;
+        }
+
+        @Override
+        public double[][] distributionsForInstances(final Instances batch) throws Exception {
+            BATCHES.incrementAndGet();
+            return super.distributionsForInstances(batch);
+        }
+    }
+}
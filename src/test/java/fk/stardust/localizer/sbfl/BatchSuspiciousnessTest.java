@@ -0,0 +1,34 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.sbfl;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.test.data.SimpleSpectraProvider;
+import fk.stardust.traces.ContingencyTable;
+import fk.stardust.traces.ISpectra;
+
+public class BatchSuspiciousnessTest {
+
+    @Test
+    public void batchEqualsSingleNodeSuspiciousness() throws Exception {
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final ContingencyTable<String> table = s.getContingencyTable();
+
+        for (final AbstractSpectrumBasedFaultLocalizer<String> fl : FormulaBank.<String> defaultFormulas()) {
+            final double[] batch = new double[table.getNodeCount()];
+            fl.suspiciousness(table.getIFArray(), table.getISArray(), table.getNFArray(), table.getNSArray(), batch);
+            for (int i = 0; i < batch.length; i++) {
+                Assert.assertEquals(Double.compare(batch[i], fl.suspiciousness(table.getNode(i))), 0, fl.getName());
+            }
+        }
+    }
+}
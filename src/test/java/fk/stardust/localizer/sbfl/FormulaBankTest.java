@@ -0,0 +1,39 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.localizer.sbfl;
+
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.Ranking;
+import fk.stardust.test.data.SimpleSpectraProvider;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+
+public class FormulaBankTest {
+
+    @Test
+    public void rankAllFormulasInOneSweep() throws Exception {
+        final ISpectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final FormulaBank<String> bank = FormulaBank.all();
+        final Map<AbstractSpectrumBasedFaultLocalizer<String>, Ranking<String>> rankings = bank.localize(s);
+
+        Assert.assertEquals(rankings.size(), 33);
+        for (final AbstractSpectrumBasedFaultLocalizer<String> fl : bank.getFormulas()) {
+            final Ranking<String> expected = fl.localize(s);
+            final Ranking<String> actual = rankings.get(fl);
+            for (final INode<String> node : s.getNodes()) {
+                Assert.assertEquals(actual.getSuspiciousness(node), expected.getSuspiciousness(node), fl.getName());
+            }
+        }
+    }
+}
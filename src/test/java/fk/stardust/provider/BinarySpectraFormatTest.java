@@ -0,0 +1,111 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fk.stardust.traces.HierarchicalSpectra;
+import fk.stardust.traces.INode;
+import fk.stardust.traces.ISpectra;
+
+public class BinarySpectraFormatTest {
+
+    private static final String SIMPLE = "src/test/resources/fk/stardust/provider/simple-coverage.xml";
+    private static final String LARGE = "src/test/resources/fk/stardust/provider/large-coverage.xml";
+
+    private File file;
+
+    @BeforeMethod
+    public void before() throws IOException {
+        this.file = File.createTempFile("stardust", ".spectra");
+    }
+
+    @AfterMethod
+    public void after() {
+        this.file.delete();
+    }
+
+    @Test
+    public void writeAndReadLineSpectra() throws Exception {
+        final CoberturaProvider c = new CoberturaProvider();
+        c.addTraceFile(LARGE, false);
+        c.addTraceFile(SIMPLE, true);
+        final ISpectra<String> expected = c.loadSpectra();
+
+        BinarySpectraFormat.write(expected, this.file, 42L);
+        Assert.assertEquals(BinarySpectraFormat.readSourceStamp(this.file), Long.valueOf(42L));
+        final ISpectra<String> actual = new BinarySpectraProvider(this.file.getPath()).loadSpectra();
+
+        Assert.assertEquals(actual.getNodes().size(), expected.getNodes().size());
+        Assert.assertEquals(actual.getTraces().size(), 2);
+        for (int i = 0; i < expected.getNodes().size(); i++) {
+            final INode<String> node = expected.getNodes().get(i);
+            final INode<String> loaded = actual.getNodes().get(i);
+            Assert.assertEquals(loaded.getIdentifier(), node.getIdentifier());
+            Assert.assertEquals(loaded.getIF(), node.getIF());
+            Assert.assertEquals(loaded.getIS(), node.getIS());
+        }
+        Assert.assertFalse(actual.getTraces().get(0).isSuccessful());
+        Assert.assertTrue(actual.getTraces().get(1).isSuccessful());
+    }
+
+    @Test
+    public void writeAndReadHierarchicalSpectra() throws Exception {
+        final CoberturaProvider c = new CoberturaProvider();
+        c.addTraceFile(SIMPLE, true);
+        final HierarchicalSpectra<String, String> expected = c.loadHierarchicalSpectra();
+
+        BinarySpectraFormat.write(expected, this.file, 1L);
+        final HierarchicalSpectra<String, String> actual = new BinarySpectraProvider(this.file.getPath())
+                .loadHierarchicalSpectra();
+
+        Assert.assertEquals(actual.getNodes().size(), 1);
+        Assert.assertEquals(actual.getNode("cobertura").getIS(), 1);
+        final HierarchicalSpectra<String, String> classes = (HierarchicalSpectra<String, String>) actual
+                .getChildSpectra();
+        final HierarchicalSpectra<String, String> methods = (HierarchicalSpectra<String, String>) classes
+                .getChildSpectra();
+        final INode<String> main = methods.getNode("cobertura/CoverageTest.java:main([Ljava/lang/String;)V");
+        Assert.assertEquals(methods.getChildrenOf(main).size(), 2);
+        Assert.assertEquals(main.getIS(), 1);
+        Assert.assertEquals(methods.getNode("cobertura/CoverageTest.java:<init>()V").getIS(), 0);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void detectCorruptFile() throws Exception {
+        final CoberturaProvider c = new CoberturaProvider();
+        c.addTraceFile(SIMPLE, true);
+        BinarySpectraFormat.write(c.loadSpectra(), this.file, 1L);
+
+        try (RandomAccessFile out = new RandomAccessFile(this.file, "rw")) {
+            out.seek(30);
+            final int value = out.read();
+            out.seek(30);
+            out.write(value ^ 0xFF);
+        }
+        BinarySpectraFormat.read(this.file);
+    }
+
+    @Test
+    public void sourceStampDependsOnFiles() {
+        final long stamp = BinarySpectraFormat.sourceStamp(Arrays.asList(SIMPLE, LARGE));
+        Assert.assertEquals(BinarySpectraFormat.sourceStamp(Arrays.asList(SIMPLE, LARGE)), stamp);
+        Assert.assertNotEquals(BinarySpectraFormat.sourceStamp(Arrays.asList(SIMPLE)), stamp);
+        Assert.assertNotEquals(BinarySpectraFormat.sourceStamp(Arrays.asList(LARGE, SIMPLE)), stamp);
+    }
+}
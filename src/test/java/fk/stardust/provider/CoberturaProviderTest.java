@@ -9,9 +9,12 @@
 
 package fk.stardust.provider;
 
+import java.io.FileNotFoundException;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import fk.stardust.traces.HierarchicalSpectra;
 import fk.stardust.traces.INode;
 import fk.stardust.traces.ISpectra;
 import fk.stardust.traces.ITrace;
@@ -61,4 +64,68 @@ public class CoberturaProviderTest {
         }
         Assert.assertEquals(count, 3563);
     }
+
+    @Test
+    public void skipTraceWithoutExecutedNodes() throws Exception {
+        final CoberturaProvider c = new CoberturaProvider();
+        c.addTraceFile("src/test/resources/fk/stardust/provider/simple-coverage.xml", true);
+        c.addTraceFile("src/test/resources/fk/stardust/provider/unexecuted-coverage.xml", false);
+        final ISpectra<String> s = c.loadSpectra();
+
+        Assert.assertEquals(s.getNodes().size(), 3);
+        Assert.assertEquals(s.getTraces().size(), 1);
+        Assert.assertTrue(s.getTraces().get(0).isSuccessful());
+    }
+
+    @Test
+    public void loadSimpleHierarchicalCoverage() throws Exception {
+        final CoberturaProvider c = new CoberturaProvider();
+        c.addTraceFile("src/test/resources/fk/stardust/provider/simple-coverage.xml", true);
+        final HierarchicalSpectra<String, String> packages = c.loadHierarchicalSpectra();
+
+        Assert.assertEquals(packages.getNodes().size(), 1);
+        final HierarchicalSpectra<String, String> classes = (HierarchicalSpectra<String, String>) packages
+                .getChildSpectra();
+        Assert.assertEquals(classes.getNodes().size(), 1);
+        final HierarchicalSpectra<String, String> methods = (HierarchicalSpectra<String, String>) classes
+                .getChildSpectra();
+        Assert.assertEquals(methods.getNodes().size(), 2);
+        Assert.assertTrue(methods.hasNode("cobertura/CoverageTest.java:<init>()V"));
+        Assert.assertEquals(methods.getChildSpectra().getNodes().size(), 3);
+        Assert.assertEquals(packages.getNode("cobertura").getIS(), 1);
+    }
+
+    @Test(expectedExceptions = FileNotFoundException.class)
+    public void addMissingTraceFile() throws Exception {
+        new CoberturaProvider().addTraceFile("src/test/resources/fk/stardust/provider/missing.xml", true);
+    }
+
+    @Test
+    public void parallelLoadingEqualsSequentialLoading() throws Exception {
+        final ISpectra<String> sequential = this.loadAll(new CoberturaProvider(1));
+        final ISpectra<String> parallel = this.loadAll(new CoberturaProvider(4));
+
+        Assert.assertEquals(parallel.getTraces().size(), 2);
+        Assert.assertEquals(parallel.getNodes().size(), sequential.getNodes().size());
+        for (int i = 0; i < sequential.getNodes().size(); i++) {
+            Assert.assertEquals(parallel.getNodes().get(i).getIdentifier(), sequential.getNodes().get(i)
+                    .getIdentifier());
+        }
+        for (int t = 0; t < sequential.getTraces().size(); t++) {
+            final ITrace<String> expected = sequential.getTraces().get(t);
+            final ITrace<String> actual = parallel.getTraces().get(t);
+            Assert.assertEquals(actual.isSuccessful(), expected.isSuccessful());
+            for (final INode<String> node : sequential.getNodes()) {
+                Assert.assertEquals(actual.isInvolved(parallel.getNode(node.getIdentifier())),
+                        expected.isInvolved(node));
+            }
+        }
+    }
+
+    private ISpectra<String> loadAll(final CoberturaProvider c) throws Exception {
+        c.addTraceFile("src/test/resources/fk/stardust/provider/simple-coverage.xml", false);
+        c.addTraceFile("src/test/resources/fk/stardust/provider/unexecuted-coverage.xml", true);
+        c.addTraceFile("src/test/resources/fk/stardust/provider/large-coverage.xml", true);
+        return c.loadSpectra();
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.test.data.SimpleSpectraProvider;
+
+public class BitsetSpectraTest {
+
+    @Test
+    public void computeINFSMetricsForCopiedSpectra() throws Exception {
+        final ISpectra<String> s = BitsetSpectra.copyOf(new SimpleSpectraProvider().loadSpectra());
+
+        Assert.assertEquals(s.getNodes().size(), 3);
+        Assert.assertEquals(s.getTraces().size(), 5);
+        Assert.assertEquals(s.getFailingTraces().size(), 2);
+        Assert.assertEquals(s.getSuccessfulTraces().size(), 3);
+
+        Assert.assertEquals(s.getNode("S1").getNS(), 0);
+        Assert.assertEquals(s.getNode("S1").getNF(), 1);
+        Assert.assertEquals(s.getNode("S1").getIS(), 3);
+        Assert.assertEquals(s.getNode("S1").getIF(), 1);
+
+        Assert.assertEquals(s.getNode("S2").getNS(), 2);
+        Assert.assertEquals(s.getNode("S2").getNF(), 0);
+        Assert.assertEquals(s.getNode("S2").getIS(), 1);
+        Assert.assertEquals(s.getNode("S2").getIF(), 2);
+
+        Assert.assertEquals(s.getNode("S3").getNS(), 1);
+        Assert.assertEquals(s.getNode("S3").getNF(), 1);
+        Assert.assertEquals(s.getNode("S3").getIS(), 2);
+        Assert.assertEquals(s.getNode("S3").getIF(), 1);
+    }
+
+    @Test
+    public void internNodesToDenseIndices() {
+        final BitsetSpectra<String> s = new BitsetSpectra<>();
+        final INode<String> a = s.getNode("A");
+        final INode<String> b = s.getNode("B");
+
+        Assert.assertSame(s.getNode("A"), a);
+        Assert.assertEquals(s.indexOf(a), 0);
+        Assert.assertEquals(s.indexOf(b), 1);
+        Assert.assertSame(s.getNode(1), b);
+        Assert.assertEquals(s.getNodeCount(), 2);
+        Assert.assertFalse(s.hasNode("C"));
+    }
+
+    @Test
+    public void updateMetricsWhenInvolvementChanges() {
+        final BitsetSpectra<String> s = new BitsetSpectra<>();
+        final BitsetTrace<String> t1 = s.addTrace(false);
+        t1.setInvolvement("A", true);
+        final INode<String> a = s.getNode("A");
+        Assert.assertEquals(a.getIF(), 1);
+        Assert.assertEquals(a.getIS(), 0);
+
+        // add trace
+        final BitsetTrace<String> t2 = s.addTrace(true);
+        Assert.assertEquals(a.getNS(), 1);
+
+        // change involvement in existing trace
+        t2.setInvolvement(a, true);
+        Assert.assertEquals(a.getNS(), 0);
+        Assert.assertEquals(a.getIS(), 1);
+
+        t1.setInvolvement("A", false);
+        Assert.assertEquals(a.getIF(), 0);
+        Assert.assertEquals(a.getNF(), 1);
+
+        Assert.assertTrue(t2.isInvolved(a));
+        Assert.assertEquals(t2.nextInvolved(0), 0);
+        Assert.assertEquals(t2.nextInvolved(1), -1);
+        Assert.assertEquals(t2.getInvolvedCount(), 1);
+    }
+
+    @Test
+    public void computeForSpectraWithoutTraces() {
+        final ISpectra<String> s = new BitsetSpectra<>();
+        final INode<String> n = s.getNode("sampleNode");
+        Assert.assertEquals(n.getNS(), 0);
+        Assert.assertEquals(n.getNF(), 0);
+        Assert.assertEquals(n.getIS(), 0);
+        Assert.assertEquals(n.getIF(), 0);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.test.data.SimpleSpectraProvider;
+
+public class ContingencyTableTest {
+
+    @Test
+    public void computeAllCountersAtOnce() throws Exception {
+        final Spectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final ContingencyTable<String> table = s.getContingencyTable();
+
+        Assert.assertEquals(table.getNodeCount(), 3);
+        Assert.assertEquals(table.getFailingTraceCount(), 2);
+        Assert.assertEquals(table.getSuccessfulTraceCount(), 3);
+
+        final int s2 = table.indexOf(s.getNode("S2"));
+        Assert.assertSame(table.getNode(s2), s.getNode("S2"));
+        Assert.assertEquals(table.getIF(s2), 2);
+        Assert.assertEquals(table.getIS(s2), 1);
+        Assert.assertEquals(table.getNF(s2), 0);
+        Assert.assertEquals(table.getNS(s2), 2);
+
+        // generic computation yields the same counters
+        final ContingencyTable<String> generic = ContingencyTable.compute(s);
+        Assert.assertEquals(generic.getIFArray(), table.getIFArray());
+        Assert.assertEquals(generic.getISArray(), table.getISArray());
+        Assert.assertEquals(generic.getNFArray(), table.getNFArray());
+        Assert.assertEquals(generic.getNSArray(), table.getNSArray());
+    }
+
+    @Test
+    public void cacheTableUntilSpectraIsModified() throws Exception {
+        final Spectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final ContingencyTable<String> table = s.getContingencyTable();
+        Assert.assertSame(s.getContingencyTable(), table);
+
+        final IMutableTrace<String> trace = s.addTrace(false);
+        Assert.assertNotSame(s.getContingencyTable(), table);
+        Assert.assertEquals(s.getNode("S3").getNF(), 2);
+
+        trace.setInvolvement("S3", true);
+        Assert.assertEquals(s.getNode("S3").getIF(), 2);
+        Assert.assertEquals(s.getNode("S3").getNF(), 1);
+
+        // new nodes are part of the recomputed table
+        Assert.assertEquals(s.getNode("S4").getNF(), 3);
+        Assert.assertEquals(s.getContingencyTable().getNodeCount(), 4);
+    }
+}
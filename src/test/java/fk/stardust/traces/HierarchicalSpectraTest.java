@@ -9,6 +9,9 @@
 
 package fk.stardust.traces;
 
+import java.util.List;
+import java.util.Random;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -178,4 +181,83 @@ public class HierarchicalSpectraTest {
         Assert.assertEquals(one.getNode("P2").getIS(), 3); // one more
         Assert.assertEquals(one.getNode("P2").getIF(), 2);
     }
+
+    @Test
+    public void materializedLevelsMatchComputedLevels() {
+        final Random random = new Random(14);
+        final Spectra<String> bottom = new Spectra<>();
+        for (int t = 0; t < 40; t++) {
+            final IMutableTrace<String> trace = bottom.addTrace(random.nextBoolean());
+            for (int n = 0; n < 60; n++) {
+                trace.setInvolvement("L" + n, random.nextInt(8) == 0);
+            }
+        }
+
+        final HierarchicalSpectra<String, String> methods = new HierarchicalSpectra<>(bottom);
+        final HierarchicalSpectra<String, String> classes = new HierarchicalSpectra<>(methods);
+        final HierarchicalSpectra<String, String> plainMethods = new HierarchicalSpectra<>(bottom, false);
+        final HierarchicalSpectra<String, String> plainClasses = new HierarchicalSpectra<>(plainMethods, false);
+        for (int n = 0; n < 60; n++) {
+            methods.setParent("M" + n / 4, "L" + n);
+            plainMethods.setParent("M" + n / 4, "L" + n);
+        }
+        for (int m = 0; m < 15; m++) {
+            classes.setParent("C" + m / 5, "M" + m);
+            plainClasses.setParent("C" + m / 5, "M" + m);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            for (final INode<String> node : classes.getNodes()) {
+                final INode<String> plain = plainClasses.getNode(node.getIdentifier());
+                Assert.assertEquals(node.getIF(), plain.getIF());
+                Assert.assertEquals(node.getIS(), plain.getIS());
+                Assert.assertEquals(node.getNF(), plain.getNF());
+                Assert.assertEquals(node.getNS(), plain.getNS());
+
+                int involved = 0;
+                for (final ITrace<String> trace : classes.getTraces()) {
+                    involved += trace.isInvolved(node) ? 1 : 0;
+                }
+                Assert.assertEquals(involved, node.getIF() + node.getIS());
+            }
+
+            // modifying the bottom level invalidates all materialized levels
+            final IMutableTrace<String> trace = bottom.addTrace(false);
+            trace.setInvolvement("L0", true);
+            trace.setInvolvement("L59", true);
+        }
+    }
+
+    @Test
+    public void tracesAreOrderedAndCached() {
+        final Spectra<String> bottom = this.getTestData();
+        final HierarchicalSpectra<String, String> one = new HierarchicalSpectra<>(bottom);
+        one.setParent("P1", "S1");
+        final HierarchicalSpectra<String, String> two = new HierarchicalSpectra<>(one);
+        two.setParent("Q1", "P1");
+
+        final List<ITrace<String>> traces = two.getTraces();
+        Assert.assertSame(two.getTraces(), traces);
+        Assert.assertEquals(traces.size(), bottom.getTraces().size());
+        for (int i = 0; i < traces.size(); i++) {
+            Assert.assertEquals(traces.get(i).isSuccessful(), bottom.getTraces().get(i).isSuccessful());
+            Assert.assertEquals(traces.get(i).isInvolved(two.getNode("Q1")),
+                    bottom.getTraces().get(i).isInvolved(bottom.getNode("S1")));
+        }
+        Assert.assertEquals(two.getFailingTraces().size(), bottom.getFailingTraces().size());
+        Assert.assertEquals(two.getSuccessfulTraces().size(), bottom.getSuccessfulTraces().size());
+
+        // adding a child trace creates a new view, the old one stays unchanged
+        bottom.addTrace(false).setInvolvement("S1", true);
+        Assert.assertNotSame(two.getTraces(), traces);
+        Assert.assertEquals(traces.size(), bottom.getTraces().size() - 1);
+        Assert.assertTrue(two.getTraces().get(traces.size()).isInvolved(two.getNode("Q1")));
+        Assert.assertEquals(two.getFailingTraces().size(), bottom.getFailingTraces().size());
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void tracesAreImmutable() {
+        final HierarchicalSpectra<String, String> one = new HierarchicalSpectra<>(this.getTestData());
+        one.getTraces().clear();
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.localizer.Ranking;
+import fk.stardust.localizer.sbfl.Ochiai;
+import fk.stardust.test.data.SimpleSpectraProvider;
+
+public class IncrementalCountersTest {
+
+    @Test
+    public void countersMatchFullComputation() {
+        final Random random = new Random(11);
+        final Spectra<String> s = new Spectra<>();
+        for (int t = 0; t < 30; t++) {
+            final IMutableTrace<String> trace = s.addTrace(random.nextBoolean());
+            for (int n = 0; n < 50; n++) {
+                trace.setInvolvement("N" + n, random.nextInt(4) == 0);
+            }
+        }
+        // flip some involvements in existing traces
+        for (int i = 0; i < 200; i++) {
+            final ITrace<String> trace = s.getTraces().get(random.nextInt(30));
+            ((IMutableTrace<String>) trace).setInvolvement("N" + random.nextInt(50), random.nextBoolean());
+        }
+
+        final ContingencyTable<String> expected = ContingencyTable.compute(s);
+        final ContingencyTable<String> actual = s.getContingencyTable();
+        Assert.assertTrue(Arrays.equals(actual.getIFArray(), expected.getIFArray()));
+        Assert.assertTrue(Arrays.equals(actual.getISArray(), expected.getISArray()));
+        Assert.assertTrue(Arrays.equals(actual.getNFArray(), expected.getNFArray()));
+        Assert.assertTrue(Arrays.equals(actual.getNSArray(), expected.getNSArray()));
+    }
+
+    @Test
+    public void trackChangedNodes() throws Exception {
+        final Spectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        Assert.assertEquals(s.pollChangedNodes().size(), 3);
+        Assert.assertTrue(s.pollChangedNodes().isEmpty());
+
+        // involvement changes only affect the changed node
+        final IMutableTrace<String> trace = (IMutableTrace<String>) s.getFailingTraces().get(0);
+        trace.setInvolvement("S3", !trace.isInvolved(s.getNode("S3")));
+        Assert.assertEquals(s.pollChangedNodes(), Arrays.asList(s.getNode("S3")));
+
+        // setting the same involvement again changes nothing
+        trace.setInvolvement("S3", trace.isInvolved(s.getNode("S3")));
+        Assert.assertTrue(s.pollChangedNodes().isEmpty());
+
+        // a new trace changes NF or NS of all nodes
+        s.addTrace(true);
+        Assert.assertEquals(s.pollChangedNodes().size(), 3);
+    }
+
+    @Test
+    public void rerankChangedNodes() throws Exception {
+        final Spectra<String> s = new SimpleSpectraProvider().loadSpectra();
+        final Ochiai<String> ochiai = new Ochiai<>();
+        final Ranking<String> ranking = ochiai.localize(s);
+        s.pollChangedNodes();
+
+        final IMutableTrace<String> trace = (IMutableTrace<String>) s.getFailingTraces().get(1);
+        trace.setInvolvement("S1", !trace.isInvolved(s.getNode("S1")));
+        ochiai.rerank(ranking, s.pollChangedNodes());
+
+        final Ranking<String> expected = ochiai.localize(s);
+        for (final INode<String> node : s.getNodes()) {
+            Assert.assertEquals(ranking.getSuspiciousness(node), expected.getSuspiciousness(node));
+            Assert.assertEquals(ranking.wastedEffort(node), expected.wastedEffort(node));
+        }
+    }
+
+    @Test
+    public void cloneMaintainsOwnCounters() throws Exception {
+        final Spectra<String> s = new Spectra<>();
+        final IMutableTrace<String> t1 = s.addTrace(false);
+        t1.setInvolvement("A", true);
+        t1.setInvolvement("B", true);
+        final IMutableTrace<String> t2 = s.addTrace(true);
+        t2.setInvolvement("A", true);
+        s.getContingencyTable();
+
+        final Spectra<String> clone = s.clone();
+        for (final ITrace<String> trace : clone.getTraces()) {
+            Assert.assertSame(trace.getSpectra(), clone);
+            ((IMutableTrace<String>) trace).setInvolvement("A", false);
+        }
+
+        final INode<String> a = clone.getNode("A");
+        Assert.assertEquals(a.getIF(), 0);
+        Assert.assertEquals(clone.getContingencyTable().getIF(0), 0);
+        final Ranking<String> ranking = new Ochiai<String>().localize(clone);
+        Assert.assertNotEquals(ranking.getSuspiciousness(a), 1.0d);
+        Assert.assertEquals(ranking.getSuspiciousness(clone.getNode("B")), 1.0d);
+
+        // the original is unmodified
+        Assert.assertEquals(s.getNode("A").getIF(), 1);
+        Assert.assertEquals(s.getNode("A").getIS(), 1);
+        Assert.assertTrue(s.getTraces().get(0).isInvolved(s.getNode("A")));
+        Assert.assertEquals(new Ochiai<String>().localize(s).getSuspiciousness(s.getNode("A")), 1.0d / Math.sqrt(2),
+                1e-12);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NodeEquivalenceClassesTest {
+
+    private Spectra<String> data() {
+        final Spectra<String> s = new Spectra<>();
+        final IMutableTrace<String> t1 = s.addTrace(false);
+        t1.setInvolvement("S1", true);
+        t1.setInvolvement("S2", true);
+        t1.setInvolvement("S3", true);
+        final IMutableTrace<String> t2 = s.addTrace(true);
+        t2.setInvolvement("S1", true);
+        t2.setInvolvement("S2", true);
+        t2.setInvolvement("S4", true);
+        final IMutableTrace<String> t3 = s.addTrace(true);
+        t3.setInvolvement("S4", true);
+        t3.setInvolvement("S5", false);
+        t3.setInvolvement("S6", false);
+        return s;
+    }
+
+    @Test
+    public void groupsIdenticalColumns() {
+        final Spectra<String> s = this.data();
+        for (final ISpectra<String> spectra : new ISpectra[] { s, BitsetSpectra.copyOf(s) }) {
+            final NodeEquivalenceClasses<String> classes = new NodeEquivalenceClasses<>(spectra);
+            Assert.assertEquals(classes.getNodes().size(), 6);
+            Assert.assertEquals(classes.getClassCount(), 4);
+            final int[] expected = new int[6];
+            for (int i = 0; i < 6; i++) {
+                expected[i] = classes.getClassOf(i);
+            }
+            Assert.assertEquals(expected[0], expected[1]);
+            Assert.assertEquals(expected[4], expected[5]);
+            Assert.assertNotEquals(expected[0], expected[2]);
+            Assert.assertNotEquals(expected[2], expected[3]);
+            Assert.assertEquals(classes.getRepresentative(expected[1]), classes.getNodes().get(0));
+            Assert.assertEquals(classes.getRepresentative(expected[5]), classes.getNodes().get(4));
+        }
+    }
+
+    @Test
+    public void reducedSpectraKeepsCounters() {
+        final Spectra<String> s = this.data();
+        final NodeEquivalenceClasses<String> classes = new NodeEquivalenceClasses<>(s);
+        final BitsetSpectra<String> reduced = classes.getReducedSpectra();
+        Assert.assertEquals(reduced.getNodeCount(), classes.getClassCount());
+        Assert.assertEquals(reduced.getTraceCount(), s.getTraces().size());
+        for (int i = 0; i < classes.getNodes().size(); i++) {
+            final INode<String> node = classes.getNodes().get(i);
+            final INode<String> representative = reduced.getNode(classes.getClassOf(i));
+            Assert.assertEquals(representative.getIF(), node.getIF());
+            Assert.assertEquals(representative.getIS(), node.getIS());
+            Assert.assertEquals(representative.getNF(), node.getNF());
+            Assert.assertEquals(representative.getNS(), node.getNS());
+        }
+        for (int t = 0; t < s.getTraces().size(); t++) {
+            Assert.assertEquals(reduced.getTrace(t).isSuccessful(), s.getTraces().get(t).isSuccessful());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of the "STARDUST" project.
+ *
+ * (c) Fabian Keller <hello@fabian-keller.de>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package fk.stardust.traces;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fk.stardust.test.data.SimpleSpectraProvider;
+
+public class OffHeapSpectraTest {
+
+    @Test
+    public void computeINFSMetricsForCopiedSpectra() throws Exception {
+        try (OffHeapSpectra<String> s = OffHeapSpectra.copyOf(new SimpleSpectraProvider().loadSpectra())) {
+            Assert.assertEquals(s.getNodes().size(), 3);
+            Assert.assertEquals(s.getTraces().size(), 5);
+            Assert.assertEquals(s.getFailingTraces().size(), 2);
+            Assert.assertEquals(s.getSuccessfulTraces().size(), 3);
+
+            Assert.assertEquals(s.getNode("S1").getNS(), 0);
+            Assert.assertEquals(s.getNode("S1").getNF(), 1);
+            Assert.assertEquals(s.getNode("S1").getIS(), 3);
+            Assert.assertEquals(s.getNode("S1").getIF(), 1);
+
+            Assert.assertEquals(s.getNode("S2").getNS(), 2);
+            Assert.assertEquals(s.getNode("S2").getNF(), 0);
+            Assert.assertEquals(s.getNode("S2").getIS(), 1);
+            Assert.assertEquals(s.getNode("S2").getIF(), 2);
+        }
+    }
+
+    @Test
+    public void matchBitsetSpectraAcrossBlocksAndWidening() {
+        final Random random = new Random(3);
+        final BitsetSpectra<String> expected = new BitsetSpectra<>();
+        // tiny blocks and capacity force multiple blocks and widening of the matrix
+        try (OffHeapSpectra<String> actual = new OffHeapSpectra<>(1, 64)) {
+            for (int t = 0; t < 40; t++) {
+                final boolean successful = random.nextBoolean();
+                final BitsetTrace<String> e = expected.addTrace(successful);
+                final OffHeapTrace<String> a = actual.addTrace(successful);
+                for (int n = 0; n < 10 * (t + 1); n++) {
+                    if (random.nextInt(3) == 0) {
+                        e.setInvolvement("N" + n, true);
+                        a.setInvolvement("N" + n, true);
+                    }
+                }
+            }
+
+            Assert.assertEquals(actual.getNodeCount(), expected.getNodeCount());
+            for (int n = 0; n < expected.getNodeCount(); n++) {
+                final INode<String> node = actual.getNode(n);
+                final INode<String> other = expected.getNode(node.getIdentifier());
+                Assert.assertEquals(node.getIF(), other.getIF());
+                Assert.assertEquals(node.getIS(), other.getIS());
+                Assert.assertEquals(node.getNF(), other.getNF());
+                Assert.assertEquals(node.getNS(), other.getNS());
+            }
+            for (int t = 0; t < actual.getTraceCount(); t++) {
+                final BitsetTrace<String> e = expected.getTrace(t);
+                int n = actual.nextInvolved(t, 0);
+                for (int i = e.nextInvolved(0); i >= 0; i = e.nextInvolved(i + 1)) {
+                    Assert.assertEquals(actual.getNode(n).getIdentifier(), expected.getNode(i).getIdentifier());
+                    n = actual.nextInvolved(t, n + 1);
+                }
+                Assert.assertEquals(n, -1);
+            }
+        }
+    }
+
+    @Test
+    public void updateMetricsWhenInvolvementChanges() {
+        try (OffHeapSpectra<String> s = new OffHeapSpectra<>()) {
+            final OffHeapTrace<String> t1 = s.addTrace(false);
+            t1.setInvolvement("A", true);
+            final INode<String> a = s.getNode("A");
+            Assert.assertEquals(a.getIF(), 1);
+
+            final OffHeapTrace<String> t2 = s.addTrace(true);
+            Assert.assertEquals(a.getNS(), 1);
+            t2.setInvolvement(a, true);
+            Assert.assertEquals(a.getIS(), 1);
+
+            t1.setInvolvement("A", false);
+            Assert.assertEquals(a.getIF(), 0);
+            Assert.assertEquals(a.getNF(), 1);
+            Assert.assertTrue(s.getTraces().get(1).isInvolved(a));
+            Assert.assertEquals(s.getTraces().get(1), t2);
+        }
+    }
+}